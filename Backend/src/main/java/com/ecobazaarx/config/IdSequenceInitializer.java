@@ -0,0 +1,57 @@
+package com.ecobazaarx.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves the id sequences of Product, Order, OrderItem and CartItem past the
+ * ids already in their tables.
+ *
+ * These entities switched from IDENTITY to pooled-lo sequences so Hibernate
+ * can batch their inserts. MySQL has no sequences, so Hibernate keeps each
+ * one in a single-row table ({@code <table>_seq.next_val}) that starts at 1 —
+ * on a database with existing rows the first allocated ids would collide.
+ * Runs once the schema is in place and before the web server or any
+ * CommandLineRunner (DataInitializer) can insert anything.
+ */
+@Component
+public class IdSequenceInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    /** entity table -> its sequence table, as named in the @SequenceGenerator mappings. */
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "products", "products_seq",
+            "orders", "orders_seq",
+            "order_items", "order_items_seq",
+            "cart_items", "cart_items_seq");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // EntityManagerFactory is injected only so this runs after Hibernate's schema update
+    @Autowired
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        SEQUENCES.forEach((table, sequence) -> {
+            Long next = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Long.class);
+            int updated = jdbcTemplate.update(
+                    "UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?", next, next);
+            if (updated > 0) {
+                log.info("Advanced {} to {}", sequence, next);
+            } else if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + sequence, Long.class) == 0) {
+                jdbcTemplate.update("INSERT INTO " + sequence + " (next_val) VALUES (?)", next);
+            }
+        });
+    }
+}
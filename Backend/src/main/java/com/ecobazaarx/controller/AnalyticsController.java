@@ -1,12 +1,18 @@
 package com.ecobazaarx.controller;
 
 import com.ecobazaarx.dto.CarbonAnalyticsDto;
+import com.ecobazaarx.dto.EmissionTrendDto;
 import com.ecobazaarx.service.AnalyticsService;
+import com.ecobazaarx.service.CarbonRollupService;
+import com.ecobazaarx.service.EmissionSeries;
 
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -21,9 +27,14 @@ import java.util.Map;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final CarbonRollupService carbonRollupService;
+    private final EmissionSeries emissionSeries;
 
-    public AnalyticsController(AnalyticsService analyticsService) {
+    public AnalyticsController(AnalyticsService analyticsService, CarbonRollupService carbonRollupService,
+                               EmissionSeries emissionSeries) {
         this.analyticsService = analyticsService;
+        this.carbonRollupService = carbonRollupService;
+        this.emissionSeries = emissionSeries;
     }
 
     /**
@@ -60,6 +71,8 @@ public class AnalyticsController {
      *   - Monthly emissions trend (last 6 months)
      *   - Top 5 highest-emission products
      *   - Top 5 most eco-friendly products
+     *   - The top users and sellers by CO2 (app.analytics.carbon.top-n);
+     *     the full rankings are under /leaderboards
      *
      * Previously the frontend called GET /api/products (all products) +
      * GET /api/orders/all?size=1000 (up to 1 000 orders) and ran every
@@ -71,4 +84,65 @@ public class AnalyticsController {
     public ResponseEntity<CarbonAnalyticsDto> getCarbonAnalytics() {
         return ResponseEntity.ok(analyticsService.getCarbonAnalytics());
     }
-}
\ No newline at end of file
+
+    /**
+     * GET /api/analytics/leaderboards/users?page=0&size=20&sort=totalCO2&direction=desc
+     *
+     * Per-user carbon ranking, one page at a time. The carbon payload above
+     * only carries the top entries. sort: totalCO2, orderCount, avgEcoScore, name.
+     */
+    @GetMapping("/leaderboards/users")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<CarbonAnalyticsDto.UserCarbonSummary>> getUserLeaderboard(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "totalCO2") String sort,
+            @RequestParam(defaultValue = "desc") String direction) {
+        return ResponseEntity.ok(analyticsService.getUserLeaderboard(page, size, sort, direction));
+    }
+
+    /**
+     * GET /api/analytics/leaderboards/sellers?page=0&size=20&sort=totalCO2&direction=desc
+     *
+     * Per-seller carbon ranking (active products), one page at a time.
+     * sort: totalCO2, materialCO2, shippingCO2, productCount, avgEcoScore, name.
+     */
+    @GetMapping("/leaderboards/sellers")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<CarbonAnalyticsDto.SellerCarbonSummary>> getSellerLeaderboard(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "totalCO2") String sort,
+            @RequestParam(defaultValue = "desc") String direction) {
+        return ResponseEntity.ok(analyticsService.getSellerLeaderboard(page, size, sort, direction));
+    }
+
+    /**
+     * GET /api/analytics/emissions?from=2025-01-01&to=2025-12-31&granularity=week
+     *
+     * Order CO2 and revenue per hour, day, week or month between two dates
+     * (inclusive, ISO yyyy-MM-dd), zero-filled. Without "to" the range ends
+     * today; without "from" it covers a default span for the granularity.
+     * Served from the pre-bucketed emission series, not from orders.
+     */
+    @GetMapping("/emissions")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<EmissionTrendDto> getEmissionTrend(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity) {
+        return ResponseEntity.ok(emissionSeries.getTrend(from, to, EmissionSeries.Granularity.parse(granularity)));
+    }
+
+    /**
+     * POST /api/analytics/rollups/reconcile
+     *
+     * Rebuilds the carbon rollup tables and the emission series from products
+     * and orders now, as the nightly job does, and returns what had drifted.
+     */
+    @PostMapping("/rollups/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> reconcileCarbonRollups() {
+        return ResponseEntity.ok(carbonRollupService.reconcile());
+    }
+}
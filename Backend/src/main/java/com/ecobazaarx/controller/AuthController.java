@@ -3,6 +3,7 @@ package com.ecobazaarx.controller;
 import jakarta.validation.Valid;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -10,7 +11,6 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,7 +23,14 @@ import com.ecobazaarx.payload.request.SignupRequest;
 import com.ecobazaarx.payload.response.JwtResponse;
 import com.ecobazaarx.payload.response.MessageResponse;
 import com.ecobazaarx.repository.UserRepository;
+import com.ecobazaarx.security.AuthRateLimiter;
+import com.ecobazaarx.security.AuthenticatedUser;
+import com.ecobazaarx.security.CurrentUser;
 import com.ecobazaarx.security.jwt.JwtUtils;
+import com.ecobazaarx.service.CacheInvalidationBus;
+import com.ecobazaarx.service.PasswordHashingExecutor;
+import com.ecobazaarx.service.SecondLevelCache;
+import com.ecobazaarx.service.TokenRevocationService;
 import com.ecobazaarx.service.UserDetailsServiceImpl;
 
 // FIX: Removed @CrossOrigin(origins = "*") — handled globally in WebSecurityConfig
@@ -36,43 +43,75 @@ public class AuthController {
     @Autowired PasswordEncoder encoder;
     @Autowired JwtUtils jwtUtils;
     @Autowired UserDetailsServiceImpl userService;
+    @Autowired CacheInvalidationBus invalidationBus;
+    @Autowired TokenRevocationService tokenRevocationService;
+    @Autowired PasswordHashingExecutor passwordHashing;
+    @Autowired AuthRateLimiter authRateLimiter;
 
+    // BCrypt runs on the hashing pool, not the request thread (see PasswordHashingExecutor)
     @PostMapping("/signin")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        User user = (User) authentication.getPrincipal();
-
-        if (user.getStatus() == Status.INACTIVE) {
-            return ResponseEntity.badRequest()
-                    .body(new MessageResponse("Your account is inactive. Please contact support."));
-        }
-
-        String jwt = jwtUtils.generateJwtToken(user.getUsername(), user.getId(), user.getRole().name());
-        return ResponseEntity.ok(new JwtResponse(jwt, user.getId(), user.getName(), user.getEmail(), user.getRole()));
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+        authRateLimiter.checkEmail(loginRequest.getEmail());
+        return passwordHashing.submit(() -> authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword())))
+                .thenApply(authentication -> {
+                    User user = (User) authentication.getPrincipal();
+
+                    if (user.getStatus() == Status.INACTIVE) {
+                        return ResponseEntity.badRequest()
+                                .body(new MessageResponse("Your account is inactive. Please contact support."));
+                    }
+
+                    String jwt = jwtUtils.generateJwtToken(user.getUsername(), user.getId(), user.getRole().name());
+                    return ResponseEntity.ok(new JwtResponse(jwt, user.getId(), user.getName(), user.getEmail(), user.getRole()));
+                });
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
+        authRateLimiter.checkEmail(signUpRequest.getEmail());
         if (userRepository.existsByEmail(signUpRequest.getEmail())) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Error: Email is already in use!"));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(new MessageResponse("Error: Email is already in use!")));
         }
-        User user = new User(signUpRequest.getName(), signUpRequest.getEmail(),
-                encoder.encode(signUpRequest.getPassword()), signUpRequest.getRole());
-        user.setAgreeToTerms(signUpRequest.getAgreeToTerms());
-        user.setSubscribeNewsletter(signUpRequest.getSubscribeNewsletter());
-        userRepository.save(user);
-        return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
+        return passwordHashing.submit(() -> encoder.encode(signUpRequest.getPassword()))
+                .thenApply(passwordHash -> {
+                    User user = new User(signUpRequest.getName(), signUpRequest.getEmail(),
+                            passwordHash, signUpRequest.getRole());
+                    user.setAgreeToTerms(signUpRequest.getAgreeToTerms());
+                    user.setSubscribeNewsletter(signUpRequest.getSubscribeNewsletter());
+                    userRepository.save(user);
+                    return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
+                });
+    }
+
+    // Revokes the caller's token; the client discards it as well
+    @PostMapping("/signout")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> signOut(@CurrentUser AuthenticatedUser user) {
+        if (user.tokenId() != null) {
+            tokenRevocationService.revokeToken(user.tokenId(), user.getId(), user.tokenExpiresAt());
+        } else {
+            tokenRevocationService.revokeAllForUser(user.getId());
+        }
+        return ResponseEntity.ok(new MessageResponse("Signed out"));
     }
 
     @GetMapping("/me")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<?> getCurrentUser(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+    public ResponseEntity<?> getCurrentUser(@CurrentUser Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
         return ResponseEntity.ok(new JwtResponse("", user.getId(), user.getName(), user.getEmail(), user.getRole()));
     }
 
+    // Load on the password-hashing pool: queue depth, rejections, task latency
+    @GetMapping("/admin/hashing")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getHashingStats() {
+        return ResponseEntity.ok(passwordHashing.stats());
+    }
+
     @GetMapping("/admin/users")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<UserDto>> getAllUsers() {
@@ -113,10 +152,9 @@ public class AuthController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> updateProfile(
             @Valid @RequestBody UpdateProfileDto updateRequest,
-            Authentication authentication) {
+            @CurrentUser Long userId) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            User user = userRepository.findById(currentUser.getId())
+            User user = userRepository.findById(userId)
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
             boolean emailChanged = false;
@@ -143,6 +181,7 @@ public class AuthController {
             }
 
             user = userRepository.save(user);
+            invalidationBus.publishAfterCommit(SecondLevelCache.USERS, List.of(user.getId()));
             String newJwt = emailChanged
                     ? jwtUtils.generateJwtToken(user.getEmail(), user.getId(), user.getRole().name())
                     : "";
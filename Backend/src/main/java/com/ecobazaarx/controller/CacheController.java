@@ -0,0 +1,36 @@
+package com.ecobazaarx.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.ecobazaarx.service.ProductCache;
+import com.ecobazaarx.service.SecondLevelCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/caches")
+@PreAuthorize("hasRole('ADMIN')")
+public class CacheController {
+
+    private final ProductCache productCache;
+    private final SecondLevelCache secondLevelCache;
+
+    @Autowired
+    public CacheController(ProductCache productCache, SecondLevelCache secondLevelCache) {
+        this.productCache = productCache;
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    // Hit/miss counters and size of each in-process cache, and of each Hibernate L2 region
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put(ProductCache.NAME, productCache.stats());
+        stats.put("hibernate", secondLevelCache.stats());
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -1,20 +1,18 @@
 package com.ecobazaarx.controller;
 
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import com.ecobazaarx.dto.AddToCartRequest;
 import com.ecobazaarx.dto.CartDto;
+import com.ecobazaarx.dto.MergeCartRequest;
 import com.ecobazaarx.dto.UpdateCartItemRequest;
-import com.ecobazaarx.entity.User;
-import com.ecobazaarx.security.jwt.JwtUtils;
+import com.ecobazaarx.security.CurrentUser;
 import com.ecobazaarx.service.CartService;
 
 @RestController
@@ -26,57 +24,56 @@ public class CartController {
     private static final Logger log = LoggerFactory.getLogger(CartController.class);
 
     private final CartService cartService;
-    private final JwtUtils jwtUtils;
 
     @Autowired
-    public CartController(CartService cartService, JwtUtils jwtUtils) {
+    public CartController(CartService cartService) {
         this.cartService = cartService;
-        this.jwtUtils = jwtUtils;
-    }
-
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = jwtUtils.parseJwt(request);
-        return jwtUtils.getUserIdFromJwtToken(token);
     }
 
     @GetMapping
-    public ResponseEntity<CartDto> getUserCart(HttpServletRequest request) {
-        return ResponseEntity.ok(cartService.getUserCart(getUserIdFromRequest(request)));
+    public ResponseEntity<CartDto> getUserCart(@CurrentUser Long userId) {
+        return ResponseEntity.ok(cartService.getUserCart(userId));
     }
 
     @PostMapping("/add")
     public ResponseEntity<CartDto> addToCart(
             @Valid @RequestBody AddToCartRequest addToCartRequest,
-            HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+            @CurrentUser Long userId) {
         // FIX: Removed System.out.println("User Id : " + userId)
         log.debug("addToCart request for userId={}", userId);
         return ResponseEntity.ok(cartService.addToCart(userId, addToCartRequest));
     }
 
+    // Guest cart merge on login: all items in one request instead of one /add per item
+    @PostMapping("/merge")
+    public ResponseEntity<CartDto> mergeCart(
+            @Valid @RequestBody MergeCartRequest mergeCartRequest,
+            @CurrentUser Long userId) {
+        return ResponseEntity.ok(cartService.mergeCart(userId, mergeCartRequest));
+    }
+
     @PutMapping("/items/{cartItemId}")
     public ResponseEntity<CartDto> updateCartItem(
             @PathVariable Long cartItemId,
             @Valid @RequestBody UpdateCartItemRequest updateRequest,
-            Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
-        return ResponseEntity.ok(cartService.updateCartItem(user.getId(), cartItemId, updateRequest));
+            @CurrentUser Long userId) {
+        return ResponseEntity.ok(cartService.updateCartItem(userId, cartItemId, updateRequest));
     }
 
     @DeleteMapping("/items/{cartItemId}")
     public ResponseEntity<CartDto> removeFromCart(
-            @PathVariable Long cartItemId, HttpServletRequest request) {
-        return ResponseEntity.ok(cartService.removeFromCart(getUserIdFromRequest(request), cartItemId));
+            @PathVariable Long cartItemId, @CurrentUser Long userId) {
+        return ResponseEntity.ok(cartService.removeFromCart(userId, cartItemId));
     }
 
     @DeleteMapping("/clear")
-    public ResponseEntity<Void> clearCart(HttpServletRequest request) {
-        cartService.clearCart(getUserIdFromRequest(request));
+    public ResponseEntity<Void> clearCart(@CurrentUser Long userId) {
+        cartService.clearCart(userId);
         return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/count")
-    public ResponseEntity<Integer> getCartItemCount(HttpServletRequest request) {
-        return ResponseEntity.ok(cartService.getCartItemCount(getUserIdFromRequest(request)));
+    public ResponseEntity<Integer> getCartItemCount(@CurrentUser Long userId) {
+        return ResponseEntity.ok(cartService.getCartItemCount(userId));
     }
 }
\ No newline at end of file
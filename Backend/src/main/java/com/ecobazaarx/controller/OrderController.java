@@ -1,7 +1,7 @@
 package com.ecobazaarx.controller;
 
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
@@ -10,11 +10,13 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import com.ecobazaarx.dto.CreateOrderRequest;
+import com.ecobazaarx.dto.CursorPage;
 import com.ecobazaarx.dto.OrderDto;
 import com.ecobazaarx.dto.UserOrderStats;
 import com.ecobazaarx.entity.OrderStatus;
 import com.ecobazaarx.exception.AccessDeniedException;
-import com.ecobazaarx.security.jwt.JwtUtils;
+import com.ecobazaarx.security.CurrentUser;
+import com.ecobazaarx.service.IdempotencyService;
 import com.ecobazaarx.service.OrderService;
 
 import java.util.List;
@@ -24,34 +26,41 @@ import java.util.List;
 // FIX: Removed @CrossOrigin(origins = "*") — conflicts with WebSecurityConfig CORS policy
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final OrderService orderService;
-    private final JwtUtils jwtUtils;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public OrderController(OrderService orderService, JwtUtils jwtUtils) {
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService) {
         this.orderService = orderService;
-        this.jwtUtils = jwtUtils;
-    }
-
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = jwtUtils.parseJwt(request);
-        return jwtUtils.getUserIdFromJwtToken(token);
+        this.idempotencyService = idempotencyService;
     }
 
+    /**
+     * POST /api/orders
+     *
+     * Clients may send an {@code Idempotency-Key} header (any unique string,
+     * e.g. a UUID per checkout attempt). Retries with the same key return the
+     * original order, marked with {@code Idempotent-Replayed: true}, instead
+     * of placing it again.
+     */
     @PostMapping
     @PreAuthorize("hasRole('CONSUMER')")
     public ResponseEntity<OrderDto> createOrder(
             @Valid @RequestBody CreateOrderRequest createOrderRequest,
-            HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(orderService.createOrderFromCart(userId, createOrderRequest));
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @CurrentUser Long userId) {
+        IdempotencyService.Result<OrderDto> result = idempotencyService.execute(userId, idempotencyKey,
+                idempotencyService.fingerprint("POST /api/orders", createOrderRequest), OrderDto.class,
+                () -> orderService.createOrderFromCart(userId, createOrderRequest));
+        return created(result);
     }
 
     @GetMapping("/seller")
     @PreAuthorize("hasRole('SELLER') or hasRole('ADMIN')")
-    public ResponseEntity<List<OrderDto>> getOrdersBySellerId(HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<List<OrderDto>> getOrdersBySellerId(@CurrentUser Long userId) {
         return ResponseEntity.ok(orderService.getOrdersBySellerId(userId));
     }
 
@@ -59,18 +68,29 @@ public class OrderController {
     @PreAuthorize("hasRole('CONSUMER') or hasRole('ADMIN')")
     public ResponseEntity<OrderDto> createOrderForProduct(
             @PathVariable Long productId,
-            @RequestParam(defaultValue = "1") int quantity,
+            @RequestParam(defaultValue = "1") @Min(value = 1, message = "Quantity must be at least 1") int quantity,
             @Valid @RequestBody CreateOrderRequest createOrderRequest,
-            HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(orderService.createOrderForProduct(userId, productId, quantity, createOrderRequest));
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @CurrentUser Long userId) {
+        IdempotencyService.Result<OrderDto> result = idempotencyService.execute(userId, idempotencyKey,
+                idempotencyService.fingerprint("POST /api/orders/product/" + productId + "?quantity=" + quantity,
+                        createOrderRequest),
+                OrderDto.class,
+                () -> orderService.createOrderForProduct(userId, productId, quantity, createOrderRequest));
+        return created(result);
+    }
+
+    private static ResponseEntity<OrderDto> created(IdempotencyService.Result<OrderDto> result) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.CREATED);
+        if (result.replayed()) {
+            response.header(REPLAYED_HEADER, "true");
+        }
+        return response.body(result.body());
     }
 
     @GetMapping
     @PreAuthorize("hasRole('CONSUMER') or hasRole('ADMIN')")
-    public ResponseEntity<List<OrderDto>> getUserOrders(HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<List<OrderDto>> getUserOrders(@CurrentUser Long userId) {
         return ResponseEntity.ok(orderService.getUserOrders(userId));
     }
 
@@ -79,47 +99,58 @@ public class OrderController {
     public ResponseEntity<Page<OrderDto>> getUserOrdersPaginated(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+            @CurrentUser Long userId) {
         return ResponseEntity.ok(orderService.getUserOrders(userId, page, size));
     }
 
+    /**
+     * GET /api/orders/paginated?after=<cursor>&size=10
+     *
+     * Keyset (cursor) variant of the order history, selected by the presence of
+     * {@code after}. Empty {@code after} returns the first page; pass back
+     * {@code nextCursor} for the next one.
+     */
+    @GetMapping(value = "/paginated", params = "after")
+    @PreAuthorize("hasRole('CONSUMER') or hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<OrderDto>> getUserOrdersAfter(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @CurrentUser Long userId) {
+        return ResponseEntity.ok(orderService.getUserOrdersAfter(userId, after, size, includeTotal));
+    }
+
     @GetMapping("/{orderId}")
     @PreAuthorize("hasRole('CONSUMER') or hasRole('ADMIN')")
     public ResponseEntity<OrderDto> getOrderById(
-            @PathVariable Long orderId, HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+            @PathVariable Long orderId, @CurrentUser Long userId) {
         return ResponseEntity.ok(orderService.getOrderById(orderId, userId));
     }
 
     @GetMapping("/tracking/{trackingNumber}")
     @PreAuthorize("hasRole('CONSUMER') or hasRole('ADMIN')")
     public ResponseEntity<OrderDto> getOrderByTrackingNumber(
-            @PathVariable String trackingNumber, HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+            @PathVariable String trackingNumber, @CurrentUser Long userId) {
         return ResponseEntity.ok(orderService.getOrderByTrackingNumber(trackingNumber, userId));
     }
 
     @PatchMapping("/{orderId}/cancel")
     @PreAuthorize("hasRole('CONSUMER') or hasRole('ADMIN')")
     public ResponseEntity<OrderDto> cancelOrder(
-            @PathVariable Long orderId, HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+            @PathVariable Long orderId, @CurrentUser Long userId) {
         return ResponseEntity.ok(orderService.cancelOrder(orderId, userId));
     }
 
     @GetMapping("/recent")
     @PreAuthorize("hasRole('CONSUMER') or hasRole('ADMIN')")
     public ResponseEntity<List<OrderDto>> getRecentOrders(
-            @RequestParam(defaultValue = "30") int days, HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+            @RequestParam(defaultValue = "30") int days, @CurrentUser Long userId) {
         return ResponseEntity.ok(orderService.getRecentOrders(userId, days));
     }
 
     @GetMapping("/stats")
     @PreAuthorize("hasRole('CONSUMER') or hasRole('ADMIN')")
-    public ResponseEntity<UserOrderStats> getUserOrderStats(HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+    public ResponseEntity<UserOrderStats> getUserOrderStats(@CurrentUser Long userId) {
         return ResponseEntity.ok(orderService.getUserOrderStats(userId));
     }
 
@@ -145,8 +176,7 @@ public class OrderController {
     public ResponseEntity<?> sellerUpdateOrderStatus(
             @PathVariable Long orderId,
             @RequestParam String status,
-            HttpServletRequest request) throws AccessDeniedException {
-        Long sellerId = getUserIdFromRequest(request);
+            @CurrentUser Long sellerId) throws AccessDeniedException {
         OrderStatus orderStatus;
         try {
             orderStatus = OrderStatus.valueOf(status.toUpperCase());
@@ -161,9 +191,8 @@ public class OrderController {
     public ResponseEntity<?> updateConsumerOrderStatus(
             @PathVariable Long orderId,
             @RequestParam String status,
-            HttpServletRequest request) {
+            @CurrentUser Long userId) {
         try {
-            Long userId = getUserIdFromRequest(request);
             OrderStatus orderStatus;
             try {
                 orderStatus = OrderStatus.valueOf(status.toUpperCase());
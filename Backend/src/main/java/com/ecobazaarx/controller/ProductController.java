@@ -1,45 +1,39 @@
 package com.ecobazaarx.controller;
 
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import com.ecobazaarx.dto.CursorPage;
 import com.ecobazaarx.dto.ProductDto;
-import com.ecobazaarx.security.jwt.JwtUtils;
+import com.ecobazaarx.security.CurrentUser;
 import com.ecobazaarx.service.ProductService;
+import com.ecobazaarx.storage.ImageStorageService;
 
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
-    private static final Logger log = LoggerFactory.getLogger(ProductController.class);
-
     private final ProductService productService;
-    private final JwtUtils jwtUtils;
+    private final ImageStorageService imageStorage;
 
     @Autowired
-    public ProductController(ProductService productService, JwtUtils jwtUtils) {
+    public ProductController(ProductService productService, ImageStorageService imageStorage) {
         this.productService = productService;
-        this.jwtUtils = jwtUtils;
-    }
-
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = jwtUtils.parseJwt(request);
-        if (token == null) throw new RuntimeException("No JWT token found");
-        Long userId = jwtUtils.getUserIdFromJwtToken(token);
-        if (userId == null) throw new RuntimeException("User ID not found in token");
-        log.debug("Authenticated product request by userId={}", userId);
-        return userId;
+        this.imageStorage = imageStorage;
     }
 
     @GetMapping
@@ -54,19 +48,33 @@ public class ProductController {
         return ResponseEntity.ok(productService.getAllProducts(page, size));
     }
 
+    /**
+     * GET /api/products/paginated?after=<cursor>&size=20
+     *
+     * Keyset (cursor) variant of the paginated listing, selected by the presence
+     * of {@code after}. Pass an empty {@code after} for the first page, then the
+     * {@code nextCursor} from each response. No COUNT query is run unless
+     * {@code includeTotal=true}.
+     */
+    @GetMapping(value = "/paginated", params = "after")
+    public ResponseEntity<CursorPage<ProductDto>> getProductsAfter(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        return ResponseEntity.ok(productService.getProductsAfter(after, size, includeTotal));
+    }
+
     @GetMapping("/seller/{sellerId}")
     @PreAuthorize("hasRole('SELLER') or hasRole('ADMIN')")
     public ResponseEntity<List<ProductDto>> getProductsBySellerId(
-            @PathVariable Long sellerId, HttpServletRequest request) {
-        Long userId = getUserIdFromRequest(request);
+            @PathVariable Long sellerId, @CurrentUser Long userId) {
         return ResponseEntity.ok(productService.getProductsBySellerId(userId));
     }
 
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'SELLER')")
     public ResponseEntity<ProductDto> createProduct(
-            @Valid @RequestBody ProductDto productDto, HttpServletRequest request) {
-        Long sellerId = getUserIdFromRequest(request);
+            @Valid @RequestBody ProductDto productDto, @CurrentUser Long sellerId) {
         return ResponseEntity.status(HttpStatus.CREATED).body(productService.createProduct(productDto, sellerId));
     }
 
@@ -75,16 +83,14 @@ public class ProductController {
     public ResponseEntity<ProductDto> updateProductBySeller(
             @PathVariable Long id,
             @Valid @RequestBody ProductDto productDto,
-            HttpServletRequest request) {
-        Long sellerId = getUserIdFromRequest(request);
+            @CurrentUser Long sellerId) {
         return ResponseEntity.ok(productService.updateProductBySeller(id, productDto, sellerId));
     }
 
     @DeleteMapping("/seller/{id}")
     @PreAuthorize("hasRole('SELLER')")
     public ResponseEntity<Void> deleteProductBySeller(
-            @PathVariable Long id, HttpServletRequest request) {
-        Long sellerId = getUserIdFromRequest(request);
+            @PathVariable Long id, @CurrentUser Long sellerId) {
         productService.deleteProductBySeller(id, sellerId);
         return ResponseEntity.noContent().build();
     }
@@ -94,11 +100,69 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProductById(id));
     }
 
+    /**
+     * GET /api/products/{id}/image
+     *
+     * Serves the image that list responses only link to. Inline data URIs are
+     * decoded and returned as bytes, but only for the raster types uploads
+     * accept (415 otherwise); blob keys and http(s) URLs are answered with a
+     * redirect, anything else with 404. Public, since browsers load it
+     * through plain {@code <img>} tags.
+     */
+    @GetMapping("/{id}/image")
+    public ResponseEntity<byte[]> getProductImage(@PathVariable Long id) {
+        String image = productService.getProductImage(id);
+        CacheControl cache = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
+
+        if (image.startsWith("data:")) {
+            int comma = image.indexOf(',');
+            String meta = comma > 0 ? image.substring(5, comma) : "";
+            String mime = meta.endsWith(";base64") ? meta.substring(0, meta.length() - ";base64".length()) : "";
+            if (!ImageStorageService.isSupportedType(mime)) {
+                return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+            }
+            byte[] bytes;
+            try {
+                bytes = Base64.getMimeDecoder().decode(image.substring(comma + 1));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+            }
+            return ResponseEntity.ok()
+                    .cacheControl(cache)
+                    .header("X-Content-Type-Options", "nosniff")
+                    .contentType(MediaType.parseMediaType(mime.toLowerCase()))
+                    .body(bytes);
+        }
+        String target = imageStorage.redirectTarget(image);
+        if (target == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .cacheControl(cache)
+                .location(URI.create(target))
+                .build();
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<ProductDto>> searchProducts(@RequestParam String q) {
         return ResponseEntity.ok(productService.searchProducts(q));
     }
 
+    /**
+     * GET /api/products/search?q=eco+hoodie&page=0&size=10
+     *
+     * Paginated variant of the search endpoint, selected by the presence of the
+     * {@code page} parameter. Results come from the in-memory search index in
+     * relevance order; only the products on the requested page are loaded.
+     */
+    @GetMapping(value = "/search", params = "page")
+    public ResponseEntity<Page<ProductDto>> searchProductsPaginated(
+            @RequestParam String q,
+            @RequestParam int page,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(productService.searchProducts(q, page, size));
+    }
+
     @GetMapping("/type/{type}")
     public ResponseEntity<List<ProductDto>> getProductsByType(@PathVariable String type) {
         return ResponseEntity.ok(productService.getProductsByType(type));
@@ -169,6 +233,21 @@ public class ProductController {
         return ResponseEntity.ok(productService.getLowStockProducts(threshold));
     }
 
+    /**
+     * GET /api/products/trending?window=PT1H&limit=10
+     *
+     * Products selling fastest right now, by approximate units sold within
+     * the window (app.products.trending.windows; the first when omitted).
+     * Each item carries minUnitsSold and maxUnitsSold, the bounds of the true
+     * count. For the exact all-time ranking see /api/analytics/popular-products.
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<List<Map<String, Object>>> getTrendingProducts(
+            @RequestParam(required = false) String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productService.getTrendingProducts(window, limit));
+    }
+
     /**
      * GET /api/products/{id}/recommendations?limit=4
      *
@@ -0,0 +1,69 @@
+package com.ecobazaarx.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) paginated listing.
+ *
+ * Unlike Spring's Page, this carries no total count unless the caller asked
+ * for one — producing it costs a COUNT(*) per request, which is exactly what
+ * keyset pagination is meant to avoid. {@code nextCursor} is an opaque token
+ * the client passes back as {@code ?after=} to get the following page; it is
+ * null on the last page.
+ */
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private Long totalElements;   // only populated when includeTotal=true
+
+    public CursorPage() {}
+
+    public CursorPage(List<T> items, String nextCursor, boolean hasMore, Long totalElements) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.totalElements = totalElements;
+    }
+
+    // ── Cursor encoding ───────────────────────────────────────────────────────
+
+    /**
+     * Encodes a (timestamp, id) sort key as a URL-safe token. Clients must treat
+     * it as opaque; the format may change without notice.
+     */
+    public static String encodeCursor(LocalDateTime timestamp, Long id) {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Decodes a token produced by {@link #encodeCursor}; rejects anything else with a 400. */
+    public static Key decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new Key(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor");
+        }
+    }
+
+    /** Decoded sort key of the last row on the previous page. */
+    public record Key(LocalDateTime timestamp, Long id) {}
+
+    // Getters and Setters
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public Long getTotalElements() { return totalElements; }
+    public void setTotalElements(Long totalElements) { this.totalElements = totalElements; }
+}
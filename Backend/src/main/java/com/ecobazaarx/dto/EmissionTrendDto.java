@@ -0,0 +1,66 @@
+package com.ecobazaarx.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Order CO2 and revenue over time, one point per hour, day, week or month.
+ *
+ * Read from the pre-bucketed emission series (see EmissionSeries) and
+ * downsampled on the server; periods without orders are present with zeros,
+ * so the frontend can plot the points as they come.
+ */
+public class EmissionTrendDto {
+
+    private String granularity;         // "hour", "day", "week" or "month"
+    private LocalDateTime from;         // start of the first point
+    private LocalDateTime to;           // end of the last point (exclusive)
+    private double totalCO2;
+    private double totalRevenue;
+    private long   totalOrders;
+    private List<Point> points;
+
+    // ── Inner DTOs ────────────────────────────────────────────────────────────
+
+    public static class Point {
+        private LocalDateTime start;    // weeks start on Monday, months on the 1st
+        private double co2;             // sum of order totalCO2Footprint
+        private double revenue;         // sum of order totalAmount
+        private long   orderCount;
+
+        public Point() {}
+        public Point(LocalDateTime start, double co2, double revenue, long orderCount) {
+            this.start      = start;
+            this.co2        = co2;
+            this.revenue    = revenue;
+            this.orderCount = orderCount;
+        }
+
+        public LocalDateTime getStart()  { return start; }
+        public double getCo2()           { return co2; }
+        public double getRevenue()       { return revenue; }
+        public long   getOrderCount()    { return orderCount; }
+        public void setStart(LocalDateTime s) { this.start = s; }
+        public void setCo2(double c)          { this.co2 = c; }
+        public void setRevenue(double r)      { this.revenue = r; }
+        public void setOrderCount(long c)     { this.orderCount = c; }
+    }
+
+    // ── Root getters / setters ────────────────────────────────────────────────
+
+    public String getGranularity()        { return granularity; }
+    public LocalDateTime getFrom()        { return from; }
+    public LocalDateTime getTo()          { return to; }
+    public double getTotalCO2()           { return totalCO2; }
+    public double getTotalRevenue()       { return totalRevenue; }
+    public long   getTotalOrders()        { return totalOrders; }
+    public List<Point> getPoints()        { return points; }
+
+    public void setGranularity(String g)      { this.granularity = g; }
+    public void setFrom(LocalDateTime f)      { this.from = f; }
+    public void setTo(LocalDateTime t)        { this.to = t; }
+    public void setTotalCO2(double t)         { this.totalCO2 = t; }
+    public void setTotalRevenue(double t)     { this.totalRevenue = t; }
+    public void setTotalOrders(long t)        { this.totalOrders = t; }
+    public void setPoints(List<Point> p)      { this.points = p; }
+}
@@ -0,0 +1,24 @@
+package com.ecobazaarx.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class MergeCartRequest {
+    @NotNull(message = "Items are required")
+    @Size(max = 200, message = "At most 200 items can be merged at once")
+    private List<@Valid AddToCartRequest> items;
+    
+    // Constructors
+    public MergeCartRequest() {}
+    
+    public MergeCartRequest(List<AddToCartRequest> items) {
+        this.items = items;
+    }
+    
+    // Getters and Setters
+    public List<AddToCartRequest> getItems() { return items; }
+    public void setItems(List<AddToCartRequest> items) { this.items = items; }
+}
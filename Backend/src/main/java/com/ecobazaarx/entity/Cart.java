@@ -1,6 +1,8 @@
 package com.ecobazaarx.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -8,6 +10,8 @@ import java.util.List;
 import java.util.ArrayList;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "carts")
 @Table(name = "carts")
 public class Cart {
     
@@ -19,6 +23,7 @@ public class Cart {
     @JoinColumn(name = "user_id", nullable = false, unique = true)
     private User user;
     
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "cart-lines")
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
     private List<CartItem> cartItems = new ArrayList<>();
     
@@ -34,6 +39,10 @@ public class Cart {
     @Column(name = "total_items")
     private Integer totalItems = 0;
     
+    // Bumped by every cart write-behind flush and by checkout; fences flushes from stale copies
+    @Column(name = "cart_version", nullable = false)
+    private long cartVersion;
+    
     // Constructors
     public Cart() {
         this.createdDate = LocalDateTime.now();
@@ -112,4 +121,7 @@ public class Cart {
     
     public Integer getTotalItems() { return totalItems; }
     public void setTotalItems(Integer totalItems) { this.totalItems = totalItems; }
+    
+    public long getCartVersion() { return cartVersion; }
+    public void setCartVersion(long cartVersion) { this.cartVersion = cartVersion; }
 }
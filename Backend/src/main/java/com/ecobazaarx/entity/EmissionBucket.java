@@ -0,0 +1,74 @@
+package com.ecobazaarx.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order CO2, revenue and count for the counted orders (not CANCELLED or
+ * RETURNED) placed in one hour or one day ({@code resolution}), starting at
+ * {@code bucketStart}. Written by EmissionSeries as orders are placed and
+ * change status; coarser periods are added up from these on read.
+ *
+ * Like the order rollups, a bucket is spread over several {@code slot} rows
+ * so concurrent checkouts do not queue on the current hour's row.
+ */
+@Entity
+@Table(name = "emission_buckets",
+       uniqueConstraints = @UniqueConstraint(name = "uk_emission_buckets_bucket",
+                                             columnNames = { "resolution", "bucket_start", "slot" }))
+public class EmissionBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "resolution", nullable = false, length = 8)
+    private String resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "slot", nullable = false)
+    private int slot;
+
+    @Column(name = "co2", nullable = false, precision = 16, scale = 2)
+    private BigDecimal co2 = BigDecimal.ZERO;
+
+    @Column(name = "revenue", nullable = false, precision = 16, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    public EmissionBucket() {}
+
+    public EmissionBucket(String resolution, LocalDateTime bucketStart, int slot) {
+        this.resolution = resolution;
+        this.bucketStart = bucketStart;
+        this.slot = slot;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getResolution() { return resolution; }
+    public void setResolution(String resolution) { this.resolution = resolution; }
+
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+    public int getSlot() { return slot; }
+    public void setSlot(int slot) { this.slot = slot; }
+
+    public BigDecimal getCo2() { return co2; }
+    public void setCo2(BigDecimal co2) { this.co2 = co2; }
+
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+
+    public long getOrderCount() { return orderCount; }
+    public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
+}
@@ -11,11 +11,20 @@ import java.util.List;
 import java.util.ArrayList;
 
 @Entity
-@Table(name = "orders")
+// Fetch plan for list reads: OrderMapper walks every order's items
+@NamedEntityGraph(name = Order.WITH_ITEMS, attributeNodes = @NamedAttributeNode("orderItems"))
+@Table(name = "orders", indexes = {
+	// Backs keyset pagination of a user's order history
+	@Index(name = "idx_orders_user_date", columnList = "user_id, order_date, id")
+})
 public class Order {
 
+	public static final String WITH_ITEMS = "Order.withItems";
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	// Pooled sequence (not IDENTITY) so Hibernate can batch inserts; see IdSequenceInitializer
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+	@SequenceGenerator(name = "order_seq", sequenceName = "orders_seq", allocationSize = 50)
 	private Long id;
 
 	@ManyToOne(fetch = FetchType.LAZY)
@@ -82,13 +91,6 @@ public class Order {
 		if (orderDate == null) {
 			orderDate = LocalDateTime.now();
 		}
-		if (trackingNumber == null) {
-			trackingNumber = generateTrackingNumber();
-		}
-	}
-
-	private String generateTrackingNumber() {
-		return "TRK" + System.currentTimeMillis() + String.format("%03d", (int) (Math.random() * 1000));
 	}
 
 	// Helper methods
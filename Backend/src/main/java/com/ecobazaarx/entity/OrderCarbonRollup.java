@@ -0,0 +1,75 @@
+package com.ecobazaarx.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Running carbon totals of the counted orders (not CANCELLED or RETURNED)
+ * in one group: a user ({@code dimension = "user"}, keyed by the user id) or
+ * a month ({@code "month"}, keyed "YYYY-MM"). Kept current by
+ * CarbonRollupService as orders are placed and change status.
+ *
+ * A group is spread over several {@code slot} rows, picked at random per
+ * write, so concurrent checkouts in the same month do not queue on one row
+ * lock; readers add the slots up.
+ */
+@Entity
+@Table(name = "order_carbon_rollups",
+       uniqueConstraints = @UniqueConstraint(name = "uk_order_carbon_rollups_group",
+                                             columnNames = { "dimension", "group_key", "slot" }))
+public class OrderCarbonRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "dimension", nullable = false, length = 16)
+    private String dimension;
+
+    @Column(name = "group_key", nullable = false, length = 255)
+    private String groupKey;
+
+    @Column(name = "slot", nullable = false)
+    private int slot;
+
+    @Column(name = "co2", nullable = false, precision = 16, scale = 2)
+    private BigDecimal co2 = BigDecimal.ZERO;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    // Sum and count of the non-null eco scores, so the average matches AVG()
+    @Column(name = "eco_score_sum", nullable = false, precision = 16, scale = 1)
+    private BigDecimal ecoScoreSum = BigDecimal.ZERO;
+
+    @Column(name = "eco_score_count", nullable = false)
+    private long ecoScoreCount;
+
+    public OrderCarbonRollup() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getDimension() { return dimension; }
+    public void setDimension(String dimension) { this.dimension = dimension; }
+
+    public String getGroupKey() { return groupKey; }
+    public void setGroupKey(String groupKey) { this.groupKey = groupKey; }
+
+    public int getSlot() { return slot; }
+    public void setSlot(int slot) { this.slot = slot; }
+
+    public BigDecimal getCo2() { return co2; }
+    public void setCo2(BigDecimal co2) { this.co2 = co2; }
+
+    public long getOrderCount() { return orderCount; }
+    public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
+
+    public BigDecimal getEcoScoreSum() { return ecoScoreSum; }
+    public void setEcoScoreSum(BigDecimal ecoScoreSum) { this.ecoScoreSum = ecoScoreSum; }
+
+    public long getEcoScoreCount() { return ecoScoreCount; }
+    public void setEcoScoreCount(long ecoScoreCount) { this.ecoScoreCount = ecoScoreCount; }
+}
@@ -10,7 +10,9 @@ import jakarta.validation.constraints.*;
 public class OrderItem {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence (not IDENTITY) so Hibernate can batch inserts; see IdSequenceInitializer
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_items_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -50,6 +52,9 @@ public class OrderItem {
     @Column(name = "product_image", columnDefinition = "TEXT")
     private String productImage;
     
+    @Column(name = "product_image_key", length = 80)
+    private String productImageKey; // shared blob, so order lines no longer duplicate image bytes
+    
     @Enumerated(EnumType.STRING)
 	@Column(nullable = false)
 	private OrderStatus status = OrderStatus.PROCESSING;
@@ -77,7 +82,8 @@ public class OrderItem {
         this.ecoScore = product.getEcoScore();
         this.materialCO2 = product.getMaterialCO2();
         this.shippingCO2 = product.getShippingCO2();
-        this.productImage = product.getImage();
+        this.productImageKey = product.getImageKey();
+        this.productImage = product.getImageKey() == null ? product.getImage() : null;
     }
     
     // Helper methods
@@ -118,4 +124,7 @@ public class OrderItem {
     
     public String getProductImage() { return productImage; }
     public void setProductImage(String productImage) { this.productImage = productImage; }
+    
+    public String getProductImageKey() { return productImageKey; }
+    public void setProductImageKey(String productImageKey) { this.productImageKey = productImageKey; }
 }
@@ -1,16 +1,26 @@
 package com.ecobazaarx.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+// Second-level cached; see hibernate-caffeine.conf and SecondLevelCache
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "products")
+@Table(name = "products", indexes = {
+    // Backs keyset pagination: WHERE status = ? ORDER BY created_date DESC, id DESC
+    @Index(name = "idx_products_status_created", columnList = "status, created_date, id")
+})
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence (not IDENTITY) so Hibernate can batch inserts; see IdSequenceInitializer
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Product name is required")
@@ -46,7 +56,10 @@ public class Product {
 //    @Column(columnDefinition = "TEXT")
 //    private String image;
     @Column(columnDefinition = "LONGTEXT")
-    private String image;
+    private String image;           // external URL only; uploaded images live in the blob store
+
+    @Column(name = "image_key", length = 80)
+    private String imageKey;        // BlobStore key of an uploaded image
 
     @Column(name = "created_date")
     private LocalDateTime createdDate;
@@ -127,6 +140,9 @@ public class Product {
     public String getImage() { return image; }
     public void setImage(String image) { this.image = image; }
 
+    public String getImageKey() { return imageKey; }
+    public void setImageKey(String imageKey) { this.imageKey = imageKey; }
+
     public LocalDateTime getCreatedDate() { return createdDate; }
     public void setCreatedDate(LocalDateTime createdDate) { this.createdDate = createdDate; }
 
@@ -0,0 +1,77 @@
+package com.ecobazaarx.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Running carbon totals of the active products in one group: a product type
+ * ({@code dimension = "type"}) or a seller ({@code "seller"}, keyed by the
+ * seller id). Kept current by CarbonRollupService as products are written,
+ * so the carbon dashboard reads one row per group instead of every product.
+ */
+@Entity
+@Table(name = "product_carbon_rollups",
+       uniqueConstraints = @UniqueConstraint(name = "uk_product_carbon_rollups_group",
+                                             columnNames = { "dimension", "group_key" }))
+public class ProductCarbonRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "dimension", nullable = false, length = 16)
+    private String dimension;
+
+    @Column(name = "group_key", nullable = false, length = 255)
+    private String groupKey;
+
+    @Column(name = "material_co2", nullable = false, precision = 16, scale = 2)
+    private BigDecimal materialCO2 = BigDecimal.ZERO;
+
+    @Column(name = "shipping_co2", nullable = false, precision = 16, scale = 2)
+    private BigDecimal shippingCO2 = BigDecimal.ZERO;
+
+    @Column(name = "product_count", nullable = false)
+    private long productCount;
+
+    // Sum and count of the non-null eco scores, so the average matches AVG()
+    @Column(name = "eco_score_sum", nullable = false, precision = 16, scale = 1)
+    private BigDecimal ecoScoreSum = BigDecimal.ZERO;
+
+    @Column(name = "eco_score_count", nullable = false)
+    private long ecoScoreCount;
+
+    @Column(name = "high_emission_count", nullable = false)
+    private long highEmissionCount;
+
+    public ProductCarbonRollup() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getDimension() { return dimension; }
+    public void setDimension(String dimension) { this.dimension = dimension; }
+
+    public String getGroupKey() { return groupKey; }
+    public void setGroupKey(String groupKey) { this.groupKey = groupKey; }
+
+    public BigDecimal getMaterialCO2() { return materialCO2; }
+    public void setMaterialCO2(BigDecimal materialCO2) { this.materialCO2 = materialCO2; }
+
+    public BigDecimal getShippingCO2() { return shippingCO2; }
+    public void setShippingCO2(BigDecimal shippingCO2) { this.shippingCO2 = shippingCO2; }
+
+    public long getProductCount() { return productCount; }
+    public void setProductCount(long productCount) { this.productCount = productCount; }
+
+    public BigDecimal getEcoScoreSum() { return ecoScoreSum; }
+    public void setEcoScoreSum(BigDecimal ecoScoreSum) { this.ecoScoreSum = ecoScoreSum; }
+
+    public long getEcoScoreCount() { return ecoScoreCount; }
+    public void setEcoScoreCount(long ecoScoreCount) { this.ecoScoreCount = ecoScoreCount; }
+
+    public long getHighEmissionCount() { return highEmissionCount; }
+    public void setHighEmissionCount(long highEmissionCount) { this.highEmissionCount = highEmissionCount; }
+}
@@ -1,6 +1,8 @@
 package com.ecobazaarx.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -13,6 +15,9 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
+// Second-level cached: read by id on most authenticated writes
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 @Table(name = "users", uniqueConstraints = {
     @UniqueConstraint(columnNames = "email")
 })
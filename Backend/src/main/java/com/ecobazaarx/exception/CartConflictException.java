@@ -0,0 +1,7 @@
+package com.ecobazaarx.exception;
+
+public class CartConflictException extends RuntimeException {
+    public CartConflictException(String message) {
+        super(message);
+    }
+}
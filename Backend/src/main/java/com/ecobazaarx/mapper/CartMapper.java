@@ -6,11 +6,13 @@ import org.springframework.stereotype.Component;
 
 import com.ecobazaarx.dto.CartDto;
 import com.ecobazaarx.dto.CartItemDto;
-import com.ecobazaarx.entity.Cart;
-import com.ecobazaarx.entity.CartItem;
+import com.ecobazaarx.repository.CartProductView;
+import com.ecobazaarx.service.cart.StoredCart;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Component
 public class CartMapper {
@@ -22,40 +24,35 @@ public class CartMapper {
         this.productMapper = productMapper;
     }
     
-    public CartDto toDto(Cart cart) {
-        if (cart == null) {
-            return null;
-        }
-        
+    // Cart held by the CartStore; lines whose product is gone are left out
+    public CartDto toDto(Long userId, StoredCart cart, Map<Long, CartProductView> products) {
         CartDto dto = new CartDto();
-        dto.setId(cart.getId());
-        dto.setUserId(cart.getUser().getId());
-        dto.setTotalAmount(cart.getTotalAmount());
-        dto.setTotalItems(cart.getTotalItems());
-        dto.setUpdatedDate(cart.getUpdatedDate());
-        
-        if (cart.getCartItems() != null) {
-            List<CartItemDto> cartItemDtos = cart.getCartItems().stream()
-                    .map(this::toCartItemDto)
-                    .collect(Collectors.toList());
-            dto.setCartItems(cartItemDtos);
-        }
+        dto.setId(cart.cartId());
+        dto.setUserId(userId);
+        dto.setUpdatedDate(cart.updatedDate());
         
-        return dto;
-    }
-    
-    public CartItemDto toCartItemDto(CartItem cartItem) {
-        if (cartItem == null) {
-            return null;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        int totalItems = 0;
+        List<CartItemDto> cartItemDtos = new ArrayList<>();
+        for (StoredCart.Line line : cart.lines().values()) {
+            CartProductView product = products.get(line.productId());
+            if (product == null) {
+                continue;
+            }
+            CartItemDto itemDto = new CartItemDto();
+            itemDto.setId(line.id());
+            itemDto.setProduct(productMapper.toCartDto(product));
+            itemDto.setQuantity(line.quantity());
+            itemDto.setSubtotal(product.getPrice().multiply(BigDecimal.valueOf(line.quantity())));
+            itemDto.setAddedDate(line.addedDate());
+            cartItemDtos.add(itemDto);
+            totalAmount = totalAmount.add(itemDto.getSubtotal());
+            totalItems += line.quantity();
         }
-        
-        CartItemDto dto = new CartItemDto();
-        dto.setId(cartItem.getId());
-        dto.setProduct(productMapper.toDto(cartItem.getProduct()));
-        dto.setQuantity(cartItem.getQuantity());
-        dto.setSubtotal(cartItem.getSubtotal());
-        dto.setAddedDate(cartItem.getAddedDate());
+        dto.setCartItems(cartItemDtos);
+        dto.setTotalAmount(totalAmount);
+        dto.setTotalItems(totalItems);
         
         return dto;
     }
-}
\ No newline at end of file
+}
@@ -55,7 +55,9 @@ public class OrderMapper {
         dto.setProductId(orderItem.getProduct().getId());
         dto.setProductName(orderItem.getProductName());
         dto.setProductType(orderItem.getProductType());
-        dto.setProductImage(orderItem.getProductImage());
+        dto.setProductImage(orderItem.getProductImageKey() != null
+                ? ProductMapper.blobUrl(orderItem.getProductImageKey())
+                : orderItem.getProductImage());
         dto.setQuantity(orderItem.getQuantity());
         dto.setPrice(orderItem.getPrice());
         dto.setEcoScore(orderItem.getEcoScore());
@@ -3,11 +3,41 @@ package com.ecobazaarx.mapper;
 import com.ecobazaarx.dto.ProductDto;
 import com.ecobazaarx.entity.Product;
 import com.ecobazaarx.entity.User;
+import com.ecobazaarx.repository.CartProductView;
+import com.ecobazaarx.repository.ProductSummary;
+import com.ecobazaarx.storage.ImageStorageService;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @Component
 public class ProductMapper {
 
+    /** Path of the endpoint that serves a product's image on its own. */
+    public static String imagePath(Long productId) {
+        return "/api/products/" + productId + "/image";
+    }
+
+    /** Absolute URL of an image in the blob store (see ImageController). */
+    public static String blobUrl(String key) {
+        return absolute(ImageStorageService.IMAGE_PATH_PREFIX + key);
+    }
+
+    /**
+     * Absolute URL of a product's image. Absolute because the frontend runs on
+     * a different origin and drops these straight into {@code <img src>}.
+     */
+    public static String imageUrl(Long productId) {
+        return absolute(imagePath(productId));
+    }
+
+    private static String absolute(String path) {
+        if (RequestContextHolder.getRequestAttributes() == null) {
+            return path;
+        }
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path(path).toUriString();
+    }
+
     public ProductDto toDto(Product product) {
         if (product == null) {
             return null;
@@ -22,7 +52,7 @@ public class ProductMapper {
         dto.setFootprint(product.getFootprint());
         dto.setMaterialCO2(product.getMaterialCO2());
         dto.setShippingCO2(product.getShippingCO2());
-        dto.setImage(product.getImage());
+        dto.setImage(product.getImageKey() != null ? blobUrl(product.getImageKey()) : product.getImage());
         dto.setDate(product.getCreatedDate());
         dto.setStockQuantity(product.getStockQuantity());
         dto.setDescription(product.getDescription());
@@ -41,6 +71,64 @@ public class ProductMapper {
         return dto;
     }
 
+    /**
+     * List-view mapping: same DTO shape as {@link #toDto(Product)}, but
+     * {@code image} holds the image URL instead of the image itself.
+     */
+    public ProductDto toDto(ProductSummary summary) {
+        if (summary == null) {
+            return null;
+        }
+
+        ProductDto dto = new ProductDto();
+        dto.setId(summary.getId());
+        dto.setName(summary.getName());
+        dto.setType(summary.getType());
+        dto.setPrice(summary.getPrice());
+        dto.setEcoScore(summary.getEcoScore());
+        dto.setFootprint(summary.getFootprint());
+        dto.setMaterialCO2(summary.getMaterialCO2());
+        dto.setShippingCO2(summary.getShippingCO2());
+        if (summary.getImageKey() != null) {
+            dto.setImage(blobUrl(summary.getImageKey()));
+        } else {
+            dto.setImage(summary.getHasImage() ? imageUrl(summary.getId()) : null);
+        }
+        dto.setDate(summary.getCreatedDate());
+        dto.setStockQuantity(summary.getStockQuantity());
+        dto.setDescription(summary.getDescription());
+        dto.setStatus(summary.getStatus());
+        dto.setRating(summary.getRating());
+        dto.setSales(summary.getSales());
+        dto.setSellerId(summary.getSellerId());
+        dto.setSellerName(summary.getSellerName());
+        return dto;
+    }
+
+    /** Product of a cart line: only the fields the cart page renders. */
+    public ProductDto toCartDto(CartProductView view) {
+        if (view == null) {
+            return null;
+        }
+
+        ProductDto dto = new ProductDto();
+        dto.setId(view.getId());
+        dto.setName(view.getName());
+        dto.setType(view.getType());
+        dto.setPrice(view.getPrice());
+        dto.setEcoScore(view.getEcoScore());
+        dto.setMaterialCO2(view.getMaterialCO2());
+        dto.setShippingCO2(view.getShippingCO2());
+        if (view.getImageKey() != null) {
+            dto.setImage(blobUrl(view.getImageKey()));
+        } else {
+            dto.setImage(view.getHasImage() ? imageUrl(view.getId()) : null);
+        }
+        dto.setStockQuantity(view.getStockQuantity());
+        dto.setStatus(view.getStatus());
+        return dto;
+    }
+
     public Product toEntity(ProductDto dto, User seller) {
         if (dto == null) {
             return null;
@@ -55,7 +143,6 @@ public class ProductMapper {
         product.setFootprint(dto.getFootprint());
         product.setMaterialCO2(dto.getMaterialCO2());
         product.setShippingCO2(dto.getShippingCO2());
-        product.setImage(dto.getImage());
         product.setStockQuantity(dto.getStockQuantity());
         product.setDescription(dto.getDescription());
 
@@ -63,6 +150,7 @@ public class ProductMapper {
         product.setStatus(dto.getStatus());
         product.setRating(dto.getRating());
         product.setSales(dto.getSales());
+        // image is resolved by ProductService, which may move it to the blob store
 
         // set seller (passed explicitly from service)
         product.setSeller(seller);
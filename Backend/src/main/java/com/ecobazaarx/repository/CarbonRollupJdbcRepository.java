@@ -0,0 +1,159 @@
+package com.ecobazaarx.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC statements behind the carbon rollup tables (CarbonRollupService):
+ * delta upserts from product and order writes, and the full recompute,
+ * lock and replace used by the reconciliation job.
+ */
+@Repository
+public class CarbonRollupJdbcRepository {
+
+    /** One product_carbon_rollups group, as a delta or as a total. */
+    public record ProductRow(String dimension, String groupKey, BigDecimal materialCO2, BigDecimal shippingCO2,
+                             long productCount, BigDecimal ecoScoreSum, long ecoScoreCount,
+                             long highEmissionCount) {}
+
+    /** One order_carbon_rollups group (all slots together), as a delta or as a total. */
+    public record OrderRow(String dimension, String groupKey, BigDecimal co2, long orderCount,
+                           BigDecimal ecoScoreSum, long ecoScoreCount) {}
+
+    private static final String ADD_PRODUCT_SQL =
+            "INSERT INTO product_carbon_rollups (dimension, group_key, material_co2, shipping_co2, " +
+            "product_count, eco_score_sum, eco_score_count, high_emission_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE material_co2 = material_co2 + VALUES(material_co2), " +
+            "shipping_co2 = shipping_co2 + VALUES(shipping_co2), " +
+            "product_count = product_count + VALUES(product_count), " +
+            "eco_score_sum = eco_score_sum + VALUES(eco_score_sum), " +
+            "eco_score_count = eco_score_count + VALUES(eco_score_count), " +
+            "high_emission_count = high_emission_count + VALUES(high_emission_count)";
+
+    private static final String ADD_ORDER_SQL =
+            "INSERT INTO order_carbon_rollups (dimension, group_key, slot, co2, order_count, " +
+            "eco_score_sum, eco_score_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE co2 = co2 + VALUES(co2), " +
+            "order_count = order_count + VALUES(order_count), " +
+            "eco_score_sum = eco_score_sum + VALUES(eco_score_sum), " +
+            "eco_score_count = eco_score_count + VALUES(eco_score_count)";
+
+    // Same filters as the rollup deltas: active products only
+    private static final String COMPUTE_PRODUCTS_SQL =
+            "SELECT 'type', p.type, COALESCE(SUM(p.material_co2), 0), COALESCE(SUM(p.shipping_co2), 0), " +
+            "COUNT(*), COALESCE(SUM(p.eco_score), 0), COUNT(p.eco_score), " +
+            "SUM(CASE WHEN COALESCE(p.material_co2, 0) + COALESCE(p.shipping_co2, 0) > ? THEN 1 ELSE 0 END) " +
+            "FROM products p WHERE p.status = 'active' GROUP BY p.type " +
+            "UNION ALL " +
+            "SELECT 'seller', CAST(p.seller_id AS CHAR), COALESCE(SUM(p.material_co2), 0), " +
+            "COALESCE(SUM(p.shipping_co2), 0), COUNT(*), COALESCE(SUM(p.eco_score), 0), COUNT(p.eco_score), " +
+            "SUM(CASE WHEN COALESCE(p.material_co2, 0) + COALESCE(p.shipping_co2, 0) > ? THEN 1 ELSE 0 END) " +
+            "FROM products p WHERE p.status = 'active' GROUP BY p.seller_id";
+
+    // Same filters as the rollup deltas: CANCELLED and RETURNED orders do not count
+    private static final String COMPUTE_ORDERS_SQL =
+            "SELECT 'user', CAST(o.user_id AS CHAR), COALESCE(SUM(o.total_co2_footprint), 0), COUNT(*), " +
+            "COALESCE(SUM(o.total_eco_score), 0), COUNT(o.total_eco_score) " +
+            "FROM orders o WHERE o.status NOT IN ('CANCELLED', 'RETURNED') GROUP BY o.user_id " +
+            "UNION ALL " +
+            "SELECT 'month', DATE_FORMAT(o.order_date, '%Y-%m'), COALESCE(SUM(o.total_co2_footprint), 0), " +
+            "COUNT(*), COALESCE(SUM(o.total_eco_score), 0), COUNT(o.total_eco_score) " +
+            "FROM orders o WHERE o.status NOT IN ('CANCELLED', 'RETURNED') " +
+            "GROUP BY DATE_FORMAT(o.order_date, '%Y-%m')";
+
+    private static final RowMapper<ProductRow> PRODUCT_ROW = (rs, i) -> new ProductRow(
+            rs.getString(1), rs.getString(2), rs.getBigDecimal(3), rs.getBigDecimal(4),
+            rs.getLong(5), rs.getBigDecimal(6), rs.getLong(7), rs.getLong(8));
+
+    private static final RowMapper<OrderRow> ORDER_ROW = (rs, i) -> new OrderRow(
+            rs.getString(1), rs.getString(2), rs.getBigDecimal(3), rs.getLong(4),
+            rs.getBigDecimal(5), rs.getLong(6));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CarbonRollupJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Adds each delta to its group's row, creating the row if needed. Callers pass groups in lock order. */
+    public void addProductDeltas(Collection<ProductRow> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (ProductRow d : deltas) {
+            args.add(new Object[] { d.dimension(), d.groupKey(), d.materialCO2(), d.shippingCO2(),
+                    d.productCount(), d.ecoScoreSum(), d.ecoScoreCount(), d.highEmissionCount() });
+        }
+        jdbcTemplate.batchUpdate(ADD_PRODUCT_SQL, args);
+    }
+
+    /** Adds each delta to its group's row in {@code slot}, creating the row if needed. */
+    public void addOrderDeltas(Collection<OrderRow> deltas, int slot) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (OrderRow d : deltas) {
+            args.add(new Object[] { d.dimension(), d.groupKey(), slot, d.co2(), d.orderCount(),
+                    d.ecoScoreSum(), d.ecoScoreCount() });
+        }
+        jdbcTemplate.batchUpdate(ADD_ORDER_SQL, args);
+    }
+
+    /** Current product rollups, locked (including the gaps) until the transaction ends. */
+    public List<ProductRow> lockProductRollups() {
+        return jdbcTemplate.query(
+                "SELECT dimension, group_key, material_co2, shipping_co2, product_count, eco_score_sum, " +
+                "eco_score_count, high_emission_count FROM product_carbon_rollups FOR UPDATE", PRODUCT_ROW);
+    }
+
+    /** Current order rollups, one row per slot, locked (including the gaps) until the transaction ends. */
+    public List<OrderRow> lockOrderRollups() {
+        return jdbcTemplate.query(
+                "SELECT dimension, group_key, co2, order_count, eco_score_sum, eco_score_count " +
+                "FROM order_carbon_rollups FOR UPDATE", ORDER_ROW);
+    }
+
+    /** Product rollups recomputed from the products table. */
+    public List<ProductRow> computeProductRollups(double highEmissionThreshold) {
+        return jdbcTemplate.query(COMPUTE_PRODUCTS_SQL, PRODUCT_ROW, highEmissionThreshold, highEmissionThreshold);
+    }
+
+    /** Order rollups recomputed from the orders table. */
+    public List<OrderRow> computeOrderRollups() {
+        return jdbcTemplate.query(COMPUTE_ORDERS_SQL, ORDER_ROW);
+    }
+
+    /** Makes the product rollups exactly {@code rows}. */
+    public void replaceProductRollups(Collection<ProductRow> rows) {
+        jdbcTemplate.update("DELETE FROM product_carbon_rollups");
+        addProductDeltas(rows);
+    }
+
+    /** Makes the order rollups exactly {@code rows}, each in slot 0. */
+    public void replaceOrderRollups(Collection<OrderRow> rows) {
+        jdbcTemplate.update("DELETE FROM order_carbon_rollups");
+        addOrderDeltas(rows, 0);
+    }
+
+    /** Whether a rollup table is empty while its source table has rows (first start on existing data). */
+    public boolean isMissingRollups() {
+        Boolean missing = jdbcTemplate.queryForObject(
+                "SELECT (NOT EXISTS (SELECT 1 FROM product_carbon_rollups) " +
+                "AND EXISTS (SELECT 1 FROM products WHERE status = 'active')) " +
+                "OR (NOT EXISTS (SELECT 1 FROM order_carbon_rollups) AND EXISTS (SELECT 1 FROM orders))",
+                Boolean.class);
+        return Boolean.TRUE.equals(missing);
+    }
+}
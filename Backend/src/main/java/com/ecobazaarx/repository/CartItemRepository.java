@@ -4,6 +4,7 @@ import com.ecobazaarx.entity.CartItem;
 import com.ecobazaarx.entity.Cart;
 import com.ecobazaarx.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -26,6 +27,28 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     // Delete cart items by cart
     void deleteByCart(Cart cart);
     
+    // Delete all items of a cart in one statement (deleteByCart loads and deletes them one by one)
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId")
+    int deleteAllByCartId(@Param("cartId") Long cartId);
+    
+    // Total quantity in a user's cart, straight from cart_items (0 when there is no cart)
+    @Query("SELECT COALESCE(SUM(ci.quantity), 0) FROM CartItem ci WHERE ci.cart.user.id = :userId")
+    long sumQuantityByUserId(@Param("userId") Long userId);
+    
+    /**
+     * A user's cart as bare columns, one row per line, oldest first — loads a
+     * cart into the CartStore without touching products. A cart without
+     * lines gives a single row with nulls in the line columns; no cart gives
+     * no rows.
+     * Columns: [cartId LONG, cartUpdatedDate DATETIME, itemId LONG, productId LONG,
+     *           quantity INT, addedDate DATETIME, itemUpdatedDate DATETIME, cartVersion LONG]
+     */
+    @Query("SELECT c.id, c.updatedDate, ci.id, ci.product.id, ci.quantity, ci.addedDate, ci.updatedDate, " +
+           "c.cartVersion " +
+           "FROM Cart c LEFT JOIN c.cartItems ci WHERE c.user.id = :userId ORDER BY ci.addedDate, ci.id")
+    List<Object[]> findCartLinesByUserId(@Param("userId") Long userId);
+    
     // Count items in cart
     @Query("SELECT COUNT(ci) FROM CartItem ci WHERE ci.cart = :cart")
     Long countItemsInCart(@Param("cart") Cart cart);
@@ -0,0 +1,107 @@
+package com.ecobazaarx.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC statements behind the cart write-behind flush (CartWriteBehind). A
+ * flush writes the whole cart in a fixed number of statements, however
+ * many lines it has: the stale lines go in one DELETE, the current ones in
+ * one batched upsert. It is fenced by carts.cart_version
+ * ({@link #advanceVersion}).
+ */
+@Repository
+public class CartJdbcRepository {
+
+    /** One cart_items row as written by {@link #replaceItems}. */
+    public record ItemRow(long id, long productId, int quantity, LocalDateTime addedDate, LocalDateTime updatedDate) {}
+
+    // INSERT ... SELECT skips products that no longer exist instead of failing the batch
+    private static final String UPSERT_ITEM_SQL =
+            "INSERT INTO cart_items (id, cart_id, product_id, quantity, added_date, updated_date) " +
+            "SELECT ?, ?, p.id, ?, ?, ? FROM products p WHERE p.id = ? " +
+            "ON DUPLICATE KEY UPDATE quantity = ?, updated_date = ?";
+
+    private static final String REFRESH_TOTALS_SQL =
+            "UPDATE carts c SET " +
+            "c.total_items = (SELECT COALESCE(SUM(ci.quantity), 0) FROM cart_items ci WHERE ci.cart_id = c.id), " +
+            "c.total_amount = (SELECT COALESCE(SUM(ci.quantity * p.price), 0) FROM cart_items ci " +
+            "JOIN products p ON p.id = ci.product_id WHERE ci.cart_id = c.id), " +
+            "c.updated_date = ? WHERE c.id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CartJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Id of the user's carts row, inserting it first if the user has none. */
+    public Long ensureCart(Long userId) {
+        jdbcTemplate.update(
+                "INSERT IGNORE INTO carts (user_id, created_date, updated_date, total_amount, total_items, cart_version) " +
+                "VALUES (?, NOW(), NOW(), 0, 0, 0)", userId);
+        return jdbcTemplate.queryForObject("SELECT id FROM carts WHERE user_id = ?", Long.class, userId);
+    }
+
+    /**
+     * Moves the cart's version from {@code expected} to {@code expected + 1},
+     * or returns false if it is no longer at {@code expected}.
+     */
+    public boolean advanceVersion(Long cartId, long expected) {
+        return jdbcTemplate.update("UPDATE carts SET cart_version = ? WHERE id = ? AND cart_version = ?",
+                expected + 1, cartId, expected) == 1;
+    }
+
+    /** Makes the cart's lines exactly {@code items}, then recomputes the stored totals. */
+    public void replaceItems(Long cartId, Collection<ItemRow> items, LocalDateTime updatedDate) {
+        if (items.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id = ?", cartId);
+        } else {
+            List<Object> keep = new ArrayList<>(items.size() + 1);
+            keep.add(cartId);
+            StringBuilder placeholders = new StringBuilder();
+            for (ItemRow item : items) {
+                placeholders.append(placeholders.length() == 0 ? "?" : ", ?");
+                keep.add(item.id());
+            }
+            jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id = ? AND id NOT IN (" + placeholders + ")",
+                    keep.toArray());
+
+            List<Object[]> args = new ArrayList<>(items.size());
+            for (ItemRow item : items) {
+                Timestamp updated = Timestamp.valueOf(item.updatedDate());
+                args.add(new Object[] { item.id(), cartId, item.quantity(), Timestamp.valueOf(item.addedDate()),
+                        updated, item.productId(), item.quantity(), updated });
+            }
+            jdbcTemplate.batchUpdate(UPSERT_ITEM_SQL, args);
+        }
+        jdbcTemplate.update(REFRESH_TOTALS_SQL, Timestamp.valueOf(updatedDate), cartId);
+    }
+
+    /**
+     * Reserves {@code blockSize} consecutive cart_items ids from
+     * cart_items_seq the same way Hibernate's pooled-lo optimizer does (read
+     * next_val, advance it by the block size), so ids handed out here and by
+     * Hibernate never overlap. Call it in its own transaction.
+     *
+     * @return the first id of the block
+     */
+    public long reserveItemIds(int blockSize) {
+        while (true) {
+            Long next = jdbcTemplate.queryForObject("SELECT next_val FROM cart_items_seq FOR UPDATE", Long.class);
+            int updated = jdbcTemplate.update("UPDATE cart_items_seq SET next_val = ? WHERE next_val = ?",
+                    next + blockSize, next);
+            if (updated == 1) {
+                return next;
+            }
+        }
+    }
+}
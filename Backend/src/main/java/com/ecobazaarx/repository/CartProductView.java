@@ -0,0 +1,22 @@
+package com.ecobazaarx.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * The product fields the cart page and cart validation need — never the
+ * LONGTEXT {@code image}, only whether there is one. Cart code depends on
+ * this view only; the rows come from ProductCache as {@link ProductSummary}.
+ */
+public interface CartProductView {
+    Long getId();
+    String getName();
+    String getType();
+    BigDecimal getPrice();
+    BigDecimal getEcoScore();
+    BigDecimal getMaterialCO2();
+    BigDecimal getShippingCO2();
+    Integer getStockQuantity();
+    String getStatus();
+    String getImageKey();
+    boolean getHasImage();
+}
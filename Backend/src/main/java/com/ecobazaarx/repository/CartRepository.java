@@ -3,6 +3,7 @@ package com.ecobazaarx.repository;
 import com.ecobazaarx.entity.Cart;
 import com.ecobazaarx.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -23,6 +24,13 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
            "WHERE c.user = :user")
     Optional<Cart> findByUserWithItems(@Param("user") User user);
     
+    // Zero the cart totals in place, after its items were bulk-deleted; the version bump
+    // fences off any other node still holding the checked-out lines (CartWriteBehind)
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalAmount = 0, c.totalItems = 0, c.updatedDate = CURRENT_TIMESTAMP, " +
+           "c.cartVersion = c.cartVersion + 1 WHERE c.id = :cartId")
+    int resetTotals(@Param("cartId") Long cartId);
+    
     // Delete cart by user
     void deleteByUser(User user);
 }
@@ -0,0 +1,87 @@
+package com.ecobazaarx.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC batch statements for the checkout path, where issuing one JPA
+ * statement per cart line made round trips grow with cart size. (Order lines
+ * themselves are inserted through JPA, which batches them now that OrderItem
+ * uses sequence ids.) Single-product orders and cancellations move stock
+ * here too: as HQL bulk updates they made Hibernate drop the whole products
+ * region and the query cache, where callers only need the one product
+ * evicted (ProductCache.invalidate).
+ *
+ * Runs on the connection of the surrounding JPA transaction, so everything
+ * here commits or rolls back together with the order. With
+ * {@code rewriteBatchedStatements=true} on the MySQL driver each batch goes
+ * out in a single round trip.
+ */
+@Repository
+public class CheckoutJdbcRepository {
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, sales = sales + ?, updated_date = NOW() " +
+            "WHERE id = ? AND stock_quantity >= ? AND ? > 0 AND status = 'active'";
+
+    private static final String INCREMENT_STOCK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, updated_date = NOW() WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CheckoutJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Conditionally decrements stock for every product in one batch. Rows are
+     * updated in ascending id order so that concurrent checkouts always take
+     * row locks in the same order and cannot deadlock each other.
+     *
+     * @param quantities productId -> quantity, iterated in ascending id order
+     *                   (pass a sorted map)
+     * @return ids of products whose stock was insufficient or which are no
+     *         longer active; empty when every row was updated
+     */
+    public List<Long> decrementStock(Map<Long, Integer> quantities) {
+        List<Object[]> args = new ArrayList<>(quantities.size());
+        List<Long> ids = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, qty) -> {
+            args.add(new Object[] { qty, qty, productId, qty, qty });
+            ids.add(productId);
+        });
+
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, args);
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] != 1) {
+                failed.add(ids.get(i));
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Takes {@code qty} units of one product out of stock and records them as
+     * sales. The stock check is part of the WHERE clause, so two concurrent
+     * orders can never both take the last unit, and a quantity below 1 can
+     * never add stock.
+     *
+     * @return false if the stock was insufficient or the product is no
+     *         longer active; nothing is updated then
+     */
+    public boolean decrementStock(Long productId, int qty) {
+        return jdbcTemplate.update(DECREMENT_STOCK_SQL, qty, qty, productId, qty, qty) == 1;
+    }
+
+    /** Puts {@code qty} units back into stock (order cancelled / returned). */
+    public void incrementStock(Long productId, int qty) {
+        jdbcTemplate.update(INCREMENT_STOCK_SQL, qty, productId);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ecobazaarx.repository;
+
+import com.ecobazaarx.entity.EmissionBucket;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Emission time-series buckets (EmissionSeries). JPQL, plus one HQL upsert
+ * that Hibernate renders per dialect, so the queries run unchanged on any
+ * database Hibernate supports.
+ */
+@Repository
+public interface EmissionBucketRepository extends JpaRepository<EmissionBucket, Long> {
+
+    /**
+     * Creates one bucket slot's row, zeroed, unless it exists. The no-op
+     * conflict update is rendered per dialect (ON DUPLICATE KEY UPDATE on
+     * MySQL, MERGE on H2), so an existing row or a concurrent insert of the
+     * same slot never fails the caller's transaction.
+     */
+    @Modifying
+    @Query("INSERT INTO EmissionBucket b (resolution, bucketStart, slot, co2, revenue, orderCount) " +
+           "VALUES (:resolution, :start, :slot, 0, 0, 0) " +
+           "ON CONFLICT (resolution, bucketStart, slot) DO UPDATE SET orderCount = b.orderCount")
+    void createIfAbsent(@Param("resolution") String resolution, @Param("start") LocalDateTime start,
+                        @Param("slot") int slot);
+
+    /** Adds to one bucket slot's counters; returns 0 if the row does not exist yet. */
+    @Modifying
+    @Query("UPDATE EmissionBucket b SET b.co2 = b.co2 + :co2, b.revenue = b.revenue + :revenue, " +
+           "b.orderCount = b.orderCount + :orders " +
+           "WHERE b.resolution = :resolution AND b.bucketStart = :start AND b.slot = :slot")
+    int addTo(@Param("resolution") String resolution, @Param("start") LocalDateTime start, @Param("slot") int slot,
+              @Param("co2") BigDecimal co2, @Param("revenue") BigDecimal revenue, @Param("orders") long orders);
+
+    /**
+     * Buckets of one resolution in [from, to), slots added up, oldest first.
+     * Columns: [bucketStart LocalDateTime, co2, revenue, orderCount LONG]
+     */
+    @Query("SELECT b.bucketStart, SUM(b.co2), SUM(b.revenue), SUM(b.orderCount) " +
+           "FROM EmissionBucket b " +
+           "WHERE b.resolution = :resolution AND b.bucketStart >= :from AND b.bucketStart < :to " +
+           "GROUP BY b.bucketStart " +
+           "ORDER BY b.bucketStart")
+    List<Object[]> sumByBucket(@Param("resolution") String resolution,
+                               @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /** Every bucket row, locked until the transaction ends (rebuild). */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM EmissionBucket b")
+    List<EmissionBucket> findAllForUpdate();
+
+    // Single DELETE instead of the load-then-delete of a derived deleteBy query
+    @Modifying
+    @Query("DELETE FROM EmissionBucket b WHERE b.resolution = :resolution AND b.bucketStart < :before")
+    int deleteOlderThan(@Param("resolution") String resolution, @Param("before") LocalDateTime before);
+}
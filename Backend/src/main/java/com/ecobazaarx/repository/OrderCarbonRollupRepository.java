@@ -0,0 +1,54 @@
+package com.ecobazaarx.repository;
+
+import com.ecobazaarx.entity.OrderCarbonRollup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Reads of the order carbon rollups; each group's slots are added up here.
+ * Writes go through {@link CarbonRollupJdbcRepository}.
+ */
+@Repository
+public interface OrderCarbonRollupRepository extends JpaRepository<OrderCarbonRollup, Long> {
+
+    String USER_LEADERBOARD =
+            "SELECT u.id AS id, u.name AS name, SUM(r.co2) AS totalCO2, SUM(r.orderCount) AS orderCount, " +
+            "COALESCE(SUM(r.ecoScoreSum) / NULLIF(SUM(r.ecoScoreCount), 0), 0) AS avgEcoScore " +
+            "FROM OrderCarbonRollup r JOIN User u ON u.id = CAST(r.groupKey AS Long) " +
+            "WHERE r.dimension = 'user' " +
+            "GROUP BY u.id, u.name " +
+            "HAVING SUM(r.orderCount) > 0";
+
+    /**
+     * One page of users with counted orders, in the pageable's order; sort
+     * by the column aliases (totalCO2, orderCount, avgEcoScore, name, id).
+     * The database keeps only the requested rows while sorting (top-K).
+     * Columns: [userId LONG, userName STRING, totalCO2, orderCount LONG, avgEcoScore]
+     */
+    @Query(value = USER_LEADERBOARD,
+           countQuery = "SELECT COUNT(u) FROM User u WHERE u.id IN (" +
+                        "SELECT CAST(r.groupKey AS Long) FROM OrderCarbonRollup r " +
+                        "WHERE r.dimension = 'user' GROUP BY r.groupKey HAVING SUM(r.orderCount) > 0)")
+    Page<Object[]> findUserLeaderboard(Pageable pageable);
+
+    /** The first rows of {@link #findUserLeaderboard}, without the count query. */
+    @Query(USER_LEADERBOARD)
+    List<Object[]> findUserLeaderboardTop(Pageable pageable);
+
+    /**
+     * One row per month with counted orders, latest first.
+     * Columns: [month STRING "YYYY-MM", totalCO2, orderCount LONG]
+     */
+    @Query("SELECT r.groupKey, SUM(r.co2), SUM(r.orderCount) " +
+           "FROM OrderCarbonRollup r " +
+           "WHERE r.dimension = 'month' " +
+           "GROUP BY r.groupKey " +
+           "HAVING SUM(r.orderCount) > 0 " +
+           "ORDER BY r.groupKey DESC")
+    List<Object[]> getCarbonByMonth();
+}
@@ -3,6 +3,7 @@ package com.ecobazaarx.repository;
 import com.ecobazaarx.entity.OrderItem;
 import com.ecobazaarx.entity.Order;
 import com.ecobazaarx.entity.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,10 +20,19 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     // Find order items by product
     List<OrderItem> findByProduct(Product product);
     
-    // Get most popular products
-    @Query("SELECT oi.product, SUM(oi.quantity) as totalSold FROM OrderItem oi " +
-           "GROUP BY oi.product ORDER BY totalSold DESC")
-    List<Object[]> findMostPopularProducts();
+    /**
+     * Best-selling products by units, ids only: the database returns just
+     * the top rows of the pageable, and the products are loaded separately.
+     * Columns: [productId LONG, totalSold LONG]
+     */
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi " +
+           "GROUP BY oi.product.id ORDER BY SUM(oi.quantity) DESC, oi.product.id")
+    List<Object[]> findTopSellingProductIds(Pageable pageable);
+    
+    // Next batch of order lines still holding an inline data URI, for the blob backfill
+    @Query("SELECT oi.id FROM OrderItem oi WHERE oi.id > :afterId AND oi.productImageKey IS NULL " +
+           "AND oi.productImage LIKE 'data:%' ORDER BY oi.id")
+    List<Long> findIdsWithInlineImage(@Param("afterId") Long afterId, Pageable pageable);
     
     // Calculate total quantity sold for a product
     @Query("SELECT SUM(oi.quantity) FROM OrderItem oi WHERE oi.product = :product")
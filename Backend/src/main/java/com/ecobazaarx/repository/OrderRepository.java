@@ -6,6 +6,7 @@ import com.ecobazaarx.entity.OrderStatus;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -18,12 +19,37 @@ import java.util.Optional;
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    // ── Fetch plans ───────────────────────────────────────────────────────────
+    // Unpaged list reads load each order's items in the same query through the
+    // Order.withItems graph; OrderMapper touches every item, so without it each
+    // order cost one more SELECT. Paged reads cannot join-fetch a collection
+    // (Hibernate would paginate in memory); they rely on
+    // hibernate.default_batch_fetch_size to load items for a whole page at once.
+
+    @EntityGraph(Order.WITH_ITEMS)
     List<Order> findByUserOrderByOrderDateDesc(User user);
 
     Page<Order> findByUserOrderByOrderDateDesc(User user, Pageable pageable);
 
+    // ── Keyset pagination ─────────────────────────────────────────────────────
+
+    /** First page of a user's order history, newest first, without a COUNT query. */
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findFirstPageByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /** Orders strictly older than the given (orderDate, id) key. */
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId " +
+           "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findPageByUserIdAfter(@Param("userId") Long userId,
+                                      @Param("orderDate") LocalDateTime orderDate,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+
     Optional<Order> findByTrackingNumber(String trackingNumber);
 
+    @EntityGraph(Order.WITH_ITEMS)
     List<Order> findByStatusOrderByOrderDateDesc(OrderStatus status);
 
     List<Order> findByUserAndStatusOrderByOrderDateDesc(User user, OrderStatus status);
@@ -33,6 +59,7 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findOrdersByDateRange(@Param("startDate") LocalDateTime startDate,
                                      @Param("endDate") LocalDateTime endDate);
 
+    @EntityGraph(Order.WITH_ITEMS)
     @Query("SELECT o FROM Order o WHERE o.user = :user AND o.orderDate >= :sinceDate " +
            "ORDER BY o.orderDate DESC")
     List<Order> findRecentOrdersByUser(@Param("user") User user,
@@ -62,6 +89,7 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
            "(com.ecobazaarx.entity.OrderStatus.CANCELLED, com.ecobazaarx.entity.OrderStatus.RETURNED)")
     Long countTotalItemsByUser(@Param("user") User user);
 
+    @EntityGraph(Order.WITH_ITEMS)
     @Query("SELECT DISTINCT o FROM Order o " +
            "JOIN o.orderItems oi " +
            "JOIN oi.product p " +
@@ -77,33 +105,7 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findOrdersBySellerId(@Param("sellerId") Long sellerId, Pageable pageable);
 
     // ── Carbon Analytics Queries ──────────────────────────────────────────────
-
-    /**
-     * Monthly emissions trend for the last 6 months.
-     *
-     * LIMIT is hardcoded in SQL (not a named param, not Pageable) because:
-     *  - Spring Data JPA named params don't bind inside LIMIT clauses.
-     *  - Using Pageable with a native query causes Spring/Hibernate to wrap the
-     *    SQL in a derived-table subquery, which breaks DATE_FORMAT + ORDER BY
-     *    in MySQL and produces a 400 Bad Request at runtime.
-     *
-     * GROUP BY repeats the full expression (not the alias) to avoid SQL_SYNTAX errors.
-     *
-     * Columns returned: [month VARCHAR "YYYY-MM", emissions DOUBLE, order_count BIGINT]
-     *
-     * NOTE: DATE_FORMAT is MySQL-specific; for PostgreSQL use TO_CHAR(o.order_date,'YYYY-MM').
-     */
-    @Query(value =
-           "SELECT DATE_FORMAT(o.order_date, '%Y-%m') AS month, " +
-           "       COALESCE(SUM(o.total_co2_footprint), 0) AS emissions, " +
-           "       COUNT(o.id) AS order_count " +
-           "FROM orders o " +
-           "WHERE o.status NOT IN ('CANCELLED', 'RETURNED') " +
-           "GROUP BY DATE_FORMAT(o.order_date, '%Y-%m') " +
-           "ORDER BY DATE_FORMAT(o.order_date, '%Y-%m') DESC " +
-           "LIMIT 6",
-           nativeQuery = true)
-    List<Object[]> getMonthlyEmissions();
+    // Per-user and per-month totals are kept in order_carbon_rollups
 
     /** Total CO2 footprint across all non-cancelled orders. */
     @Query("SELECT COALESCE(SUM(o.totalCO2Footprint), 0) FROM Order o " +
@@ -111,38 +113,29 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
            "(com.ecobazaarx.entity.OrderStatus.CANCELLED, com.ecobazaarx.entity.OrderStatus.RETURNED)")
     Double getTotalOrderCO2();
 
-    /** Total number of non-cancelled orders (used in analytics overview). */
-    @Query("SELECT COUNT(o) FROM Order o " +
-           "WHERE o.status NOT IN " +
-           "(com.ecobazaarx.entity.OrderStatus.CANCELLED, com.ecobazaarx.entity.OrderStatus.RETURNED)")
-    long countActiveOrders();
-
-    // ── Per-user carbon analytics ─────────────────────────────────────────────
+    // ── Emission time series (rebuild of EmissionSeries) ──────────────────────
 
     /**
-     * Returns one row per user with their total CO2 footprint from orders.
-     * Columns: [userId LONG, userName STRING, totalCO2 DOUBLE, orderCount LONG, avgEcoScore DOUBLE]
+     * Counted orders per calendar day.
+     * Columns: [year INT, month INT, day INT, co2, revenue, orderCount LONG]
      */
-    @Query("SELECT o.user.id, o.user.name, " +
-           "COALESCE(SUM(o.totalCO2Footprint), 0), " +
-           "COUNT(o), " +
-           "COALESCE(AVG(o.totalEcoScore), 0) " +
+    @Query("SELECT year(o.orderDate), month(o.orderDate), day(o.orderDate), " +
+           "COALESCE(SUM(o.totalCO2Footprint), 0), COALESCE(SUM(o.totalAmount), 0), COUNT(o) " +
            "FROM Order o " +
            "WHERE o.status NOT IN " +
            "(com.ecobazaarx.entity.OrderStatus.CANCELLED, com.ecobazaarx.entity.OrderStatus.RETURNED) " +
-           "GROUP BY o.user.id, o.user.name " +
-           "ORDER BY SUM(o.totalCO2Footprint) DESC")
-    List<Object[]> getCarbonByUser();
+           "GROUP BY year(o.orderDate), month(o.orderDate), day(o.orderDate)")
+    List<Object[]> sumCountedOrdersByDay();
 
     /**
-     * Total CO2 footprint from orders (sum of all non-cancelled order CO2).
-     * Already exists as getTotalOrderCO2() above — this alias is for clarity.
+     * Counted orders per hour, for orders placed at or after {@code since}.
+     * Columns: [year INT, month INT, day INT, hour INT, co2, revenue, orderCount LONG]
      */
-    @Query("SELECT COALESCE(SUM(o.totalCO2Footprint), 0), " +
-           "COUNT(o), " +
-           "COALESCE(AVG(o.totalCO2Footprint), 0) " +
+    @Query("SELECT year(o.orderDate), month(o.orderDate), day(o.orderDate), hour(o.orderDate), " +
+           "COALESCE(SUM(o.totalCO2Footprint), 0), COALESCE(SUM(o.totalAmount), 0), COUNT(o) " +
            "FROM Order o " +
-           "WHERE o.status NOT IN " +
-           "(com.ecobazaarx.entity.OrderStatus.CANCELLED, com.ecobazaarx.entity.OrderStatus.RETURNED)")
-    List<Object[]> getOrderCarbonOverview();
-}
\ No newline at end of file
+           "WHERE o.orderDate >= :since AND o.status NOT IN " +
+           "(com.ecobazaarx.entity.OrderStatus.CANCELLED, com.ecobazaarx.entity.OrderStatus.RETURNED) " +
+           "GROUP BY year(o.orderDate), month(o.orderDate), day(o.orderDate), hour(o.orderDate)")
+    List<Object[]> sumCountedOrdersByHour(@Param("since") LocalDateTime since);
+}
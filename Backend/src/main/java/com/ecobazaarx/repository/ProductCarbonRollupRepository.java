@@ -0,0 +1,53 @@
+package com.ecobazaarx.repository;
+
+import com.ecobazaarx.entity.ProductCarbonRollup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Reads of the product carbon rollups. Writes go through
+ * {@link CarbonRollupJdbcRepository}.
+ */
+@Repository
+public interface ProductCarbonRollupRepository extends JpaRepository<ProductCarbonRollup, Long> {
+
+    /**
+     * One row per product type with active products, highest emitters first.
+     * Columns: [type, sumMaterialCO2, sumShippingCO2, productCount,
+     *           ecoScoreSum, ecoScoreCount, highEmissionCount]
+     */
+    @Query("SELECT r.groupKey, r.materialCO2, r.shippingCO2, r.productCount, " +
+           "r.ecoScoreSum, r.ecoScoreCount, r.highEmissionCount " +
+           "FROM ProductCarbonRollup r " +
+           "WHERE r.dimension = 'type' AND r.productCount > 0 " +
+           "ORDER BY (r.materialCO2 + r.shippingCO2) DESC")
+    List<Object[]> getCarbonByType();
+
+    String SELLER_LEADERBOARD =
+            "SELECT u.id AS id, u.name AS name, r.materialCO2 AS materialCO2, r.shippingCO2 AS shippingCO2, " +
+            "r.materialCO2 + r.shippingCO2 AS totalCO2, r.productCount AS productCount, " +
+            "COALESCE(r.ecoScoreSum / NULLIF(r.ecoScoreCount, 0), 0) AS avgEcoScore " +
+            "FROM ProductCarbonRollup r JOIN User u ON u.id = CAST(r.groupKey AS Long) " +
+            "WHERE r.dimension = 'seller' AND r.productCount > 0";
+
+    /**
+     * One page of sellers with active products, in the pageable's order;
+     * sort by the column aliases (totalCO2, materialCO2, shippingCO2,
+     * productCount, avgEcoScore, name, id).
+     * Columns: [sellerId LONG, sellerName STRING, sumMaterialCO2, sumShippingCO2,
+     *           totalCO2, productCount LONG, avgEcoScore]
+     */
+    @Query(value = SELLER_LEADERBOARD,
+           countQuery = "SELECT COUNT(r) FROM ProductCarbonRollup r " +
+                        "WHERE r.dimension = 'seller' AND r.productCount > 0")
+    Page<Object[]> findSellerLeaderboard(Pageable pageable);
+
+    /** The first rows of {@link #findSellerLeaderboard}, without the count query. */
+    @Query(SELLER_LEADERBOARD)
+    List<Object[]> findSellerLeaderboardTop(Pageable pageable);
+}
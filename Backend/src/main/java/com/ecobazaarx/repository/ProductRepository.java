@@ -1,30 +1,108 @@
 package com.ecobazaarx.repository;
 
 import com.ecobazaarx.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
-    List<Product> findByStatusOrderByCreatedDateDesc(String status);
+    /**
+     * Select list for {@link ProductSummary} projections. Every column except
+     * the LONGTEXT image; hasImage is evaluated by the database so the image
+     * itself never leaves MySQL.
+     */
+    String SUMMARY_SELECT =
+            "SELECT p.id AS id, p.name AS name, p.type AS type, p.price AS price, " +
+            "p.ecoScore AS ecoScore, p.footprint AS footprint, " +
+            "p.materialCO2 AS materialCO2, p.shippingCO2 AS shippingCO2, " +
+            "p.createdDate AS createdDate, p.stockQuantity AS stockQuantity, " +
+            "p.description AS description, p.status AS status, p.rating AS rating, " +
+            "p.sales AS sales, s.id AS sellerId, s.name AS sellerName, p.imageKey AS imageKey, " +
+            "CASE WHEN p.image IS NULL OR p.image = '' THEN false ELSE true END AS hasImage " +
+            "FROM Product p JOIN p.seller s ";
+
+    /**
+     * Text columns of every active product, used to (re)build the in-memory
+     * search index. Replaces the old LIKE '%term%' search query, which forced
+     * a full table scan on every keystroke.
+     *
+     * Columns: [id LONG, name STRING, type STRING, description STRING]
+     */
+    @Query("SELECT p.id, p.name, p.type, p.description FROM Product p WHERE p.status = 'active'")
+    List<Object[]> findActiveSearchDocuments();
+
+    // ── Image-free list projections ───────────────────────────────────────────
+
+    @Query(SUMMARY_SELECT + "WHERE p.status = :status ORDER BY p.createdDate DESC")
+    List<ProductSummary> findSummariesByStatus(@Param("status") String status);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.status = :status ORDER BY p.createdDate DESC",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.status = :status")
+    Page<ProductSummary> findSummariesByStatus(@Param("status") String status, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE p.type = :type AND p.status = :status ORDER BY p.name ASC")
+    List<ProductSummary> findSummariesByTypeAndStatus(@Param("type") String type,
+                                                      @Param("status") String status);
 
-    List<Product> findByTypeAndStatusOrderByNameAsc(String type, String status);
+    /** Unordered; callers re-sort by their own ranking (e.g. search relevance). */
+    @Query(SUMMARY_SELECT + "WHERE p.id IN :ids AND p.status = 'active'")
+    List<ProductSummary> findActiveSummariesByIdIn(@Param("ids") Collection<Long> ids);
 
-    @Query("SELECT p FROM Product p WHERE p.status = 'active' AND (" +
-           "LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(p.type) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    List<Product> searchProducts(@Param("searchTerm") String searchTerm);
+    /** Loader of ProductCache: any status (carts show inactive products as unavailable). */
+    @Query(SUMMARY_SELECT + "WHERE p.id = :id")
+    Optional<ProductSummary> findSummaryById(@Param("id") Long id);
 
-    Page<Product> findByStatusOrderByCreatedDateDesc(String status, Pageable pageable);
+    /** Bulk loader of ProductCache, any status, unordered. */
+    @Query(SUMMARY_SELECT + "WHERE p.id IN :ids")
+    List<ProductSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Image columns alone, for GET /api/products/{id}/image.
+     * Columns: [imageKey STRING, image STRING]
+     */
+    @Query("SELECT p.imageKey, p.image FROM Product p WHERE p.id = :id")
+    List<Object[]> findImageById(@Param("id") Long id);
+
+    /** Next batch of products still holding an inline data URI, for the blob backfill. */
+    @Query("SELECT p.id FROM Product p WHERE p.id > :afterId AND p.imageKey IS NULL " +
+           "AND p.image LIKE 'data:%' ORDER BY p.id")
+    List<Long> findIdsWithInlineImage(@Param("afterId") Long afterId, Pageable pageable);
+
+    // ── Keyset pagination ─────────────────────────────────────────────────────
+
+    /**
+     * First page of a (createdDate, id) keyset listing. Declared with a List
+     * return type so Spring Data applies the limit without a COUNT query.
+     */
+    @Query(SUMMARY_SELECT + "WHERE p.status = :status " +
+           "ORDER BY p.createdDate DESC, p.id DESC")
+    List<ProductSummary> findFirstPageByStatus(@Param("status") String status, Pageable pageable);
+
+    /**
+     * Rows strictly after the given (createdDate, id) key. Served by the
+     * (status, created_date, id) index, so any page costs the same as page one.
+     */
+    @Query(SUMMARY_SELECT + "WHERE p.status = :status " +
+           "AND (p.createdDate < :createdDate OR (p.createdDate = :createdDate AND p.id < :id)) " +
+           "ORDER BY p.createdDate DESC, p.id DESC")
+    List<ProductSummary> findPageByStatusAfter(@Param("status") String status,
+                                        @Param("createdDate") LocalDateTime createdDate,
+                                        @Param("id") Long id,
+                                        Pageable pageable);
 
     @Query("SELECT p FROM Product p WHERE p.status = :status AND " +
            "p.price BETWEEN :minPrice AND :maxPrice ORDER BY p.price ASC")
@@ -72,53 +150,16 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     Page<Product> findBySellerIdAndStatus(Long sellerId, String status, Pageable pageable);
 
+    // Query-cached; Hibernate drops the result whenever products are written through JPA
     @Query("SELECT DISTINCT p.type FROM Product p WHERE p.status = 'active' ORDER BY p.type")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "product-types")
+    })
     List<String> findDistinctActiveTypes();
 
     // ── Carbon Analytics Queries ──────────────────────────────────────────────
-
-    /**
-     * Aggregates material CO2, shipping CO2, product count, and average eco-score
-     * per product type in a single query — replaces the old approach of fetching
-     * all products and doing the math in JavaScript on the frontend.
-     *
-     * Columns returned: [type, sumMaterialCO2, sumShippingCO2, count, avgEcoScore]
-     */
-    @Query("SELECT p.type, " +
-           "       COALESCE(SUM(p.materialCO2), 0), " +
-           "       COALESCE(SUM(p.shippingCO2), 0), " +
-           "       COUNT(p), " +
-           "       COALESCE(AVG(p.ecoScore), 0) " +
-           "FROM Product p " +
-           "WHERE p.status = 'active' " +
-           "GROUP BY p.type " +
-           "ORDER BY (SUM(p.materialCO2) + SUM(p.shippingCO2)) DESC")
-    List<Object[]> getCarbonByType();
-
-    /**
-     * Platform-wide CO2 totals and eco-score average in one round-trip.
-     * Columns: [sumMaterialCO2, sumShippingCO2, avgEcoScore, count]
-     *
-     * Return type MUST be List<Object[]> — Spring Data JPA always returns a
-     * List even for aggregate-only queries with no GROUP BY. Declaring the
-     * return type as Object[] makes Spring try to coerce the List itself into
-     * the array slots, so overview[0] ends up being an Object[] (the first row)
-     * instead of the first numeric column → NumberFormatException at runtime.
-     */
-    @Query("SELECT COALESCE(SUM(p.materialCO2), 0), " +
-           "       COALESCE(SUM(p.shippingCO2), 0), " +
-           "       COALESCE(AVG(p.ecoScore), 0), " +
-           "       COUNT(p) " +
-           "FROM Product p WHERE p.status = 'active'")
-    List<Object[]> getOverallCarbonStats();
-
-    /**
-     * Count of active products whose combined CO2 exceeds the given threshold.
-     */
-    @Query("SELECT COUNT(p) FROM Product p " +
-           "WHERE p.status = 'active' " +
-           "AND (COALESCE(p.materialCO2, 0) + COALESCE(p.shippingCO2, 0)) > :threshold")
-    long countHighEmissionProducts(@Param("threshold") double threshold);
+    // Per-type and per-seller totals are kept in product_carbon_rollups
 
     /**
      * Top N products ordered by total CO2 descending (highest emitters first).
@@ -139,43 +180,29 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     // ── Recommendation Queries ────────────────────────────────────────────────
 
-    @Query("SELECT p FROM Product p WHERE p.status = 'active' " +
+    /** Type and footprint of the product recommendations are computed for. Columns: [type, footprint] */
+    @Query("SELECT p.type, p.footprint FROM Product p WHERE p.id = :id")
+    List<Object[]> findTypeAndFootprintById(@Param("id") Long id);
+
+    @Query(SUMMARY_SELECT + "WHERE p.status = 'active' " +
            "AND p.id <> :excludeId " +
            "AND p.type = :type " +
            "AND (:minFootprint IS NULL OR p.footprint >= :minFootprint) " +
            "AND (:maxFootprint IS NULL OR p.footprint <= :maxFootprint) " +
            "ORDER BY p.ecoScore DESC, p.footprint ASC")
-    List<Product> findRecommendedProducts(
+    List<ProductSummary> findRecommendedProducts(
             @Param("excludeId") Long excludeId,
             @Param("type") String type,
             @Param("minFootprint") BigDecimal minFootprint,
             @Param("maxFootprint") BigDecimal maxFootprint,
             Pageable pageable);
 
-    @Query("SELECT p FROM Product p WHERE p.status = 'active' " +
+    @Query(SUMMARY_SELECT + "WHERE p.status = 'active' " +
            "AND p.id <> :excludeId " +
            "AND p.type = :type " +
            "ORDER BY p.ecoScore DESC, p.sales DESC")
-    List<Product> findRecommendedProductsByTypeOnly(
+    List<ProductSummary> findRecommendedProductsByTypeOnly(
             @Param("excludeId") Long excludeId,
             @Param("type") String type,
             Pageable pageable);
-
-    // ── Per-seller carbon analytics ───────────────────────────────────────────
-
-    /**
-     * Returns one row per seller with aggregated carbon data across their active products.
-     * Columns: [sellerId LONG, sellerName STRING, sumMaterialCO2 DOUBLE,
-     *           sumShippingCO2 DOUBLE, productCount LONG, avgEcoScore DOUBLE]
-     */
-    @Query("SELECT p.seller.id, p.seller.name, " +
-           "COALESCE(SUM(p.materialCO2), 0), " +
-           "COALESCE(SUM(p.shippingCO2), 0), " +
-           "COUNT(p), " +
-           "COALESCE(AVG(p.ecoScore), 0) " +
-           "FROM Product p " +
-           "WHERE p.status = 'active' " +
-           "GROUP BY p.seller.id, p.seller.name " +
-           "ORDER BY (SUM(p.materialCO2) + SUM(p.shippingCO2)) DESC")
-    List<Object[]> getCarbonBySeller();
 }
\ No newline at end of file
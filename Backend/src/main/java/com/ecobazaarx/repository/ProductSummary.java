@@ -0,0 +1,34 @@
+package com.ecobazaarx.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Closed projection of {@link com.ecobazaarx.entity.Product} for list views.
+ *
+ * Carries everything the catalog pages render except the {@code image}
+ * column — a LONGTEXT that may still hold a legacy base64 data URI of
+ * hundreds of KB per row. List queries select these columns explicitly so
+ * MySQL never reads or ships the image; clients fetch it separately from
+ * GET /api/images/{key} or GET /api/products/{id}/image.
+ */
+public interface ProductSummary extends CartProductView {
+    Long getId();
+    String getName();
+    String getType();
+    BigDecimal getPrice();
+    BigDecimal getEcoScore();
+    BigDecimal getFootprint();
+    BigDecimal getMaterialCO2();
+    BigDecimal getShippingCO2();
+    LocalDateTime getCreatedDate();
+    Integer getStockQuantity();
+    String getDescription();
+    String getStatus();
+    BigDecimal getRating();
+    Integer getSales();
+    Long getSellerId();
+    String getSellerName();
+    String getImageKey();
+    boolean getHasImage();
+}
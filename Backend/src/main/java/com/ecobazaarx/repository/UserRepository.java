@@ -1,15 +1,33 @@
 package com.ecobazaarx.repository;
 
 import com.ecobazaarx.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+	// Query-cached: called at sign-in, and by the JWT filter in database auth mode
+	@QueryHints({
+	        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+	        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "user-by-email")
+	})
 	Optional<User> findByEmail(String email);
     Optional<User> findByName(String name);
     Boolean existsByEmail(String email);
     Boolean existsByName(String name);
+
+    /**
+     * Status and role of one user, for UserStatusCache (empty if none).
+     * Columns: [status, role]
+     */
+    @Query("SELECT u.status, u.role FROM User u WHERE u.id = :id")
+    List<Object[]> findStatusAndRoleById(@Param("id") Long id);
 }
\ No newline at end of file
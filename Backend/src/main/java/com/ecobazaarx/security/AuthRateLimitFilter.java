@@ -0,0 +1,59 @@
+package com.ecobazaarx.security;
+
+import com.ecobazaarx.exception.TooManyRequestsException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Applies the per-IP limit of {@link AuthRateLimiter} to /api/auth/**, before any other work.
+ *
+ * The IP is {@code getRemoteAddr()}. Behind a load balancer that is the balancer's
+ * address, which would put every client in one bucket, so server.forward-headers-strategy
+ * has Tomcat replace it with the client address from X-Forwarded-For. Tomcat only takes
+ * that header from trusted proxies (server.tomcat.remoteip.internal-proxies), so clients
+ * connecting directly cannot pick their own bucket.
+ */
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private AuthRateLimiter authRateLimiter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getServletPath().startsWith("/api/auth/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            authRateLimiter.checkIp(request.getRemoteAddr());
+        } catch (TooManyRequestsException e) {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+
+            final Map<String, Object> body = new HashMap<>();
+            body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+            body.put("error", "Too Many Requests");
+            body.put("message", e.getMessage());
+            body.put("path", request.getServletPath());
+
+            new ObjectMapper().writeValue(response.getOutputStream(), body);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,44 @@
+package com.ecobazaarx.security;
+
+import com.ecobazaarx.exception.TooManyRequestsException;
+import com.ecobazaarx.service.TokenBucketRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Token-bucket limits on the auth endpoints: per client IP for everything
+ * under /api/auth (AuthRateLimitFilter), and per email for sign-in and
+ * sign-up, so one account cannot be brute-forced from many addresses.
+ */
+@Component
+public class AuthRateLimiter {
+
+    private final TokenBucketRateLimiter byIp;
+    private final TokenBucketRateLimiter byEmail;
+
+    public AuthRateLimiter(@Value("${app.auth.rate-limit.ip-capacity:30}") int ipCapacity,
+                           @Value("${app.auth.rate-limit.ip-period:PT1M}") Duration ipPeriod,
+                           @Value("${app.auth.rate-limit.email-capacity:5}") int emailCapacity,
+                           @Value("${app.auth.rate-limit.email-period:PT1M}") Duration emailPeriod,
+                           @Value("${app.auth.rate-limit.max-keys:100000}") long maxKeys) {
+        this.byIp = new TokenBucketRateLimiter(ipCapacity, ipPeriod, maxKeys);
+        this.byEmail = new TokenBucketRateLimiter(emailCapacity, emailPeriod, maxKeys);
+    }
+
+    public void checkIp(String ip) {
+        long retryAfter = byIp.tryAcquire(ip);
+        if (retryAfter > 0) {
+            throw new TooManyRequestsException("Too many requests, please retry later", retryAfter);
+        }
+    }
+
+    public void checkEmail(String email) {
+        long retryAfter = byEmail.tryAcquire(email.trim().toLowerCase(Locale.ROOT));
+        if (retryAfter > 0) {
+            throw new TooManyRequestsException("Too many attempts for this account, please retry later", retryAfter);
+        }
+    }
+}
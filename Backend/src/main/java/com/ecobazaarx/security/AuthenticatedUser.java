@@ -0,0 +1,34 @@
+package com.ecobazaarx.security;
+
+import com.ecobazaarx.entity.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal of a JWT-authenticated request. Built from the token's claims
+ * (see AuthTokenFilter), so it only carries what the token does; load the
+ * User when more is needed. {@code tokenId} (the jti) and
+ * {@code tokenExpiresAt} identify the token itself, for sign-out; tokenId
+ * is null on tokens issued before tokens had one.
+ */
+public record AuthenticatedUser(Long id, String email, Role role, String tokenId, Instant tokenExpiresAt)
+        implements Principal {
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+}
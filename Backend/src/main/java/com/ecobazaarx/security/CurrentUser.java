@@ -0,0 +1,18 @@
+package com.ecobazaarx.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a controller parameter to the authenticated user: {@code Long} for
+ * the user id, or {@link AuthenticatedUser} for id, email and role. Resolved
+ * from the principal AuthTokenFilter set, so the token is not parsed again.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
@@ -3,6 +3,7 @@ package com.ecobazaarx.security;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -40,6 +41,11 @@ public class WebSecurityConfig {
         return new AuthTokenFilter();
     }
 
+    @Bean
+    AuthRateLimitFilter authRateLimitFilter() {
+        return new AuthRateLimitFilter();
+    }
+
 
     
     @Bean
@@ -76,11 +82,14 @@ public class WebSecurityConfig {
                 .requestMatchers("/api/auth/**","/api/contact").permitAll()
                 .requestMatchers("/api/test/**").permitAll()
                 .requestMatchers("/api/chat").permitAll()
+                // product images are loaded by <img> tags, which cannot send the JWT header
+                .requestMatchers(HttpMethod.GET, "/api/products/*/image", "/api/images/*").permitAll()
                 .anyRequest().authenticated()
             );
 
         http.authenticationProvider(authenticationProvider());
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(authRateLimitFilter(), AuthTokenFilter.class);
 
         return http.build();
     }
@@ -100,6 +109,7 @@ CorsConfigurationSource corsConfigurationSource() {
     ));
     configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
     configuration.setAllowedHeaders(Arrays.asList("*"));
+    configuration.setExposedHeaders(Arrays.asList("Idempotent-Replayed"));
     configuration.setAllowCredentials(true);
 
     UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
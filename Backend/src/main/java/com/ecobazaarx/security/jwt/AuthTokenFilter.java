@@ -1,6 +1,7 @@
 package com.ecobazaarx.security.jwt;
 
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,17 +9,30 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.ecobazaarx.entity.Status;
+import com.ecobazaarx.entity.User;
+import com.ecobazaarx.security.AuthenticatedUser;
+import com.ecobazaarx.service.TokenRevocationService;
 import com.ecobazaarx.service.UserDetailsServiceImpl;
+import com.ecobazaarx.service.UserStatusCache;
 
 import java.io.IOException;
 
+/**
+ * Authenticates requests carrying a valid JWT. In the default "claims" mode
+ * ({@code app.auth.mode}) the principal is built from the verified token,
+ * with status and role taken from UserStatusCache, so a request does no SQL
+ * unless that cache misses. "database" mode loads the user by email on every
+ * request, as before. Either way an INACTIVE user is not authenticated, nor
+ * is a revoked token (TokenRevocationService, checked in memory).
+ */
 public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtils jwtUtils;
@@ -26,6 +40,15 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private UserStatusCache userStatusCache;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Value("${app.auth.mode:claims}")
+    private String authMode;
+
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
     @Override
@@ -33,15 +56,19 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
+            if (claims != null && !tokenRevocationService.isRevoked(
+                    claims.getId(), JwtUtils.getUserId(claims), claims.getIssuedAt())) {
+                AuthenticatedUser principal = "database".equalsIgnoreCase(authMode)
+                        ? fromDatabase(claims)
+                        : fromClaims(claims);
+                if (principal != null) {
+                    UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e);
@@ -50,6 +77,29 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private AuthenticatedUser fromClaims(Claims claims) {
+        Long userId = JwtUtils.getUserId(claims);
+        if (userId == null) {
+            // Issued before tokens carried the user id
+            return fromDatabase(claims);
+        }
+        UserStatusCache.UserState state = userStatusCache.get(userId);
+        if (state == null || !state.isActive()) {
+            return null;
+        }
+        return new AuthenticatedUser(userId, claims.getSubject(), state.role(),
+                claims.getId(), claims.getExpiration().toInstant());
+    }
+
+    private AuthenticatedUser fromDatabase(Claims claims) {
+        User user = (User) userDetailsService.loadUserByUsername(claims.getSubject());
+        if (user.getStatus() == Status.INACTIVE) {
+            return null;
+        }
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole(),
+                claims.getId(), claims.getExpiration().toInstant());
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
@@ -59,4 +109,4 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
         return null;
     }
-}
\ No newline at end of file
+}
@@ -1,39 +1,103 @@
 package com.ecobazaarx.service;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.ecobazaarx.dto.CarbonAnalyticsDto;
 import com.ecobazaarx.entity.OrderStatus;
 import com.ecobazaarx.entity.Product;
 import com.ecobazaarx.mapper.ProductMapper;
+import com.ecobazaarx.repository.OrderCarbonRollupRepository;
 import com.ecobazaarx.repository.OrderItemRepository;
 import com.ecobazaarx.repository.OrderRepository;
+import com.ecobazaarx.repository.ProductCarbonRollupRepository;
 import com.ecobazaarx.repository.ProductRepository;
+import com.ecobazaarx.repository.ProductSummary;
 
 @Service
 public class AnalyticsService {
 
+    /** Upper bound for the popular products limit. */
+    private static final int MAX_POPULAR_PRODUCTS = 100;
+    /** Upper bound for leaderboard page sizes. */
+    private static final int MAX_LEADERBOARD_PAGE_SIZE = 100;
+    /** Rows the database may have to rank past for one leaderboard page (page * size). */
+    private static final int MAX_LEADERBOARD_DEPTH = 10_000;
+
+    private static final Set<String> USER_SORTS = Set.of("totalCO2", "orderCount", "avgEcoScore", "name");
+    private static final Set<String> SELLER_SORTS =
+            Set.of("totalCO2", "materialCO2", "shippingCO2", "productCount", "avgEcoScore", "name");
+
     private final OrderRepository     orderRepository;
     private final ProductRepository   productRepository;
     private final OrderItemRepository orderItemRepository;
     private final ProductMapper       productMapper;
+    private final ProductCache        productCache;
+    private final ProductCarbonRollupRepository productRollups;
+    private final OrderCarbonRollupRepository   orderRollups;
+    private final TransactionTemplate readOnly;
+    private final int topN;
+
+    // Bounded: each running section holds a pooled connection
+    private final ThreadPoolExecutor analyticsPool;
+    private final StaleWhileRevalidateCache<CarbonAnalyticsDto> carbonAnalytics;
 
     public AnalyticsService(OrderRepository orderRepository,
                             ProductRepository productRepository,
                             OrderItemRepository orderItemRepository,
-                            ProductMapper productMapper) {
+                            ProductMapper productMapper,
+                            ProductCache productCache,
+                            ProductCarbonRollupRepository productRollups,
+                            OrderCarbonRollupRepository orderRollups,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.analytics.threads:4}") int threads,
+                            @Value("${app.analytics.carbon.ttl:PT1M}") Duration carbonTtl,
+                            @Value("${app.analytics.carbon.max-stale:PT10M}") Duration carbonMaxStale,
+                            @Value("${app.analytics.carbon.top-n:10}") int topN) {
         this.orderRepository     = orderRepository;
         this.productRepository   = productRepository;
         this.orderItemRepository = orderItemRepository;
         this.productMapper       = productMapper;
+        this.productCache        = productCache;
+        this.productRollups      = productRollups;
+        this.orderRollups        = orderRollups;
+        this.readOnly            = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.topN                = Math.max(1, topN);
+        AtomicInteger counter = new AtomicInteger();
+        // Caller runs a section itself rather than queueing without bound
+        this.analyticsPool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(32),
+                task -> {
+                    Thread thread = new Thread(task, "analytics-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.carbonAnalytics = new StaleWhileRevalidateCache<>(this::computeCarbonAnalytics,
+                carbonTtl, carbonMaxStale);
     }
 
     // ── Dashboard stats ───────────────────────────────────────────────────────
@@ -58,26 +122,38 @@ public class AnalyticsService {
 
     // ── Popular products ──────────────────────────────────────────────────────
 
+    /**
+     * The {@code limit} best-selling products by units, all time. The
+     * database ranks product ids and returns only the top rows; the products
+     * themselves come from ProductCache as image-free summaries.
+     */
     @Transactional(readOnly = true)
     public List<Map<String, Object>> getPopularProducts(int limit) {
-        List<Object[]> rows = orderItemRepository.findMostPopularProducts();
-        return rows.stream()
-                .limit(limit)
-                .map(row -> {
-                    Map<String, Object> productStats = new HashMap<>();
-                    productStats.put("product",   productMapper.toDto((Product) row[0]));
-                    productStats.put("totalSold", row[1]);
-                    return productStats;
-                })
-                .collect(Collectors.toList());
+        int size = Math.max(1, Math.min(limit, MAX_POPULAR_PRODUCTS));
+        List<Object[]> rows = orderItemRepository.findTopSellingProductIds(PageRequest.of(0, size));
+        Map<Long, ProductSummary> products = productCache.getAll(
+                rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList()));
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            ProductSummary product = products.get((Long) row[0]);
+            if (product == null) {
+                continue;   // deleted since the query ran
+            }
+            Map<String, Object> productStats = new HashMap<>();
+            productStats.put("product",   productMapper.toDto(product));
+            productStats.put("totalSold", row[1]);
+            result.add(productStats);
+        }
+        return result;
     }
 
     // ── Carbon analytics ──────────────────────────────────────────────────────
 
     /**
-     * Builds the full carbon analytics payload using a small number of
-     * aggregation queries instead of loading every product and order into
-     * memory and computing the numbers in Java / JavaScript.
+     * Builds the full carbon analytics payload from the carbon rollup tables
+     * (see CarbonRollupService), one row per type, seller, user and month,
+     * instead of loading every product and order into memory and computing
+     * the numbers in Java / JavaScript.
      *
      * Before this change the frontend:
      *  1. fetched ALL products  (GET /api/products)
@@ -85,22 +161,69 @@ public class AnalyticsService {
      *  3. ran every calculation (sums, averages, ranking) inside useMemo()
      *
      * Now a single call to GET /api/analytics/carbon returns the finished result.
+     *
+     * The payload is cached (app.analytics.carbon.ttl): concurrent dashboards
+     * share one computation, and for app.analytics.carbon.max-stale after the
+     * TTL the previous payload is served while a new one is computed.
      */
-    @Transactional(readOnly = true)
     public CarbonAnalyticsDto getCarbonAnalytics() {
-        CarbonAnalyticsDto dto = new CarbonAnalyticsDto();
-
-        // ── 1. Platform-wide totals (one query) ───────────────────────────────
-        // getOverallCarbonStats() returns List<Object[]> — one row, multiple cols.
-        // We must call .get(0) to obtain the actual Object[] row before indexing.
-        List<Object[]> overviewRows = productRepository.getOverallCarbonStats();
-        Object[] overview = (overviewRows != null && !overviewRows.isEmpty())
-                ? overviewRows.get(0)
-                : new Object[]{0, 0, 0, 0L};
-        double totalMaterial = toDouble(overview[0]);
-        double totalShipping = toDouble(overview[1]);
-        double avgEcoScore   = toDouble(overview[2]);
-        long   totalProducts = toLong(overview[3]);
+        return carbonAnalytics.get();
+    }
+
+    /**
+     * Runs the independent sections concurrently on the analytics pool, each
+     * in its own read-only transaction (and so on its own connection), and
+     * assembles the DTO once all have finished. The sections no longer share
+     * one snapshot; each is consistent in itself, which is all the dashboard
+     * needs.
+     */
+    private CompletableFuture<CarbonAnalyticsDto> computeCarbonAnalytics() {
+        CompletableFuture<List<Object[]>> typeRows = section(productRollups::getCarbonByType);
+        // Only the top emitters; the full rankings are paged through the leaderboards
+        Pageable top = PageRequest.of(0, topN, leaderboardSort(Sort.Direction.DESC, "totalCO2"));
+        CompletableFuture<List<Object[]>> sellerRows = section(() -> productRollups.findSellerLeaderboardTop(top));
+        CompletableFuture<List<Object[]>> userRows = section(() -> orderRollups.findUserLeaderboardTop(top));
+        CompletableFuture<List<Object[]>> monthRows = section(orderRollups::getCarbonByMonth);
+        CompletableFuture<List<CarbonAnalyticsDto.ProductSummary>> topOffenders =
+                section(() -> toSummaries(productRepository.findTopEmitters(PageRequest.of(0, 5))));
+        CompletableFuture<List<CarbonAnalyticsDto.ProductSummary>> ecoFriendly =
+                section(() -> toSummaries(productRepository.findTopEcoFriendly(PageRequest.of(0, 5))));
+
+        return CompletableFuture.allOf(typeRows, sellerRows, userRows, monthRows, topOffenders, ecoFriendly)
+                .thenApply(done -> {
+                    CarbonAnalyticsDto dto = new CarbonAnalyticsDto();
+                    setOverview(dto, typeRows.join());
+                    dto.setEmissionsByType(toEmissionsByType(typeRows.join()));
+                    dto.setTopOffenders(topOffenders.join());
+                    dto.setEcoFriendly(ecoFriendly.join());
+                    setOrderOverview(dto, monthRows.join());
+                    dto.setEmissionsByMonth(toMonthly(monthRows.join()));
+                    dto.setUserCarbonList(toUserCarbon(userRows.join()));
+                    dto.setSellerCarbonList(toSellerCarbon(sellerRows.join()));
+                    return dto;
+                });
+    }
+
+    private <T> CompletableFuture<T> section(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> readOnly.execute(status -> query.get()), analyticsPool);
+    }
+
+    // ── 1. Platform-wide totals: the per-type rollups added up ───────────────
+    private void setOverview(CarbonAnalyticsDto dto, List<Object[]> typeRows) {
+        double totalMaterial = 0;
+        double totalShipping = 0;
+        long   totalProducts = 0;
+        double ecoScoreSum   = 0;
+        long   ecoScoreCount = 0;
+        long   highEmission  = 0;
+        for (Object[] row : typeRows) {
+            totalMaterial += toDouble(row[1]);
+            totalShipping += toDouble(row[2]);
+            totalProducts += toLong(row[3]);
+            ecoScoreSum   += toDouble(row[4]);
+            ecoScoreCount += toLong(row[5]);
+            highEmission  += toLong(row[6]);
+        }
 
         double totalEmissions = totalMaterial + totalShipping;
 
@@ -108,14 +231,13 @@ public class AnalyticsService {
         dto.setTotalShippingCO2(totalShipping);
         dto.setTotalEmissions(totalEmissions);
         dto.setAvgEmissionsPerProduct(totalProducts > 0 ? totalEmissions / totalProducts : 0);
-        dto.setAvgEcoScore(avgEcoScore);
+        dto.setAvgEcoScore(average(ecoScoreSum, ecoScoreCount));
         dto.setTotalProducts(totalProducts);
+        dto.setHighEmissionCount(highEmission);
+    }
 
-        // ── 2. High-emission count (one query) ────────────────────────────────
-        dto.setHighEmissionCount(productRepository.countHighEmissionProducts(10.0));
-
-        // ── 3. Emissions by product type (one query) ──────────────────────────
-        List<Object[]> typeRows = productRepository.getCarbonByType();
+    // ── 3. Emissions by product type ──────────────────────────────────────────
+    private List<CarbonAnalyticsDto.EmissionByType> toEmissionsByType(List<Object[]> typeRows) {
         List<CarbonAnalyticsDto.EmissionByType> byType = new ArrayList<>();
         for (Object[] row : typeRows) {
             byType.add(new CarbonAnalyticsDto.EmissionByType(
@@ -123,81 +245,132 @@ public class AnalyticsService {
                     toDouble(row[1]),
                     toDouble(row[2]),
                     toLong(row[3]),
-                    toDouble(row[4])
+                    average(toDouble(row[4]), toLong(row[5]))
             ));
         }
-        dto.setEmissionsByType(byType);
-
-        // ── 4. Top offenders and eco-friendly (two queries, limited to 5 rows) ─
-        List<Product> topEmitters = productRepository.findTopEmitters(PageRequest.of(0, 5));
-        dto.setTopOffenders(topEmitters.stream()
-                .map(p -> new CarbonAnalyticsDto.ProductSummary(
-                        p.getId(), p.getName(), p.getType(),
-                        toDouble(p.getMaterialCO2()), toDouble(p.getShippingCO2()),
-                        toDouble(p.getEcoScore())))
-                .collect(Collectors.toList()));
+        return byType;
+    }
 
-        List<Product> ecoFriendly = productRepository.findTopEcoFriendly(PageRequest.of(0, 5));
-        dto.setEcoFriendly(ecoFriendly.stream()
+    // ── 4. Top offenders and eco-friendly (limited to 5 rows each) ────────────
+    private List<CarbonAnalyticsDto.ProductSummary> toSummaries(List<Product> products) {
+        return products.stream()
                 .map(p -> new CarbonAnalyticsDto.ProductSummary(
                         p.getId(), p.getName(), p.getType(),
                         toDouble(p.getMaterialCO2()), toDouble(p.getShippingCO2()),
                         toDouble(p.getEcoScore())))
-                .collect(Collectors.toList()));
-
-        // ── 5. Order totals (two queries) ─────────────────────────────────────
-        dto.setTotalOrders(orderRepository.countActiveOrders());
+                .collect(Collectors.toList());
+    }
 
-        // ── 6. Monthly emissions trend (last 6 months, LIMIT hardcoded in SQL) ──
-        List<Object[]> monthlyRows = orderRepository.getMonthlyEmissions();
+    // ── 6. Monthly emissions trend (last 6 months with orders) ───────────────
+    private List<CarbonAnalyticsDto.MonthlyEmission> toMonthly(List<Object[]> monthRows) {
         List<CarbonAnalyticsDto.MonthlyEmission> monthly = new ArrayList<>();
-        for (Object[] row : monthlyRows) {
+        for (Object[] row : monthRows.subList(0, Math.min(6, monthRows.size()))) {
             monthly.add(0, new CarbonAnalyticsDto.MonthlyEmission(   // reverse to chronological order
                     (String) row[0],
                     toDouble(row[1]),
                     toLong(row[2])
             ));
         }
-        dto.setEmissionsByMonth(monthly);
-
-        // ── 7. Order-level CO2 overview ───────────────────────────────────────
-        List<Object[]> orderOverviewRows = orderRepository.getOrderCarbonOverview();
-        if (orderOverviewRows != null && !orderOverviewRows.isEmpty()) {
-            Object[] ov = orderOverviewRows.get(0);
-            dto.setTotalOrderCO2(toDouble(ov[0]));
-            dto.setAvgCO2PerOrder(toDouble(ov[2]));
+        return monthly;
+    }
+
+    // ── 7. Order-level CO2 overview: the per-month rollups added up ──────────
+    private void setOrderOverview(CarbonAnalyticsDto dto, List<Object[]> monthRows) {
+        double totalCO2    = 0;
+        long   totalOrders = 0;
+        for (Object[] row : monthRows) {
+            totalCO2    += toDouble(row[1]);
+            totalOrders += toLong(row[2]);
         }
+        dto.setTotalOrders(totalOrders);
+        dto.setTotalOrderCO2(totalCO2);
+        dto.setAvgCO2PerOrder(average(totalCO2, totalOrders));
+    }
 
-        // ── 8. Per-user carbon footprint ──────────────────────────────────────
-        List<Object[]> userRows = orderRepository.getCarbonByUser();
-        List<CarbonAnalyticsDto.UserCarbonSummary> userList = new ArrayList<>();
-        for (Object[] row : userRows) {
-            userList.add(new CarbonAnalyticsDto.UserCarbonSummary(
-                    toLong(row[0]),
-                    (String) row[1],
-                    toDouble(row[2]),
-                    toLong(row[3]),
-                    toDouble(row[4])
-            ));
+    // ── 8. Per-user carbon footprint (top N) ──────────────────────────────────
+    private List<CarbonAnalyticsDto.UserCarbonSummary> toUserCarbon(List<Object[]> userRows) {
+        return userRows.stream().map(this::toUserSummary).collect(Collectors.toList());
+    }
+
+    private CarbonAnalyticsDto.UserCarbonSummary toUserSummary(Object[] row) {
+        return new CarbonAnalyticsDto.UserCarbonSummary(
+                toLong(row[0]),
+                (String) row[1],
+                toDouble(row[2]),
+                toLong(row[3]),
+                toDouble(row[4])
+        );
+    }
+
+    // ── 9. Per-seller carbon footprint from products (top N) ──────────────────
+    private List<CarbonAnalyticsDto.SellerCarbonSummary> toSellerCarbon(List<Object[]> sellerRows) {
+        return sellerRows.stream().map(this::toSellerSummary).collect(Collectors.toList());
+    }
+
+    private CarbonAnalyticsDto.SellerCarbonSummary toSellerSummary(Object[] row) {
+        return new CarbonAnalyticsDto.SellerCarbonSummary(
+                toLong(row[0]),
+                (String) row[1],
+                toDouble(row[2]),
+                toDouble(row[3]),
+                toLong(row[5]),
+                toDouble(row[6])
+        );
+    }
+
+    // ── Leaderboards ──────────────────────────────────────────────────────────
+
+    /**
+     * One page of the per-user carbon ranking. {@code sort} is one of
+     * totalCO2, orderCount, avgEcoScore or name; ties are broken by user id.
+     */
+    @Transactional(readOnly = true)
+    public Page<CarbonAnalyticsDto.UserCarbonSummary> getUserLeaderboard(int page, int size,
+                                                                         String sort, String direction) {
+        Pageable pageable = leaderboardPage(page, size, sort, direction, USER_SORTS);
+        return orderRollups.findUserLeaderboard(pageable)
+                .map(this::toUserSummary);
+    }
+
+    /**
+     * One page of the per-seller carbon ranking. {@code sort} is one of
+     * totalCO2, materialCO2, shippingCO2, productCount, avgEcoScore or name;
+     * ties are broken by seller id.
+     */
+    @Transactional(readOnly = true)
+    public Page<CarbonAnalyticsDto.SellerCarbonSummary> getSellerLeaderboard(int page, int size,
+                                                                             String sort, String direction) {
+        Pageable pageable = leaderboardPage(page, size, sort, direction, SELLER_SORTS);
+        return productRollups.findSellerLeaderboard(pageable)
+                .map(this::toSellerSummary);
+    }
+
+    /**
+     * Validates the request and caps it: the database ranks with a bounded
+     * top-K sort of (page + 1) * size rows, so memory per request stays
+     * bounded however many users there are.
+     */
+    private static Pageable leaderboardPage(int page, int size, String sort, String direction,
+                                            Set<String> sorts) {
+        if (!sorts.contains(sort)) {
+            throw new IllegalArgumentException("Unsupported sort '" + sort + "'; use one of " + sorts);
         }
-        dto.setUserCarbonList(userList);
-
-        // ── 9. Per-seller carbon footprint (from products) ────────────────────
-        List<Object[]> sellerRows = productRepository.getCarbonBySeller();
-        List<CarbonAnalyticsDto.SellerCarbonSummary> sellerList = new ArrayList<>();
-        for (Object[] row : sellerRows) {
-            sellerList.add(new CarbonAnalyticsDto.SellerCarbonSummary(
-                    toLong(row[0]),
-                    (String) row[1],
-                    toDouble(row[2]),
-                    toDouble(row[3]),
-                    toLong(row[4]),
-                    toDouble(row[5])
-            ));
+        int pageSize = Math.max(1, Math.min(size, MAX_LEADERBOARD_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        if ((long) pageNumber * pageSize > MAX_LEADERBOARD_DEPTH) {
+            throw new IllegalArgumentException("Leaderboards go " + MAX_LEADERBOARD_DEPTH
+                    + " rows deep; reverse the direction to see the other end");
         }
-        dto.setSellerCarbonList(sellerList);
+        return PageRequest.of(pageNumber, pageSize, leaderboardSort(Sort.Direction.fromString(direction), sort));
+    }
 
-        return dto;
+    private static Sort leaderboardSort(Sort.Direction direction, String sort) {
+        return Sort.by(direction, sort).and(Sort.by(Sort.Direction.ASC, "id"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        analyticsPool.shutdown();
     }
 
     // ── Helpers ───────────────────────────────────────────────────────────────
@@ -208,6 +381,10 @@ public class AnalyticsService {
         return Double.parseDouble(v.toString());
     }
 
+    private double average(double sum, long count) {
+        return count > 0 ? sum / count : 0.0;
+    }
+
     private long toLong(Object v) {
         if (v == null) return 0L;
         if (v instanceof Number) return ((Number) v).longValue();
@@ -0,0 +1,76 @@
+package com.ecobazaarx.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process fan-out of cache invalidations, keyed by cache name. Writers
+ * publish the ids they changed once their transaction commits; local caches
+ * subscribe. When an {@link InvalidationTransport} bean exists, publications
+ * are also broadcast to the other nodes and theirs are delivered here.
+ */
+@Component
+public class CacheInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final Map<String, List<Consumer<Collection<Long>>>> listeners = new ConcurrentHashMap<>();
+    private final InvalidationTransport transport;
+
+    public CacheInvalidationBus(ObjectProvider<InvalidationTransport> transport) {
+        this.transport = transport.getIfAvailable();
+        if (this.transport != null) {
+            this.transport.onReceive(this::deliver);
+        }
+    }
+
+    public void subscribe(String cacheName, Consumer<Collection<Long>> listener) {
+        listeners.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /** Invalidates {@code ids} in the named cache on this node, and on the others if there is a transport. */
+    public void publish(String cacheName, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        deliver(cacheName, ids);
+        broadcast(cacheName, ids);
+    }
+
+    /**
+     * Invalidates {@code ids} in the named cache on the other nodes only, for
+     * caches this node has just brought up to date itself. Does nothing
+     * without a transport.
+     */
+    public void broadcast(String cacheName, Collection<Long> ids) {
+        if (transport == null || ids.isEmpty()) {
+            return;
+        }
+        try {
+            transport.broadcast(cacheName, ids);
+        } catch (RuntimeException e) {
+            // Other nodes fall back on their TTLs
+            log.warn("Failed to broadcast invalidation of {} {}", cacheName, ids, e);
+        }
+    }
+
+    /** Publishes once the current transaction commits (immediately if there is none). */
+    public void publishAfterCommit(String cacheName, Collection<Long> ids) {
+        AfterCommit.run(() -> publish(cacheName, ids));
+    }
+
+    private void deliver(String cacheName, Collection<Long> ids) {
+        for (Consumer<Collection<Long>> listener : listeners.getOrDefault(cacheName, List.of())) {
+            listener.accept(ids);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.ecobazaarx.service;
+
+import com.ecobazaarx.entity.Order;
+import com.ecobazaarx.entity.OrderStatus;
+import com.ecobazaarx.entity.Product;
+import com.ecobazaarx.repository.CarbonRollupJdbcRepository;
+import com.ecobazaarx.repository.CarbonRollupJdbcRepository.OrderRow;
+import com.ecobazaarx.repository.CarbonRollupJdbcRepository.ProductRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps the carbon rollup tables (product_carbon_rollups,
+ * order_carbon_rollups) current, so the carbon dashboard reads one row per
+ * group instead of aggregating every product and order.
+ *
+ * ProductService and OrderService report each write here inside their own
+ * transaction; the change is applied as a delta (new contribution minus old)
+ * to the affected groups, and commits or rolls back with the write. Only
+ * active products count, and only orders that are not CANCELLED or RETURNED.
+ *
+ * Writes that bypass the services (seed data, manual SQL) are picked up by
+ * {@link #reconcile()}, which rebuilds both tables from the source tables
+ * nightly and reports any drift it corrected.
+ */
+@Service
+public class CarbonRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(CarbonRollupService.class);
+
+    /** Products whose material + shipping CO2 exceeds this count as high-emission. */
+    public static final double HIGH_EMISSION_CO2 = 10.0;
+
+    static final String TYPE = "type";
+    static final String SELLER = "seller";
+    static final String USER = "user";
+    static final String MONTH = "month";
+
+    private static final DateTimeFormatter MONTH_KEY = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final BigDecimal HIGH_EMISSION_THRESHOLD = BigDecimal.valueOf(HIGH_EMISSION_CO2);
+    // Drifted groups listed in a reconcile report; the count covers all of them
+    private static final int MAX_REPORTED_DRIFT = 20;
+
+    /**
+     * What one product contributes to the rollups, or null for a product
+     * that contributes nothing (not active). Take it before and after a write.
+     */
+    public record ProductCarbon(String type, Long sellerId, BigDecimal materialCO2, BigDecimal shippingCO2,
+                                BigDecimal ecoScore) {
+
+        public static ProductCarbon of(Product product) {
+            if (product == null || !"active".equalsIgnoreCase(product.getStatus())) {
+                return null;
+            }
+            return new ProductCarbon(product.getType(), product.getSeller().getId(),
+                    orZero(product.getMaterialCO2()), orZero(product.getShippingCO2()), product.getEcoScore());
+        }
+
+        boolean highEmission() {
+            return materialCO2.add(shippingCO2).compareTo(HIGH_EMISSION_THRESHOLD) > 0;
+        }
+    }
+
+    // Groups compare case-insensitively, as the MySQL unique key on them does
+    private record Group(String dimension, String key) implements Comparable<Group> {
+        private static final Comparator<Group> ORDER =
+                Comparator.comparing(Group::dimension).thenComparing(Group::key);
+
+        static Group of(String dimension, String key) {
+            return new Group(dimension, key.toLowerCase(Locale.ROOT));
+        }
+
+        @Override
+        public int compareTo(Group other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private final CarbonRollupJdbcRepository rollupRepository;
+    private final EmissionSeries emissionSeries;
+    private final int orderSlots;
+
+    @Autowired
+    public CarbonRollupService(CarbonRollupJdbcRepository rollupRepository,
+                               EmissionSeries emissionSeries,
+                               @Value("${app.analytics.rollups.order-slots:8}") int orderSlots) {
+        this.rollupRepository = rollupRepository;
+        this.emissionSeries = emissionSeries;
+        this.orderSlots = Math.max(1, orderSlots);
+    }
+
+    // ── Deltas ────────────────────────────────────────────────────────────────
+
+    /**
+     * Moves a product's contribution from {@code before} to {@code after}
+     * (either may be null: created, deactivated, reactivated).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void productChanged(ProductCarbon before, ProductCarbon after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        // Sorted, so concurrent writers take the row locks in the same order
+        Map<Group, ProductRow> deltas = new TreeMap<>();
+        addProduct(deltas, before, -1);
+        addProduct(deltas, after, 1);
+        deltas.values().removeIf(CarbonRollupService::isZero);
+        rollupRepository.addProductDeltas(deltas.values());
+    }
+
+    /** Counts a newly saved order. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderPlaced(Order order) {
+        if (counts(order.getStatus())) {
+            addOrder(order, 1);
+        }
+    }
+
+    /** Adds or removes the order when its status moves into or out of CANCELLED/RETURNED. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderStatusChanged(Order order, OrderStatus previous) {
+        boolean counted = counts(previous);
+        if (counted != counts(order.getStatus())) {
+            addOrder(order, counted ? -1 : 1);
+        }
+    }
+
+    private static boolean counts(OrderStatus status) {
+        return status != OrderStatus.CANCELLED && status != OrderStatus.RETURNED;
+    }
+
+    private void addProduct(Map<Group, ProductRow> deltas, ProductCarbon carbon, int sign) {
+        if (carbon == null) {
+            return;
+        }
+        BigDecimal factor = BigDecimal.valueOf(sign);
+        BigDecimal material = carbon.materialCO2().multiply(factor);
+        BigDecimal shipping = carbon.shippingCO2().multiply(factor);
+        BigDecimal ecoScore = carbon.ecoScore() != null ? carbon.ecoScore().multiply(factor) : BigDecimal.ZERO;
+        long ecoScoreCount = carbon.ecoScore() != null ? sign : 0;
+        long highEmission = carbon.highEmission() ? sign : 0;
+        String[][] groups = { { TYPE, carbon.type() }, { SELLER, String.valueOf(carbon.sellerId()) } };
+        for (String[] group : groups) {
+            deltas.merge(Group.of(group[0], group[1]),
+                    new ProductRow(group[0], group[1], material, shipping, sign, ecoScore, ecoScoreCount, highEmission),
+                    CarbonRollupService::plus);
+        }
+    }
+
+    private void addOrder(Order order, int sign) {
+        BigDecimal factor = BigDecimal.valueOf(sign);
+        BigDecimal co2 = orZero(order.getTotalCO2Footprint()).multiply(factor);
+        BigDecimal ecoScore = order.getTotalEcoScore() != null
+                ? order.getTotalEcoScore().multiply(factor) : BigDecimal.ZERO;
+        long ecoScoreCount = order.getTotalEcoScore() != null ? sign : 0;
+        // "month" sorts before "user": the lock order is the same for every writer
+        List<OrderRow> deltas = List.of(
+                new OrderRow(MONTH, order.getOrderDate().format(MONTH_KEY), co2, sign, ecoScore, ecoScoreCount),
+                new OrderRow(USER, String.valueOf(order.getUser().getId()), co2, sign, ecoScore, ecoScoreCount));
+        rollupRepository.addOrderDeltas(deltas, ThreadLocalRandom.current().nextInt(orderSlots));
+        emissionSeries.add(order, sign);
+    }
+
+    // ── Reconciliation ────────────────────────────────────────────────────────
+
+    /**
+     * Builds the rollups on the first start against existing data (the
+     * tables are new, or DataInitializer seeded products behind the
+     * services' back).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void buildIfMissing() {
+        if (rollupRepository.isMissingRollups() || emissionSeries.isMissing()) {
+            log.info("Carbon rollups missing; building them from products and orders");
+            rebuild();
+        }
+    }
+
+    /**
+     * Recomputes both rollup tables, and the emission series, from products
+     * and orders, replaces them, and returns what differed. The rollup rows are locked first (with their
+     * gaps, under MySQL's default REPEATABLE READ), so writers that commit
+     * meanwhile wait and apply their deltas on top of the rebuilt rows rather
+     * than being lost. Product writes and checkouts stall for the duration,
+     * hence the nightly schedule.
+     *
+     * @return checked groups, the number of drifted groups and the first few
+     *         of them with their rollup ("was") and recomputed ("is") values,
+     *         and the number of drifted emission buckets
+     */
+    @Scheduled(cron = "${app.analytics.rollups.reconcile-cron:0 30 3 * * *}")
+    @Transactional
+    public Map<String, Object> reconcile() {
+        Map<String, Object> report = rebuild();
+        int drifted = (Integer) report.get("driftedGroups");
+        int driftedBuckets = (Integer) report.get("driftedBuckets");
+        if (driftedBuckets > 0) {
+            log.warn("Emission series had drifted in {} buckets; rebuilt", driftedBuckets);
+        }
+        if (drifted > 0) {
+            log.warn("Carbon rollups had drifted in {} groups; rebuilt: {}", drifted, report.get("drift"));
+        } else {
+            log.info("Carbon rollups reconciled; no drift in {} groups",
+                    (Integer) report.get("productGroups") + (Integer) report.get("orderGroups"));
+        }
+        return report;
+    }
+
+    private Map<String, Object> rebuild() {
+        Map<Group, ProductRow> productsWere = productsByGroup(rollupRepository.lockProductRollups());
+        Map<Group, OrderRow> ordersWere = ordersByGroup(rollupRepository.lockOrderRollups());
+        List<ProductRow> products = rollupRepository.computeProductRollups(HIGH_EMISSION_CO2);
+        List<OrderRow> orders = rollupRepository.computeOrderRollups();
+        Map<Group, ProductRow> productsAre = productsByGroup(products);
+        Map<Group, OrderRow> ordersAre = ordersByGroup(orders);
+
+        List<Map<String, Object>> drift = new ArrayList<>();
+        int drifted = 0;
+        for (Group group : union(productsWere, productsAre)) {
+            ProductRow was = productsWere.get(group);
+            ProductRow is = productsAre.get(group);
+            if (!sameTotals(was, is)) {
+                drifted++;
+                if (drift.size() < MAX_REPORTED_DRIFT) {
+                    drift.add(driftEntry(group, was, is));
+                }
+            }
+        }
+        for (Group group : union(ordersWere, ordersAre)) {
+            OrderRow was = ordersWere.get(group);
+            OrderRow is = ordersAre.get(group);
+            if (!sameTotals(was, is)) {
+                drifted++;
+                if (drift.size() < MAX_REPORTED_DRIFT) {
+                    drift.add(driftEntry(group, was, is));
+                }
+            }
+        }
+
+        // Sorted like the deltas, for the same lock order
+        rollupRepository.replaceProductRollups(productsAre.values());
+        rollupRepository.replaceOrderRollups(ordersAre.values());
+        int driftedBuckets = emissionSeries.rebuild();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("reconciledAt", LocalDateTime.now());
+        report.put("productGroups", productsAre.size());
+        report.put("orderGroups", ordersAre.size());
+        report.put("driftedGroups", drifted);
+        report.put("drift", drift);
+        report.put("driftedBuckets", driftedBuckets);
+        return report;
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────────
+
+    private static Map<Group, ProductRow> productsByGroup(List<ProductRow> rows) {
+        Map<Group, ProductRow> byGroup = new TreeMap<>();
+        for (ProductRow row : rows) {
+            byGroup.merge(Group.of(row.dimension(), row.groupKey()), row, CarbonRollupService::plus);
+        }
+        // Groups left empty by deltas hold zeros; they are not drift
+        byGroup.values().removeIf(CarbonRollupService::isZero);
+        return byGroup;
+    }
+
+    private static Map<Group, OrderRow> ordersByGroup(List<OrderRow> rows) {
+        Map<Group, OrderRow> byGroup = new TreeMap<>();
+        for (OrderRow row : rows) {
+            byGroup.merge(Group.of(row.dimension(), row.groupKey()), row, CarbonRollupService::plus);
+        }
+        byGroup.values().removeIf(CarbonRollupService::isZero);
+        return byGroup;
+    }
+
+    private static TreeSet<Group> union(Map<Group, ?> a, Map<Group, ?> b) {
+        TreeSet<Group> groups = new TreeSet<>(a.keySet());
+        groups.addAll(b.keySet());
+        return groups;
+    }
+
+    private static ProductRow plus(ProductRow a, ProductRow b) {
+        return new ProductRow(a.dimension(), a.groupKey(), a.materialCO2().add(b.materialCO2()),
+                a.shippingCO2().add(b.shippingCO2()), a.productCount() + b.productCount(),
+                a.ecoScoreSum().add(b.ecoScoreSum()), a.ecoScoreCount() + b.ecoScoreCount(),
+                a.highEmissionCount() + b.highEmissionCount());
+    }
+
+    private static OrderRow plus(OrderRow a, OrderRow b) {
+        return new OrderRow(a.dimension(), a.groupKey(), a.co2().add(b.co2()), a.orderCount() + b.orderCount(),
+                a.ecoScoreSum().add(b.ecoScoreSum()), a.ecoScoreCount() + b.ecoScoreCount());
+    }
+
+    private static boolean isZero(ProductRow row) {
+        return row.materialCO2().signum() == 0 && row.shippingCO2().signum() == 0 && row.productCount() == 0
+                && row.ecoScoreSum().signum() == 0 && row.ecoScoreCount() == 0 && row.highEmissionCount() == 0;
+    }
+
+    private static boolean isZero(OrderRow row) {
+        return row.co2().signum() == 0 && row.orderCount() == 0
+                && row.ecoScoreSum().signum() == 0 && row.ecoScoreCount() == 0;
+    }
+
+    private static boolean sameTotals(ProductRow was, ProductRow is) {
+        return was != null && is != null
+                && was.materialCO2().compareTo(is.materialCO2()) == 0
+                && was.shippingCO2().compareTo(is.shippingCO2()) == 0
+                && was.productCount() == is.productCount()
+                && was.ecoScoreSum().compareTo(is.ecoScoreSum()) == 0
+                && was.ecoScoreCount() == is.ecoScoreCount()
+                && was.highEmissionCount() == is.highEmissionCount();
+    }
+
+    private static boolean sameTotals(OrderRow was, OrderRow is) {
+        return was != null && is != null
+                && was.co2().compareTo(is.co2()) == 0
+                && was.orderCount() == is.orderCount()
+                && was.ecoScoreSum().compareTo(is.ecoScoreSum()) == 0
+                && was.ecoScoreCount() == is.ecoScoreCount();
+    }
+
+    private static Map<String, Object> driftEntry(Group group, Object was, Object is) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("dimension", group.dimension());
+        entry.put("group", group.key());
+        entry.put("was", was);
+        entry.put("is", is);
+        return entry;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
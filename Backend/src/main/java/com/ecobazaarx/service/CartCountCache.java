@@ -0,0 +1,56 @@
+package com.ecobazaarx.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-user cart item count behind GET /api/cart/count, which the navbar
+ * polls. Entries are evicted after any cart change commits, so the count is
+ * only read from the database after it actually changed. Bounded LRU.
+ */
+@Component
+public class CartCountCache {
+
+    private final Map<Long, Integer> counts;
+
+    /**
+     * Bumped on every eviction. A load that overlapped an eviction may have
+     * read the old count, so its result is returned but not cached.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CartCountCache(@Value("${app.cart.count-cache-size:10000}") int maxEntries) {
+        this.counts = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public int get(Long userId, Supplier<Integer> loader) {
+        Integer count = counts.get(userId);
+        if (count == null) {
+            long before = evictions.get();
+            count = loader.get();
+            if (evictions.get() == before) {
+                counts.put(userId, count);
+            }
+        }
+        return count;
+    }
+
+    /** Drops the user's count once the current transaction commits. */
+    public void evict(Long userId) {
+        AfterCommit.run(() -> {
+            evictions.incrementAndGet();
+            counts.remove(userId);
+        });
+    }
+}
@@ -2,74 +2,75 @@ package com.ecobazaarx.service;
 
 import com.ecobazaarx.dto.AddToCartRequest;
 import com.ecobazaarx.dto.CartDto;
+import com.ecobazaarx.dto.MergeCartRequest;
 import com.ecobazaarx.dto.UpdateCartItemRequest;
-import com.ecobazaarx.entity.Cart;
-import com.ecobazaarx.entity.CartItem;
-import com.ecobazaarx.entity.Product;
-import com.ecobazaarx.entity.User;
 import com.ecobazaarx.exception.ResourceNotFoundException;
 import com.ecobazaarx.repository.CartItemRepository;
-import com.ecobazaarx.repository.CartRepository;
-import com.ecobazaarx.repository.ProductRepository;
-import com.ecobazaarx.repository.UserRepository;
+import com.ecobazaarx.repository.CartProductView;
 import com.ecobazaarx.mapper.CartMapper;
+import com.ecobazaarx.service.cart.CartLineIdAllocator;
+import com.ecobazaarx.service.cart.CartLoader;
+import com.ecobazaarx.service.cart.CartStore;
+import com.ecobazaarx.service.cart.CartWriteBehind;
+import com.ecobazaarx.service.cart.StoredCart;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
 
+/**
+ * Cart operations run against the {@link CartStore}, and products come from
+ * the {@link ProductCache}; the database is only read on misses.
+ * CartWriteBehind persists the changes asynchronously, and at checkout.
+ */
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class CartService {
     
-    private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
-    private final ProductRepository productRepository;
-    private final UserRepository userRepository;
+    private final ProductCache productCache;
     private final CartMapper cartMapper;
+    private final CartCountCache cartCountCache;
+    private final CartStore cartStore;
+    private final CartLoader cartLoader;
+    private final CartLineIdAllocator lineIdAllocator;
+    private final CartWriteBehind cartWriteBehind;
+    private final CacheInvalidationBus invalidationBus;
     
     @Autowired
-    public CartService(CartRepository cartRepository,
-                      CartItemRepository cartItemRepository,
-                      ProductRepository productRepository,
-                      UserRepository userRepository,
-                      CartMapper cartMapper) {
-        this.cartRepository = cartRepository;
+    public CartService(CartItemRepository cartItemRepository,
+                      ProductCache productCache,
+                      CartMapper cartMapper,
+                      CartCountCache cartCountCache,
+                      CartStore cartStore,
+                      CartLoader cartLoader,
+                      CartLineIdAllocator lineIdAllocator,
+                      CartWriteBehind cartWriteBehind,
+                      CacheInvalidationBus invalidationBus) {
         this.cartItemRepository = cartItemRepository;
-        this.productRepository = productRepository;
-        this.userRepository = userRepository;
+        this.productCache = productCache;
         this.cartMapper = cartMapper;
+        this.cartCountCache = cartCountCache;
+        this.cartStore = cartStore;
+        this.cartLoader = cartLoader;
+        this.lineIdAllocator = lineIdAllocator;
+        this.cartWriteBehind = cartWriteBehind;
+        this.invalidationBus = invalidationBus;
     }
     
     // Get user's cart
-    @Transactional
     public CartDto getUserCart(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-        
-        Optional<Cart> cartOptional = cartRepository.findByUserWithItems(user);
-        
-        if (cartOptional.isPresent()) {
-            Cart cart = cartOptional.get();
-            cart.updateTotals(); // Ensure totals are up to date
-            cartRepository.save(cart);
-            return cartMapper.toDto(cart);
-        } else {
-            // Create new empty cart
-            Cart newCart = new Cart(user);
-            Cart savedCart = cartRepository.save(newCart);
-            return cartMapper.toDto(savedCart);
-        }
+        return toDto(userId, residentCart(userId));
     }
     
     // Add item to cart
-    
     public CartDto addToCart(Long userId, AddToCartRequest request) {
-    	User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-        
-        Product product = productRepository.findById(request.getProductId())
+        CartProductView product = productCache.get(request.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + request.getProductId()));
         
         if (!"active".equalsIgnoreCase(product.getStatus())) {
@@ -80,134 +81,201 @@ public class CartService {
             throw new IllegalStateException("Insufficient stock. Available: " + product.getStockQuantity());
         }
         
-        // Get or create cart
-        Cart cart = cartRepository.findByUser(user).orElse(new Cart(user));
-        if (cart.getId() == null) {
-            cart = cartRepository.save(cart);
+        // Reserved before taking the store lock; unused if the product already has a line
+        long newLineId = residentCart(userId).line(product.getId()) == null ? lineIdAllocator.next() : 0;
+        StoredCart cart = mutate(userId, current -> {
+            StoredCart.Line existing = current.line(product.getId());
+            int newQuantity = request.getQuantity() + (existing != null ? existing.quantity() : 0);
+            if (product.getStockQuantity() < newQuantity) {
+                throw new IllegalStateException("Insufficient stock. Available: " + product.getStockQuantity());
+            }
+            return current.withQuantity(product.getId(), newQuantity,
+                    newLineId != 0 ? newLineId : lineIdAllocator.next());
+        });
+        
+        return toDto(userId, cart);
+    }
+    
+    /**
+     * Merges a guest cart (kept by the frontend until login) into the user's
+     * cart: one product query for all items and one store update. Quantities
+     * add up with what is already in the cart and are capped at the current
+     * stock; unknown or inactive products are skipped rather than failing
+     * the login.
+     */
+    public CartDto mergeCart(Long userId, MergeCartRequest request) {
+        Map<Long, Integer> requested = new LinkedHashMap<>();
+        for (AddToCartRequest item : request.getItems()) {
+            requested.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        if (requested.isEmpty()) {
+            return getUserCart(userId);
         }
         
-        // Check if product already exists in cart
-        Optional<CartItem> existingCartItem = cartItemRepository.findByCartAndProduct(cart, product);
+        Map<Long, CartProductView> products = new HashMap<>(productCache.getAll(requested.keySet()));
+        requested.keySet().removeIf(id -> {
+            CartProductView p = products.get(id);
+            return p == null || !"active".equalsIgnoreCase(p.getStatus()) || p.getStockQuantity() <= 0;
+        });
         
-        if (existingCartItem.isPresent()) {
-            // Update quantity
-            CartItem cartItem = existingCartItem.get();
-            int newQuantity = cartItem.getQuantity() + request.getQuantity();
-            
-            if (product.getStockQuantity() < newQuantity) {
-                throw new IllegalStateException("Insufficient stock. Available: " + product.getStockQuantity());
+        // Line ids for products new to the cart, reserved before taking the store lock
+        StoredCart resident = residentCart(userId);
+        Map<Long, Long> newLineIds = new HashMap<>();
+        for (Long productId : requested.keySet()) {
+            if (resident.line(productId) == null) {
+                newLineIds.put(productId, lineIdAllocator.next());
             }
-            
-            cartItem.setQuantity(newQuantity);
-            cartItemRepository.save(cartItem);
-        } else {
-            // Add new cart item
-            CartItem cartItem = new CartItem(cart, product, request.getQuantity());
-            cartItemRepository.save(cartItem);
-            cart.addCartItem(cartItem);
         }
         
-        cart.updateTotals();
-        cartRepository.save(cart);
+        StoredCart cart = mutate(userId, current -> {
+            StoredCart next = current;
+            for (Map.Entry<Long, Integer> e : requested.entrySet()) {
+                StoredCart.Line existing = next.line(e.getKey());
+                int quantity = Math.min(e.getValue() + (existing != null ? existing.quantity() : 0),
+                        products.get(e.getKey()).getStockQuantity());
+                Long lineId = newLineIds.get(e.getKey());
+                next = next.withQuantity(e.getKey(), quantity, lineId != null ? lineId : lineIdAllocator.next());
+            }
+            return next;
+        });
         
-        return cartMapper.toDto(cart);
+        return cartMapper.toDto(userId, cart, withCartProducts(products, cart));
     }
     
     // Update cart item quantity
     public CartDto updateCartItem(Long userId, Long cartItemId, UpdateCartItemRequest request) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-        
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found with id: " + cartItemId));
-        
-        // Verify cart belongs to user
-        if (!cartItem.getCart().getUser().getId().equals(userId)) {
-            throw new IllegalStateException("Cart item does not belong to user");
-        }
+        StoredCart.Line line = requireLine(userId, cartItemId);
         
-        Product product = cartItem.getProduct();
+        CartProductView product = productCache.get(line.productId())
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + line.productId()));
         if (product.getStockQuantity() < request.getQuantity()) {
             throw new IllegalStateException("Insufficient stock. Available: " + product.getStockQuantity());
         }
         
-        cartItem.setQuantity(request.getQuantity());
-        cartItemRepository.save(cartItem);
-        
-        Cart cart = cartItem.getCart();
-        cart.updateTotals();
-        cartRepository.save(cart);
+        StoredCart cart = mutate(userId, current -> {
+            if (current.lineById(cartItemId) == null) {
+                throw new ResourceNotFoundException("Cart item not found with id: " + cartItemId);
+            }
+            return current.withQuantity(line.productId(), request.getQuantity(), line.id());
+        });
         
-        return cartMapper.toDto(cart);
+        return toDto(userId, cart);
     }
     
     // Remove item from cart
     public CartDto removeFromCart(Long userId, Long cartItemId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-        
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found with id: " + cartItemId));
-        
-        // Verify cart belongs to user
-        if (!cartItem.getCart().getUser().getId().equals(userId)) {
-            throw new IllegalStateException("Cart item does not belong to user");
-        }
-        
-        Cart cart = cartItem.getCart();
-        cart.removeCartItem(cartItem);
-        cartItemRepository.delete(cartItem);
-        
-        cart.updateTotals();
-        cartRepository.save(cart);
-        
-        return cartMapper.toDto(cart);
+        StoredCart.Line line = requireLine(userId, cartItemId);
+        StoredCart cart = mutate(userId, current -> current.without(line.productId()));
+        return toDto(userId, cart);
     }
     
     // Clear cart
     public void clearCart(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-        
-        Optional<Cart> cartOptional = cartRepository.findByUser(user);
-        if (cartOptional.isPresent()) {
-            Cart cart = cartOptional.get();
-            cart.clearCart();
-            cartItemRepository.deleteByCart(cart);
-            cartRepository.save(cart);
-        }
+        mutate(userId, StoredCart::cleared);
     }
     
-    // Get cart item count
-    @Transactional(readOnly = true)
+    // Get cart item count — straight from the store when the cart is resident,
+    // else from CartCountCache (one SUM over cart_items on a miss)
     public Integer getCartItemCount(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-        
-        Optional<Cart> cartOptional = cartRepository.findByUser(user);
-        return cartOptional.map(Cart::getTotalItems).orElse(0);
+        StoredCart cart = cartStore.get(userId);
+        if (cart != null) {
+            return cart.totalItems();
+        }
+        return cartCountCache.get(userId, () -> (int) cartItemRepository.sumQuantityByUserId(userId));
     }
     
  // Validate cart before checkout
-    @Transactional(readOnly = true)
     public boolean validateCart(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-        
-        Optional<Cart> cartOptional = cartRepository.findByUserWithItems(user);
-        if (cartOptional.isEmpty() || cartOptional.get().getCartItems().isEmpty()) {
+        StoredCart cart = residentCart(userId);
+        if (cart.lines().isEmpty()) {
             return false;
         }
         
-        Cart cart = cartOptional.get();
-        for (CartItem cartItem : cart.getCartItems()) {
-            Product product = cartItem.getProduct();
-            if (!"active".equalsIgnoreCase(product.getStatus()) || product.getStockQuantity() < cartItem.getQuantity()) {
+        Map<Long, CartProductView> products = loadProducts(cart);
+        for (StoredCart.Line line : cart.lines().values()) {
+            CartProductView product = products.get(line.productId());
+            if (product == null || !"active".equalsIgnoreCase(product.getStatus())
+                    || product.getStockQuantity() < line.quantity()) {
                 return false;
             }
         }
         
         return true;
     }
+    
+    // ── Checkout ─────────────────────────────────────────────────────────────
+    
+    /**
+     * The user's cart for checkout, flushed first so that it matches the
+     * cart_items rows the order will delete.
+     */
+    public StoredCart cartForCheckout(Long userId) {
+        residentCart(userId);
+        StoredCart cart = cartWriteBehind.flush(userId);
+        return cart != null ? cart : residentCart(userId);
+    }
+    
+    /**
+     * Once the order commits, drops the checked-out lines from the store.
+     * Lines added while the order was being placed are kept (and flushed again).
+     */
+    public void checkedOut(Long userId, StoredCart cart) {
+        cartCountCache.evict(userId);
+        invalidationBus.publishAfterCommit(SecondLevelCache.CARTS, List.of(cart.cartId()));
+        AfterCommit.run(() -> {
+            if (!cartStore.evictIfUnchanged(userId, cart.version())) {
+                cartStore.update(userId, current -> current.without(cart));
+            }
+            // Other nodes' copies still hold the checked-out lines
+            invalidationBus.broadcast(CartStore.CHANNEL, List.of(userId));
+        });
+    }
+    
+    // ── Cart store access ────────────────────────────────────────────────────
+    
+    // The user's cart from the store, loading it (one query) if not resident
+    private StoredCart residentCart(Long userId) {
+        StoredCart cart = cartStore.get(userId);
+        if (cart != null) {
+            return cart;
+        }
+        return cartStore.putIfAbsent(userId, cartLoader.load(userId));
+    }
+    
+    private StoredCart mutate(Long userId, UnaryOperator<StoredCart> mutation) {
+        // A clean cart can be evicted between load and update; the store then reads it again
+        StoredCart cart = cartStore.update(userId, () -> cartLoader.load(userId), mutation);
+        cartCountCache.evict(userId);
+        return cart;
+    }
+    
+    private StoredCart.Line requireLine(Long userId, Long cartItemId) {
+        StoredCart.Line line = residentCart(userId).lineById(cartItemId);
+        if (line == null) {
+            throw new ResourceNotFoundException("Cart item not found with id: " + cartItemId);
+        }
+        return line;
+    }
+    
+    private Map<Long, CartProductView> loadProducts(StoredCart cart) {
+        if (cart.lines().isEmpty()) {
+            return new HashMap<>();
+        }
+        return new HashMap<>(productCache.getAll(cart.productIds()));
+    }
+    
+    // Adds the products of lines that were already in the cart to the ones just loaded
+    private Map<Long, CartProductView> withCartProducts(Map<Long, CartProductView> loaded, StoredCart cart) {
+        if (loaded.keySet().containsAll(cart.productIds())) {
+            return loaded;
+        }
+        Map<Long, CartProductView> products = loadProducts(cart);
+        products.putAll(loaded);
+        return products;
+    }
+    
+    private CartDto toDto(Long userId, StoredCart cart) {
+        return cartMapper.toDto(userId, cart, loadProducts(cart));
+    }
 
-}
\ No newline at end of file
+}
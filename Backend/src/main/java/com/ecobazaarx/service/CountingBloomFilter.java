@@ -0,0 +1,70 @@
+package com.ecobazaarx.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Bloom filter of strings with a counter per slot instead of a bit, so
+ * entries can also be removed. {@link #mightContain} is lock-free and never
+ * returns false for an entry that was added and not removed; it returns a
+ * false positive with about the probability given at construction while
+ * the filter holds no more than the expected number of entries.
+ */
+class CountingBloomFilter {
+
+    private final AtomicIntegerArray counters;
+    private final int hashes;
+
+    CountingBloomFilter(int expectedEntries, double falsePositiveRate) {
+        int slots = (int) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.counters = new AtomicIntegerArray(Math.max(slots, 64));
+        this.hashes = Math.max(1, (int) Math.round((double) counters.length() / expectedEntries * Math.log(2)));
+    }
+
+    void add(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            counters.incrementAndGet(slot(hash, i));
+        }
+    }
+
+    /** Removes one earlier {@link #add} of {@code value}; removing a value never added corrupts the filter. */
+    void remove(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            counters.decrementAndGet(slot(hash, i));
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            if (counters.get(slot(hash, i)) <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Double hashing: slot i = h1 + i * h2, from the two halves of one 64-bit hash
+    private int slot(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return Math.floorMod(h1 + i * h2, counters.length());
+    }
+
+    // 64-bit FNV-1a followed by a murmur3 finalizer
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,386 @@
+package com.ecobazaarx.service;
+
+import com.ecobazaarx.dto.EmissionTrendDto;
+import com.ecobazaarx.entity.EmissionBucket;
+import com.ecobazaarx.entity.Order;
+import com.ecobazaarx.repository.EmissionBucketRepository;
+import com.ecobazaarx.repository.OrderRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Time series of order CO2 and revenue, kept in hourly and daily buckets
+ * (emission_buckets) so a trend over any range reads one row per bucket
+ * instead of scanning orders.
+ *
+ * CarbonRollupService passes every counted order in and out of here, in the
+ * order's own transaction. Hourly buckets are kept for
+ * app.analytics.emissions.hourly-retention; daily buckets for good. Weeks
+ * and months are added up from the daily buckets on read.
+ *
+ * All SQL is JPQL or HQL that Hibernate renders for each dialect. A bucket
+ * slot's row is created once with an insert-if-absent (ahead of time for the
+ * current hour and day, otherwise in the order's own transaction) and from
+ * then on only updated.
+ */
+@Service
+public class EmissionSeries {
+
+    private static final Logger log = LoggerFactory.getLogger(EmissionSeries.class);
+
+    static final String HOUR = "hour";
+    static final String DAY = "day";
+
+    // Points in one trend response: ~13 months of hours, ~27 years of days
+    private static final int MAX_POINTS = 10_000;
+
+    /** Step of a trend; weeks start on Monday, months on the 1st. */
+    public enum Granularity {
+        HOUR, DAY, WEEK, MONTH;
+
+        public static Granularity parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid granularity: " + value
+                        + " (expected hour, day, week or month)");
+            }
+        }
+
+        LocalDateTime start(LocalDateTime t) {
+            return switch (this) {
+                case HOUR -> t.truncatedTo(ChronoUnit.HOURS);
+                case DAY -> t.truncatedTo(ChronoUnit.DAYS);
+                case WEEK -> t.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+                case MONTH -> t.toLocalDate().withDayOfMonth(1).atStartOfDay();
+            };
+        }
+
+        LocalDateTime next(LocalDateTime start) {
+            return switch (this) {
+                case HOUR -> start.plusHours(1);
+                case DAY -> start.plusDays(1);
+                case WEEK -> start.plusWeeks(1);
+                case MONTH -> start.plusMonths(1);
+            };
+        }
+
+        // Default range when the request leaves out "from"
+        LocalDate defaultFrom(LocalDate to) {
+            return switch (this) {
+                case HOUR -> to.minusDays(1);
+                case DAY -> to.minusDays(29);
+                case WEEK -> to.minusWeeks(25);
+                case MONTH -> to.minusMonths(11);
+            };
+        }
+    }
+
+    private record BucketKey(String resolution, LocalDateTime start, int slot) {}
+
+    private record Totals(BigDecimal co2, BigDecimal revenue, long orderCount) {
+        static final Totals ZERO = new Totals(BigDecimal.ZERO, BigDecimal.ZERO, 0);
+
+        Totals plus(BigDecimal co2, BigDecimal revenue, long orderCount) {
+            return new Totals(this.co2.add(co2), this.revenue.add(revenue), this.orderCount + orderCount);
+        }
+
+        boolean sameAs(Totals other) {
+            return co2.compareTo(other.co2) == 0 && revenue.compareTo(other.revenue) == 0
+                    && orderCount == other.orderCount;
+        }
+    }
+
+    private final EmissionBucketRepository bucketRepository;
+    private final OrderRepository orderRepository;
+    private final int slots;
+    private final Duration hourlyRetention;
+    // Bucket slots whose row is known to exist; rows are only removed by the hourly purge
+    private final Cache<BucketKey, Boolean> existing;
+
+    @Autowired
+    public EmissionSeries(EmissionBucketRepository bucketRepository,
+                          OrderRepository orderRepository,
+                          @Value("${app.analytics.rollups.order-slots:8}") int slots,
+                          @Value("${app.analytics.emissions.hourly-retention:P90D}") Duration hourlyRetention) {
+        this.bucketRepository = bucketRepository;
+        this.orderRepository = orderRepository;
+        this.slots = Math.max(1, slots);
+        this.hourlyRetention = hourlyRetention;
+        this.existing = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofDays(2))
+                .build();
+    }
+
+    // ── Writes ────────────────────────────────────────────────────────────────
+
+    /** Adds ({@code sign} 1) or removes (-1) a counted order's CO2 and revenue. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(Order order, int sign) {
+        BigDecimal factor = BigDecimal.valueOf(sign);
+        BigDecimal co2 = orZero(order.getTotalCO2Footprint()).multiply(factor);
+        BigDecimal revenue = orZero(order.getTotalAmount()).multiply(factor);
+        LocalDateTime placed = order.getOrderDate();
+        LocalDateTime now = LocalDateTime.now();
+        // Only the current buckets are hot enough to spread over slots; older ones take slot 0,
+        // the slot the rebuild writes, so their row normally exists already
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+
+        LocalDateTime day = placed.truncatedTo(ChronoUnit.DAYS);
+        addTo(DAY, day, day.equals(now.truncatedTo(ChronoUnit.DAYS)) ? slot : 0, co2, revenue, sign);
+
+        LocalDateTime hour = placed.truncatedTo(ChronoUnit.HOURS);
+        if (!hour.isBefore(hourlyCutoff(now))) {
+            addTo(HOUR, hour, hour.equals(now.truncatedTo(ChronoUnit.HOURS)) ? slot : 0, co2, revenue, sign);
+        }
+    }
+
+    private void addTo(String resolution, LocalDateTime start, int slot,
+                       BigDecimal co2, BigDecimal revenue, long orders) {
+        BucketKey key = new BucketKey(resolution, start, slot);
+        // Create the row before updating, in this same transaction: a nested one would hold a
+        // second pooled connection for every checkout that lands on a new bucket
+        if (existing.getIfPresent(key) == null) {
+            ensure(key);
+        }
+        if (bucketRepository.addTo(resolution, start, slot, co2, revenue, orders) == 0) {
+            // Deleted behind our back; the next rebuild puts the order back in
+            existing.invalidate(key);
+            log.warn("Emission bucket {} {} slot {} is missing; left for the next rebuild", resolution, start, slot);
+        }
+    }
+
+    // Creates the bucket slot's row, zeroed, unless another writer or node already did.
+    // Remembered only once committed, since a rollback takes a new row with it
+    private void ensure(BucketKey key) {
+        bucketRepository.createIfAbsent(key.resolution(), key.start(), key.slot());
+        AfterCommit.run(() -> existing.put(key, Boolean.TRUE));
+    }
+
+    /**
+     * Creates the rows for the current and next hour and day ahead of the
+     * checkouts, so those rarely create one inside their own transaction.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "PT10M", initialDelayString = "PT10M")
+    @Transactional
+    public void prepareBuckets() {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime day = hour.truncatedTo(ChronoUnit.DAYS);
+        for (int slot = 0; slot < slots; slot++) {
+            for (BucketKey key : List.of(new BucketKey(HOUR, hour, slot), new BucketKey(HOUR, hour.plusHours(1), slot),
+                    new BucketKey(DAY, day, slot), new BucketKey(DAY, day.plusDays(1), slot))) {
+                if (existing.getIfPresent(key) == null) {
+                    ensure(key);
+                }
+            }
+        }
+    }
+
+    /** Deletes hourly buckets past the retention; days are kept. */
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT5M")
+    @Transactional
+    public void purgeExpiredHourly() {
+        int removed = bucketRepository.deleteOlderThan(HOUR, hourlyCutoff(LocalDateTime.now()));
+        if (removed > 0) {
+            log.info("Purged {} hourly emission buckets", removed);
+        }
+    }
+
+    // ── Rebuild ───────────────────────────────────────────────────────────────
+
+    /** Whether the series is empty while there are orders (first start on existing data). */
+    public boolean isMissing() {
+        return bucketRepository.count() == 0 && orderRepository.count() > 0;
+    }
+
+    /**
+     * Recomputes every daily bucket, and the hourly ones within the
+     * retention, from the orders and writes the differences, each bucket's
+     * total into slot 0 and zeros into its other slots. Rows are updated in
+     * place rather than deleted, so writers that know a row keep finding it.
+     * Part of CarbonRollupService's reconciliation, under the same locks.
+     *
+     * @return the number of buckets that had drifted
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int rebuild() {
+        LocalDateTime cutoff = hourlyCutoff(LocalDateTime.now());
+        Map<BucketKey, List<EmissionBucket>> rows = new HashMap<>();
+        for (EmissionBucket b : bucketRepository.findAllForUpdate()) {
+            rows.computeIfAbsent(new BucketKey(b.getResolution(), b.getBucketStart(), 0), k -> new ArrayList<>())
+                    .add(b);
+        }
+
+        Map<BucketKey, Totals> computed = new HashMap<>();
+        for (Object[] r : orderRepository.sumCountedOrdersByDay()) {
+            LocalDateTime start = LocalDate.of(toInt(r[0]), toInt(r[1]), toInt(r[2])).atStartOfDay();
+            computed.put(new BucketKey(DAY, start, 0), Totals.ZERO.plus(toDecimal(r[3]), toDecimal(r[4]), toLong(r[5])));
+        }
+        for (Object[] r : orderRepository.sumCountedOrdersByHour(cutoff)) {
+            LocalDateTime start = LocalDate.of(toInt(r[0]), toInt(r[1]), toInt(r[2])).atTime(toInt(r[3]), 0);
+            computed.put(new BucketKey(HOUR, start, 0), Totals.ZERO.plus(toDecimal(r[4]), toDecimal(r[5]), toLong(r[6])));
+        }
+
+        int drifted = 0;
+        List<EmissionBucket> created = new ArrayList<>();
+        for (Map.Entry<BucketKey, List<EmissionBucket>> entry : rows.entrySet()) {
+            BucketKey key = entry.getKey();
+            if (HOUR.equals(key.resolution()) && key.start().isBefore(cutoff)) {
+                continue;   // past the retention, about to be purged
+            }
+            Totals is = computed.getOrDefault(key, Totals.ZERO);
+            Totals was = Totals.ZERO;
+            for (EmissionBucket b : entry.getValue()) {
+                was = was.plus(b.getCo2(), b.getRevenue(), b.getOrderCount());
+            }
+            if (was.sameAs(is)) {
+                continue;
+            }
+            drifted++;
+            EmissionBucket target = entry.getValue().stream()
+                    .filter(b -> b.getSlot() == 0).findFirst().orElse(null);
+            if (target == null) {
+                target = new EmissionBucket(key.resolution(), key.start(), 0);
+                created.add(target);
+            }
+            for (EmissionBucket b : entry.getValue()) {
+                set(b, Totals.ZERO);
+            }
+            set(target, is);
+        }
+        for (Map.Entry<BucketKey, Totals> entry : computed.entrySet()) {
+            if (!rows.containsKey(entry.getKey())) {
+                drifted++;
+                EmissionBucket b = new EmissionBucket(entry.getKey().resolution(), entry.getKey().start(), 0);
+                set(b, entry.getValue());
+                created.add(b);
+            }
+        }
+        // Locked rows are managed: dirty checking writes only the ones that changed
+        bucketRepository.saveAll(created);
+        return drifted;
+    }
+
+    // ── Reads ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Order CO2 and revenue per period from the start of {@code from}'s
+     * period through the end of {@code to}'s, zero-filled. Hourly trends
+     * only reach back as far as the hourly retention.
+     *
+     * @throws IllegalArgumentException if {@code to} is before {@code from}
+     *         or the range holds too many points for the granularity
+     */
+    @Transactional(readOnly = true)
+    public EmissionTrendDto getTrend(LocalDate from, LocalDate to, Granularity granularity) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate begin = from != null ? from : granularity.defaultFrom(end);
+        if (end.isBefore(begin)) {
+            throw new IllegalArgumentException("'to' must not be before 'from'");
+        }
+        LocalDateTime first = granularity.start(begin.atStartOfDay());
+        LocalDateTime last = granularity.start(end.atStartOfDay());
+        if (granularity == Granularity.HOUR) {
+            last = end.atTime(23, 0);
+        }
+        LocalDateTime until = granularity.next(last);
+        long points = granularity == Granularity.HOUR ? ChronoUnit.HOURS.between(first, until)
+                : granularity == Granularity.DAY ? ChronoUnit.DAYS.between(first, until)
+                : granularity == Granularity.WEEK ? ChronoUnit.WEEKS.between(first, until)
+                : ChronoUnit.MONTHS.between(first, until);
+        if (points > MAX_POINTS) {
+            throw new IllegalArgumentException("Range too long: " + points + " points at " + name(granularity)
+                    + " granularity (max " + MAX_POINTS + "); use a coarser granularity");
+        }
+
+        // Days (or hours) added up into the requested periods
+        String resolution = granularity == Granularity.HOUR ? HOUR : DAY;
+        Map<LocalDateTime, Totals> byPeriod = new TreeMap<>();
+        for (Object[] r : bucketRepository.sumByBucket(resolution, first, until)) {
+            byPeriod.merge(granularity.start((LocalDateTime) r[0]),
+                    Totals.ZERO.plus(toDecimal(r[1]), toDecimal(r[2]), toLong(r[3])),
+                    (a, b) -> a.plus(b.co2(), b.revenue(), b.orderCount()));
+        }
+
+        List<EmissionTrendDto.Point> series = new ArrayList<>((int) points);
+        Totals total = Totals.ZERO;
+        for (LocalDateTime t = first; t.isBefore(until); t = granularity.next(t)) {
+            Totals p = byPeriod.getOrDefault(t, Totals.ZERO);
+            series.add(new EmissionTrendDto.Point(t, p.co2().doubleValue(), p.revenue().doubleValue(),
+                    p.orderCount()));
+            total = total.plus(p.co2(), p.revenue(), p.orderCount());
+        }
+
+        EmissionTrendDto dto = new EmissionTrendDto();
+        dto.setGranularity(name(granularity));
+        dto.setFrom(first);
+        dto.setTo(until);
+        dto.setTotalCO2(total.co2().doubleValue());
+        dto.setTotalRevenue(total.revenue().doubleValue());
+        dto.setTotalOrders(total.orderCount());
+        dto.setPoints(series);
+        return dto;
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────────
+
+    private LocalDateTime hourlyCutoff(LocalDateTime now) {
+        return now.minus(hourlyRetention).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static void set(EmissionBucket b, Totals totals) {
+        b.setCo2(totals.co2());
+        b.setRevenue(totals.revenue());
+        b.setOrderCount(totals.orderCount());
+    }
+
+    private static String name(Granularity granularity) {
+        return granularity.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static int toInt(Object value) {
+        return ((Number) value).intValue();
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static BigDecimal toDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal d ? d : new BigDecimal(value.toString());
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,185 @@
+package com.ecobazaarx.service;
+
+import com.ecobazaarx.entity.IdempotencyRecord;
+import com.ecobazaarx.exception.IdempotencyConflictException;
+import com.ecobazaarx.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Makes non-repeatable requests safe to retry via an {@code Idempotency-Key}.
+ *
+ * The first request with a key inserts its record and runs the action in the
+ * same transaction, then stores the serialized response. The unique
+ * (user_id, idem_key) index does the locking: a concurrent duplicate blocks
+ * on the index until the first one commits, fails the insert, and replays
+ * the stored response. If the action fails, the record rolls back with it
+ * and the key can be retried.
+ *
+ * Recent responses are also kept in a bounded in-memory LRU, so a burst of
+ * client retries does not hit the database at all. Records expire after
+ * {@code app.idempotency.ttl-hours} and are purged hourly.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    /** Response of an idempotent call; {@code replayed} when it came from an earlier request. */
+    public record Result<T>(T body, boolean replayed) {}
+
+    private record Stored(String requestHash, String responseJson, LocalDateTime expiresAt) {}
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Map<String, Stored> recent;
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${app.idempotency.cache-size:10000}") int cacheSize) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} once per (user, key). Repeats with the same key and
+     * the same {@code fingerprint} get the first response back; a different
+     * fingerprint is rejected. Without a key the action simply runs.
+     */
+    public <T> Result<T> execute(Long userId, String key, String fingerprint,
+                                 Class<T> type, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return new Result<>(action.get(), false);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = sha256(fingerprint);
+        String cacheKey = userId + ":" + key;
+        LocalDateTime now = LocalDateTime.now();
+
+        Stored cached = recent.get(cacheKey);
+        if (cached != null && cached.expiresAt().isAfter(now)) {
+            return replay(cached, requestHash, type);
+        }
+
+        Optional<IdempotencyRecord> existing = repository.findByUserIdAndIdemKey(userId, key);
+        if (existing.isPresent() && existing.get().getExpiresAt().isAfter(now)) {
+            return replay(remember(cacheKey, existing.get()), requestHash, type);
+        }
+
+        LocalDateTime expiresAt = now.plus(ttl);
+        AtomicReference<T> body = new AtomicReference<>();
+        try {
+            Stored stored = transactionTemplate.execute(status -> {
+                existing.ifPresent(repository::delete);   // expired but not purged yet
+                IdempotencyRecord record = repository.saveAndFlush(
+                        new IdempotencyRecord(userId, key, requestHash, expiresAt));
+                body.set(action.get());
+                record.setResponseJson(toJson(body.get()));
+                return new Stored(requestHash, record.getResponseJson(), expiresAt);
+            });
+            recent.put(cacheKey, stored);
+            return new Result<>(body.get(), false);
+        } catch (DataIntegrityViolationException e) {
+            // Lost the race to a concurrent request with the same key, which has committed by now
+            IdempotencyRecord winner = repository.findByUserIdAndIdemKey(userId, key).orElseThrow(() -> e);
+            return replay(remember(cacheKey, winner), requestHash, type);
+        }
+    }
+
+    /** Builds the fingerprint of a request from its method/path and body parts. */
+    public String fingerprint(String route, Object... parts) {
+        StringBuilder sb = new StringBuilder(route);
+        for (Object part : parts) {
+            sb.append('\n').append(toJson(part));
+        }
+        return sb.toString();
+    }
+
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT5M")
+    @Transactional
+    public void purgeExpired() {
+        int removed = repository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            log.info("Purged {} expired idempotency keys", removed);
+        }
+    }
+
+    private Stored remember(String cacheKey, IdempotencyRecord record) {
+        Stored stored = new Stored(record.getRequestHash(), record.getResponseJson(), record.getExpiresAt());
+        if (stored.responseJson() != null) {
+            recent.put(cacheKey, stored);
+        }
+        return stored;
+    }
+
+    private <T> Result<T> replay(Stored stored, String requestHash, Class<T> type) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency-Key has already been used for a different request");
+        }
+        if (stored.responseJson() == null) {
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still being processed");
+        }
+        try {
+            return new Result<>(objectMapper.readValue(stored.responseJson(), type), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response could not be read", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize idempotent response", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.ecobazaarx.service;
+
+import java.util.Collection;
+import java.util.function.BiConsumer;
+
+/**
+ * Carries cache invalidations between backend instances. Not provided by
+ * default: with a single instance {@link CacheInvalidationBus} only
+ * invalidates locally. A multi-node deployment registers one bean of this
+ * type (e.g. on Redis pub/sub or a message broker) and every node's local
+ * caches then follow writes made on any node.
+ */
+public interface InvalidationTransport {
+
+    /** Sends an invalidation to every other node. Must not deliver it back to this node. */
+    void broadcast(String cacheName, Collection<Long> ids);
+
+    /** Registers the handler that invalidations from other nodes are passed to. */
+    void onReceive(BiConsumer<String, Collection<Long>> handler);
+}
@@ -3,46 +3,61 @@ package com.ecobazaarx.service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.ecobazaarx.dto.CreateOrderRequest;
+import com.ecobazaarx.dto.CursorPage;
 import com.ecobazaarx.dto.OrderDto;
 import com.ecobazaarx.dto.UserOrderStats;
-import com.ecobazaarx.entity.Cart;
-import com.ecobazaarx.entity.CartItem;
 import com.ecobazaarx.entity.Order;
 import com.ecobazaarx.entity.OrderItem;
 import com.ecobazaarx.entity.OrderStatus;
 import com.ecobazaarx.entity.Product;
 import com.ecobazaarx.entity.User;
 import com.ecobazaarx.exception.AccessDeniedException;
+import com.ecobazaarx.exception.InsufficientStockException;
 import com.ecobazaarx.exception.ResourceNotFoundException;
 import com.ecobazaarx.mapper.OrderMapper;
+import com.ecobazaarx.repository.CartItemRepository;
 import com.ecobazaarx.repository.CartRepository;
+import com.ecobazaarx.repository.CheckoutJdbcRepository;
 import com.ecobazaarx.repository.OrderItemRepository;
 import com.ecobazaarx.repository.OrderRepository;
 import com.ecobazaarx.repository.ProductRepository;
 import com.ecobazaarx.repository.UserRepository;
+import com.ecobazaarx.service.cart.StoredCart;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrderService {
 
+    /** Upper bound for keyset page sizes on order history. */
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     private final OrderRepository     orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final CartRepository      cartRepository;
     private final UserRepository      userRepository;
     private final ProductService      productService;
-    private final CartService         cartService;
     private final OrderMapper         orderMapper;
     private final ProductRepository   productRepository;
+    private final CartItemRepository  cartItemRepository;
+    private final CheckoutJdbcRepository checkoutJdbcRepository;
+    private final TrackingNumberGenerator trackingNumberGenerator;
+    private final CartService cartService;
+    private final ProductCache productCache;
+    private final CarbonRollupService carbonRollups;
+    private final TrendingProducts trendingProducts;
 
     @Autowired
     public OrderService(OrderRepository orderRepository,
@@ -50,48 +65,83 @@ public class OrderService {
                         CartRepository cartRepository,
                         UserRepository userRepository,
                         ProductService productService,
-                        CartService cartService,
                         OrderMapper orderMapper,
-                        ProductRepository productRepository) {
+                        ProductRepository productRepository,
+                        CartItemRepository cartItemRepository,
+                        CheckoutJdbcRepository checkoutJdbcRepository,
+                        TrackingNumberGenerator trackingNumberGenerator,
+                        CartService cartService,
+                        ProductCache productCache,
+                        CarbonRollupService carbonRollups,
+                        TrendingProducts trendingProducts) {
         this.orderRepository     = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.cartRepository      = cartRepository;
         this.userRepository      = userRepository;
         this.productService      = productService;
-        this.cartService         = cartService;
         this.orderMapper         = orderMapper;
         this.productRepository   = productRepository;
+        this.cartItemRepository  = cartItemRepository;
+        this.checkoutJdbcRepository = checkoutJdbcRepository;
+        this.trackingNumberGenerator = trackingNumberGenerator;
+        this.cartService = cartService;
+        this.productCache = productCache;
+        this.carbonRollups = carbonRollups;
+        this.trendingProducts = trendingProducts;
     }
 
+    /**
+     * Checkout pipeline with a fixed number of statements, whatever the cart size:
+     *  1. flush the user's cart from the cart store, load its products (1 query)
+     *     and validate it in memory
+     *  2. take stock for every line in one sorted JDBC batch of conditional UPDATEs
+     *  3. insert the order and all of its lines (sequence ids, so Hibernate batches them)
+     *  4. delete the cart lines and zero the cart totals with one statement each
+     *
+     * Any line without enough stock rolls the whole order back.
+     */
     public OrderDto createOrderFromCart(Long userId, CreateOrderRequest request) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-
-        Optional<Cart> cartOptional = cartRepository.findByUserWithItems(user);
-        if (cartOptional.isEmpty() || cartOptional.get().getCartItems().isEmpty()) {
+        StoredCart cart = cartService.cartForCheckout(userId);
+        if (cart.lines().isEmpty()) {
             throw new IllegalStateException("Cart is empty");
         }
 
-        Cart cart = cartOptional.get();
-        if (!cartService.validateCart(userId)) {
-            throw new IllegalStateException("Cart validation failed. Some items may be out of stock or unavailable.");
+        // Ascending product id = the order row locks are taken in (see decrementStock)
+        Map<Long, Integer> quantities = new TreeMap<>();
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(cart.productIds()).forEach(p -> products.put(p.getId(), p));
+        for (StoredCart.Line line : cart.lines().values()) {
+            Product product = products.get(line.productId());
+            if (product == null || !"active".equalsIgnoreCase(product.getStatus())
+                    || product.getStockQuantity() < line.quantity()) {
+                throw new IllegalStateException("Cart validation failed. Some items may be out of stock or unavailable.");
+            }
+            quantities.put(product.getId(), line.quantity());
         }
 
-        Order order = new Order(user, cart.getTotalAmount());
-        order.setEstimatedDelivery(LocalDateTime.now().plusDays(5));
-        Order savedOrder = orderRepository.save(order);
+        List<Long> outOfStock = checkoutJdbcRepository.decrementStock(quantities);
+        if (!outOfStock.isEmpty()) {
+            throw new InsufficientStockException(
+                    "Insufficient stock for product: " + products.get(outOfStock.get(0)).getName());
+        }
+        productCache.invalidate(quantities.keySet());
 
-        for (CartItem cartItem : cart.getCartItems()) {
-            OrderItem orderItem = new OrderItem(savedOrder, cartItem.getProduct(),
-                    cartItem.getQuantity(), cartItem.getProduct().getPrice());
-            orderItemRepository.save(orderItem);
-            savedOrder.addOrderItem(orderItem);
-            productService.reduceProductStock(cartItem.getProduct().getId(), cartItem.getQuantity());
+        Order order = new Order(userRepository.getReferenceById(userId), BigDecimal.ZERO);
+        order.setTrackingNumber(trackingNumberGenerator.next());
+        order.setEstimatedDelivery(LocalDateTime.now().plusDays(5));
+        for (StoredCart.Line line : cart.lines().values()) {
+            Product product = products.get(line.productId());
+            order.addOrderItem(new OrderItem(order, product, line.quantity(), product.getPrice()));
         }
+        order.calculateTotals();
+        // Lines cascade from the order and go out as one JDBC batch at flush
+        Order savedOrder = orderRepository.save(order);
+        carbonRollups.orderPlaced(savedOrder);
+        trendingProducts.orderPlaced(savedOrder);
 
-        savedOrder.calculateTotals();
-        savedOrder = orderRepository.save(savedOrder);
-        cartService.clearCart(userId);
+        cartItemRepository.deleteAllByCartId(cart.cartId());
+        cartRepository.resetTotals(cart.cartId());
+        cartService.checkedOut(userId, cart);
         return orderMapper.toDto(savedOrder);
     }
 
@@ -105,24 +155,25 @@ public class OrderService {
         if (!"active".equalsIgnoreCase(product.getStatus())) {
             throw new IllegalStateException("Product is not available");
         }
-        if (product.getStockQuantity() < quantity) {
-            throw new IllegalStateException("Insufficient stock. Available: " + product.getStockQuantity());
-        }
+        // Stock is checked and taken in one conditional UPDATE; see reduceProductStock
+        productService.reduceProductStock(product.getId(), quantity);
 
         BigDecimal price       = product.getPrice();
         BigDecimal totalAmount = price.multiply(BigDecimal.valueOf(quantity));
 
         Order order = new Order(user, totalAmount);
+        order.setTrackingNumber(trackingNumberGenerator.next());
         order.setEstimatedDelivery(LocalDateTime.now().plusDays(5));
         Order savedOrder = orderRepository.save(order);
 
         OrderItem orderItem = new OrderItem(savedOrder, product, quantity, price);
         orderItemRepository.save(orderItem);
         savedOrder.addOrderItem(orderItem);
-        productService.reduceProductStock(product.getId(), quantity);
 
         savedOrder.calculateTotals();
         savedOrder = orderRepository.save(savedOrder);
+        carbonRollups.orderPlaced(savedOrder);
+        trendingProducts.orderPlaced(savedOrder);
         return orderMapper.toDto(savedOrder);
     }
 
@@ -142,6 +193,40 @@ public class OrderService {
                 .map(orderMapper::toDto);
     }
 
+    /**
+     * Keyset-paginated order history, newest first. Seeks past the
+     * (orderDate, id) of the previous page's last order instead of using
+     * OFFSET, so deep pages cost the same as the first one. The total is only
+     * counted when {@code includeTotal} is set.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderDto> getUserOrdersAfter(Long userId, String after, int size, boolean includeTotal) {
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<Order> rows;
+        if (after == null || after.isBlank()) {
+            rows = orderRepository.findFirstPageByUserId(userId, limit);
+        } else {
+            CursorPage.Key key = CursorPage.decodeCursor(after);
+            rows = orderRepository.findPageByUserIdAfter(userId, key.timestamp(), key.id(), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Order> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = page.get(page.size() - 1);
+            nextCursor = CursorPage.encodeCursor(last.getOrderDate(), last.getId());
+        }
+        Long total = includeTotal
+                ? orderRepository.countOrdersByUser(userRepository.getReferenceById(userId))
+                : null;
+
+        return new CursorPage<>(page.stream().map(orderMapper::toDto).collect(Collectors.toList()),
+                nextCursor, hasMore, total);
+    }
+
     @Transactional(readOnly = true)
     public OrderDto getOrderById(Long orderId, Long userId) {
         Order order = orderRepository.findById(orderId)
@@ -189,6 +274,7 @@ public class OrderService {
                 }
                 break;
         }
+        carbonRollups.orderStatusChanged(order, currentStatus);
 
         return orderMapper.toDto(orderRepository.save(order));
     }
@@ -202,8 +288,10 @@ public class OrderService {
         if (order.getStatus() == OrderStatus.DELIVERED || order.getStatus() == OrderStatus.CANCELLED) {
             throw new IllegalStateException("Order cannot be cancelled in current status: " + order.getStatus());
         }
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
         restoreProductStock(order);
+        carbonRollups.orderStatusChanged(order, previousStatus);
         return orderMapper.toDto(orderRepository.save(order));
     }
 
@@ -254,9 +342,7 @@ public class OrderService {
 
     private void restoreProductStock(Order order) {
         for (OrderItem orderItem : order.getOrderItems()) {
-            Product product = orderItem.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + orderItem.getQuantity());
-            productRepository.save(product);
+            productService.restoreProductStock(orderItem.getProduct().getId(), orderItem.getQuantity());
         }
     }
 
@@ -285,7 +371,9 @@ public class OrderService {
         orderRepository.save(order);
 
         if (order.getOrderItems().stream().allMatch(i -> i.getStatus() == OrderStatus.SHIPPED)) {
+            OrderStatus previousStatus = order.getStatus();
             order.setStatus(OrderStatus.SHIPPED);
+            carbonRollups.orderStatusChanged(order, previousStatus);
         }
 
         return orderMapper.toDto(order);
@@ -320,6 +408,7 @@ public class OrderService {
         } else {
             throw new IllegalStateException("Consumers can only mark orders as delivered or cancelled.");
         }
+        carbonRollups.orderStatusChanged(order, currentStatus);
 
         return orderMapper.toDto(orderRepository.save(order));
     }
@@ -0,0 +1,153 @@
+package com.ecobazaarx.service;
+
+import com.ecobazaarx.repository.ProductRepository;
+import com.ecobazaarx.repository.ProductSummary;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of {@link ProductSummary} rows by product id, for the
+ * paths that read the same hot products over and over: product details,
+ * availability checks and the cart.
+ *
+ * Caffeine provides the W-TinyLFU eviction, bounded by the estimated size
+ * of the cached rows rather than their count. Entries expire after
+ * {@code app.cache.products.ttl}; products that are low on stock or
+ * inactive expire after {@code app.cache.products.volatile-ttl}, since they
+ * are the ones whose availability is about to change. Writers invalidate
+ * through {@link CacheInvalidationBus} after commit, so other nodes follow
+ * as well when a transport is configured.
+ *
+ * Summaries are projections, not entities: they are immutable and carry no
+ * lazy associations, so sharing them between requests is safe.
+ */
+@Component
+public class ProductCache {
+
+    public static final String NAME = "products";
+
+    private final ProductRepository productRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final Cache<Long, ProductSummary> cache;
+
+    /**
+     * Bumped on every invalidation. Bulk loads are not atomic per key, so a
+     * bulk load that overlapped an invalidation is returned but not cached.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public ProductCache(ProductRepository productRepository,
+                        CacheInvalidationBus invalidationBus,
+                        @Value("${app.cache.products.max-bytes:33554432}") long maxBytes,
+                        @Value("${app.cache.products.ttl:PT10M}") Duration ttl,
+                        @Value("${app.cache.products.volatile-ttl:PT30S}") Duration volatileTtl,
+                        @Value("${app.cache.products.low-stock:10}") int lowStock) {
+        this.productRepository = productRepository;
+        this.invalidationBus = invalidationBus;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long id, ProductSummary p) -> estimateBytes(p))
+                .expireAfter(new Expiry<Long, ProductSummary>() {
+                    @Override
+                    public long expireAfterCreate(Long id, ProductSummary p, long currentTime) {
+                        boolean volatileEntry = !"active".equalsIgnoreCase(p.getStatus())
+                                || p.getStockQuantity() == null || p.getStockQuantity() <= lowStock;
+                        return (volatileEntry ? volatileTtl : ttl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long id, ProductSummary p, long currentTime, long currentDuration) {
+                        return expireAfterCreate(id, p, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long id, ProductSummary p, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        invalidationBus.subscribe(NAME, ids -> {
+            invalidations.incrementAndGet();
+            cache.invalidateAll(ids);
+        });
+    }
+
+    /** The product, whatever its status; empty if it does not exist (not cached). */
+    public Optional<ProductSummary> get(Long id) {
+        return Optional.ofNullable(cache.get(id, key -> productRepository.findSummaryById(key).orElse(null)));
+    }
+
+    /** The products that exist among {@code ids}, by id, with one query for all the misses. */
+    public Map<Long, ProductSummary> getAll(Collection<Long> ids) {
+        Map<Long, ProductSummary> found = new HashMap<>(cache.getAllPresent(ids));
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            if (!found.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long before = invalidations.get();
+            List<ProductSummary> loaded = productRepository.findSummariesByIdIn(missing);
+            boolean cacheable = invalidations.get() == before;
+            for (ProductSummary p : loaded) {
+                found.put(p.getId(), p);
+                if (cacheable) {
+                    cache.asMap().putIfAbsent(p.getId(), p);
+                }
+            }
+        }
+        return found;
+    }
+
+    /** Drops the products here and on the other nodes once the current transaction commits. */
+    public void invalidate(Collection<Long> ids) {
+        invalidationBus.publishAfterCommit(NAME, List.copyOf(ids));
+    }
+
+    public void invalidate(Long id) {
+        invalidate(List.of(id));
+    }
+
+    /** Hit/miss/eviction counters and current size, for the admin cache endpoint. */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", cache.estimatedSize());
+        result.put("weightBytes", cache.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L));
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("invalidations", invalidations.get());
+        result.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        return result;
+    }
+
+    // Rough heap footprint of a summary: fixed part plus its strings (2 bytes per char)
+    private static int estimateBytes(ProductSummary p) {
+        return 256 + 2 * (length(p.getName()) + length(p.getType()) + length(p.getDescription())
+                + length(p.getStatus()) + length(p.getSellerName()) + length(p.getImageKey()));
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+}
@@ -1,55 +1,150 @@
 package com.ecobazaarx.service;
 
+import com.ecobazaarx.dto.CursorPage;
 import com.ecobazaarx.dto.ProductDto;
 import com.ecobazaarx.entity.Product;
 import com.ecobazaarx.entity.User;
+import com.ecobazaarx.repository.CheckoutJdbcRepository;
 import com.ecobazaarx.repository.ProductRepository;
+import com.ecobazaarx.repository.ProductSummary;
 import com.ecobazaarx.repository.UserRepository;
+import com.ecobazaarx.exception.InsufficientStockException;
 import com.ecobazaarx.exception.ResourceNotFoundException;
 import com.ecobazaarx.mapper.ProductMapper;
+import com.ecobazaarx.service.CarbonRollupService.ProductCarbon;
+import com.ecobazaarx.service.search.ProductSearchIndex;
+import com.ecobazaarx.storage.ImageStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ProductService {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductService.class);
+
+    /** Upper bound for keyset page sizes, so one request cannot pull the whole catalog. */
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    /** Upper bound for the trending products limit. */
+    private static final int MAX_TRENDING_PRODUCTS = 50;
+    /** Upper bound for the unpaged search; callers needing more use the paged search. */
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
     private final UserRepository userRepository;
+    private final ProductSearchIndex searchIndex;
+    private final ImageStorageService imageStorage;
+    private final ProductCache productCache;
+    private final CarbonRollupService carbonRollups;
+    private final TrendingProducts trendingProducts;
+    private final CheckoutJdbcRepository checkoutJdbcRepository;
 
     @Autowired
     public ProductService(ProductRepository productRepository,
                           ProductMapper productMapper,
-                          UserRepository userRepository) {
+                          UserRepository userRepository,
+                          ProductSearchIndex searchIndex,
+                          ImageStorageService imageStorage,
+                          ProductCache productCache,
+                          CarbonRollupService carbonRollups,
+                          TrendingProducts trendingProducts,
+                          CheckoutJdbcRepository checkoutJdbcRepository) {
         this.productRepository = productRepository;
         this.productMapper = productMapper;
         this.userRepository = userRepository;
+        this.searchIndex = searchIndex;
+        this.imageStorage = imageStorage;
+        this.productCache = productCache;
+        this.carbonRollups = carbonRollups;
+        this.trendingProducts = trendingProducts;
+        this.checkoutJdbcRepository = checkoutJdbcRepository;
+    }
+
+    /**
+     * Builds the search index from every active product once the application
+     * (including DataInitializer's seed data) is up. After this, the index is
+     * maintained incrementally by the write methods below.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildSearchIndex() {
+        searchIndex.clear();
+        for (Object[] row : productRepository.findActiveSearchDocuments()) {
+            searchIndex.index((Long) row[0], (String) row[1], (String) row[2], (String) row[3]);
+        }
+        log.info("Product search index built with {} active products", searchIndex.size());
     }
 
+    // List endpoints read ProductSummary projections, which leave out the
+    // LONGTEXT image column; the DTOs carry an image URL instead.
+
     @Transactional(readOnly = true)
     public List<ProductDto> getAllProducts() {
-        return productRepository.findByStatusOrderByCreatedDateDesc("active")
+        return productRepository.findSummariesByStatus("active")
                 .stream().map(productMapper::toDto).collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public Page<ProductDto> getAllProducts(int page, int size) {
-        return productRepository.findByStatusOrderByCreatedDateDesc("active", PageRequest.of(page, size))
+        return productRepository.findSummariesByStatus("active", PageRequest.of(page, size))
                 .map(productMapper::toDto);
     }
 
+    /**
+     * Keyset-paginated listing of active products, newest first.
+     *
+     * {@code after} is the cursor returned with the previous page (null or blank
+     * for the first page). One extra row is fetched to learn whether another
+     * page exists, so no COUNT query is issued unless {@code includeTotal} is set.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ProductDto> getProductsAfter(String after, int size, boolean includeTotal) {
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<ProductSummary> rows;
+        if (after == null || after.isBlank()) {
+            rows = productRepository.findFirstPageByStatus("active", limit);
+        } else {
+            CursorPage.Key key = CursorPage.decodeCursor(after);
+            rows = productRepository.findPageByStatusAfter("active", key.timestamp(), key.id(), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductSummary> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            ProductSummary last = page.get(page.size() - 1);
+            nextCursor = CursorPage.encodeCursor(last.getCreatedDate(), last.getId());
+        }
+        Long total = includeTotal ? productRepository.countByStatusIgnoreCase("active") : null;
+
+        return new CursorPage<>(page.stream().map(productMapper::toDto).collect(Collectors.toList()),
+                nextCursor, hasMore, total);
+    }
+
     @Transactional(readOnly = true)
     public ProductDto getProductById(Long id) {
-        Product product = productRepository.findById(id)
+        ProductSummary product = productCache.get(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
         if (!"active".equalsIgnoreCase(product.getStatus())) {
             throw new ResourceNotFoundException("Product is no longer available");
@@ -57,15 +152,50 @@ public class ProductService {
         return productMapper.toDto(product);
     }
 
+    /**
+     * Where a product's image can be fetched: its blob store URL, an external
+     * URL, or (for rows the backfill has not reached yet) an inline data URI.
+     * Read on its own so list endpoints never have to select the image column.
+     */
+    @Transactional(readOnly = true)
+    public String getProductImage(Long id) {
+        List<Object[]> rows = productRepository.findImageById(id);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Product not found with id: " + id);
+        }
+        String imageKey = (String) rows.get(0)[0];
+        String image = (String) rows.get(0)[1];
+        if (imageKey != null) {
+            return ProductMapper.blobUrl(imageKey);
+        }
+        if (image == null || image.isBlank()) {
+            throw new ResourceNotFoundException("Product " + id + " has no image");
+        }
+        return image;
+    }
+
+    /** The most relevant active products matching {@code searchTerm} (at most MAX_SEARCH_RESULTS), best first. */
     @Transactional(readOnly = true)
     public List<ProductDto> searchProducts(String searchTerm) {
-        return productRepository.searchProducts(searchTerm)
-                .stream().map(productMapper::toDto).collect(Collectors.toList());
+        ProductSearchIndex.SearchResult result = searchIndex.search(searchTerm, 0, MAX_SEARCH_RESULTS);
+        return loadInRankOrder(result.productIds());
+    }
+
+    /**
+     * One page of search results in relevance order. Only the products on the
+     * requested page are loaded from the database.
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductDto> searchProducts(String searchTerm, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        ProductSearchIndex.SearchResult result =
+                searchIndex.search(searchTerm, (int) pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(loadInRankOrder(result.productIds()), pageable, result.totalHits());
     }
 
     @Transactional(readOnly = true)
     public List<ProductDto> getProductsByType(String type) {
-        return productRepository.findByTypeAndStatusOrderByNameAsc(type, "active")
+        return productRepository.findSummariesByTypeAndStatus(type, "active")
                 .stream().map(productMapper::toDto).collect(Collectors.toList());
     }
 
@@ -91,45 +221,75 @@ public class ProductService {
         User seller = userRepository.findById(sellerId)
                 .orElseThrow(() -> new ResourceNotFoundException("Seller not found with id: " + sellerId));
         Product product = productMapper.toEntity(productDto, seller);
+        applyImage(product, productDto.getImage());
         product.setStatus("active");
-        return productMapper.toDto(productRepository.save(product));
+        Product saved = productRepository.save(product);
+        syncSearchIndex(saved);
+        carbonRollups.productChanged(null, ProductCarbon.of(saved));
+        return productMapper.toDto(saved);
     }
 
     public ProductDto updateProduct(Long id, ProductDto productDto) {
         Product existing = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+        ProductCarbon before = ProductCarbon.of(existing);
         applyProductUpdates(existing, productDto);
-        return productMapper.toDto(productRepository.save(existing));
+        Product saved = productRepository.save(existing);
+        syncSearchIndex(saved);
+        carbonRollups.productChanged(before, ProductCarbon.of(saved));
+        productCache.invalidate(id);
+        return productMapper.toDto(saved);
     }
 
     public ProductDto updateProductStock(Long id, Integer newStock) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
         product.setStockQuantity(newStock);
+        productCache.invalidate(id);
         return productMapper.toDto(productRepository.save(product));
     }
 
+    /**
+     * Takes stock for an order line with a single conditional UPDATE instead
+     * of read-check-write, so concurrent checkouts cannot oversell. The
+     * product is only read again when the update fails, to explain why.
+     */
     public void reduceProductStock(Long productId, Integer quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1");
+        }
+        if (checkoutJdbcRepository.decrementStock(productId, quantity)) {
+            productCache.invalidate(productId);
+            return;
+        }
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
-        if (product.getStockQuantity() < quantity) {
-            throw new IllegalStateException("Insufficient stock for product: " + product.getName());
+        if (!"active".equalsIgnoreCase(product.getStatus())) {
+            throw new InsufficientStockException("Product is no longer available: " + product.getName());
         }
-        product.setStockQuantity(product.getStockQuantity() - quantity);
-        product.setSales(product.getSales() + quantity);
-        productRepository.save(product);
+        throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+    }
+
+    /** Returns stock taken by {@link #reduceProductStock}. */
+    public void restoreProductStock(Long productId, Integer quantity) {
+        checkoutJdbcRepository.incrementStock(productId, quantity);
+        productCache.invalidate(productId);
     }
 
     public void deleteProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+        ProductCarbon before = ProductCarbon.of(product);
         product.setStatus("inactive");
         productRepository.save(product);
+        syncSearchIndex(product);
+        carbonRollups.productChanged(before, null);
+        productCache.invalidate(id);
     }
 
     @Transactional(readOnly = true)
     public boolean isProductAvailable(Long productId, Integer quantity) {
-        Product product = productRepository.findById(productId)
+        ProductSummary product = productCache.get(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
         return "active".equalsIgnoreCase(product.getStatus()) && product.getStockQuantity() >= quantity;
     }
@@ -148,8 +308,13 @@ public class ProductService {
     public ProductDto updateProductStatus(Long id, String status) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id " + id));
+        ProductCarbon before = ProductCarbon.of(product);
         product.setStatus(status);
-        return productMapper.toDto(productRepository.save(product));
+        Product saved = productRepository.save(product);
+        syncSearchIndex(saved);
+        carbonRollups.productChanged(before, ProductCarbon.of(saved));
+        productCache.invalidate(id);
+        return productMapper.toDto(saved);
     }
 
     public ProductDto updateProductRating(Long id, BigDecimal rating) {
@@ -159,6 +324,7 @@ public class ProductService {
             throw new IllegalArgumentException("Rating must be between 0 and 5");
         }
         product.setRating(rating);
+        productCache.invalidate(id);
         return productMapper.toDto(productRepository.save(product));
     }
 
@@ -171,11 +337,13 @@ public class ProductService {
      */
     @Transactional(readOnly = true)
     public List<ProductDto> getRecommendations(Long productId, int limit) {
-        Product source = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
-
-        BigDecimal footprint = source.getFootprint();
-        List<Product> recommended;
+        List<Object[]> sourceRows = productRepository.findTypeAndFootprintById(productId);
+        if (sourceRows.isEmpty()) {
+            throw new ResourceNotFoundException("Product not found with id: " + productId);
+        }
+        String type = (String) sourceRows.get(0)[0];
+        BigDecimal footprint = (BigDecimal) sourceRows.get(0)[1];
+        List<ProductSummary> recommended;
 
         if (footprint != null && footprint.compareTo(BigDecimal.ZERO) > 0) {
             // Allow ±60% carbon footprint range for flexible matching
@@ -186,23 +354,23 @@ public class ProductService {
                 minFootprint = BigDecimal.ZERO;
             }
 
-            recommended = productRepository.findRecommendedProducts(
-                    source.getId(),
-                    source.getType(),
+            recommended = new ArrayList<>(productRepository.findRecommendedProducts(
+                    productId,
+                    type,
                     minFootprint,
                     maxFootprint,
-                    PageRequest.of(0, limit));
+                    PageRequest.of(0, limit)));
 
             // If we don't have enough, top-up with type-only fallback results
             if (recommended.size() < limit) {
                 List<Long> existingIds = recommended.stream()
-                        .map(Product::getId)
+                        .map(ProductSummary::getId)
                         .collect(Collectors.toList());
-                existingIds.add(source.getId());
+                existingIds.add(productId);
 
-                List<Product> fallback = productRepository.findRecommendedProductsByTypeOnly(
-                        source.getId(),
-                        source.getType(),
+                List<ProductSummary> fallback = productRepository.findRecommendedProductsByTypeOnly(
+                        productId,
+                        type,
                         PageRequest.of(0, limit + recommended.size()));
 
                 fallback.stream()
@@ -213,8 +381,8 @@ public class ProductService {
         } else {
             // No footprint data — fall back to type-only
             recommended = productRepository.findRecommendedProductsByTypeOnly(
-                    source.getId(),
-                    source.getType(),
+                    productId,
+                    type,
                     PageRequest.of(0, limit));
         }
 
@@ -223,6 +391,37 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Up to {@code limit} active products selling fastest in the recent
+     * {@code window} (see TrendingProducts), with bounds on the units they
+     * sold in it: "minUnitsSold" and "maxUnitsSold".
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getTrendingProducts(String window, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_TRENDING_PRODUCTS));
+        List<TrendingProducts.Entry> ranked = trendingProducts.top(window);
+        // Inactive or deleted products are skipped, so look a little further down
+        List<TrendingProducts.Entry> candidates = ranked.subList(0, Math.min(ranked.size(), size * 2));
+        Map<Long, ProductSummary> products = productCache.getAll(
+                candidates.stream().map(TrendingProducts.Entry::productId).collect(Collectors.toList()));
+        List<Map<String, Object>> result = new ArrayList<>(size);
+        for (TrendingProducts.Entry entry : candidates) {
+            ProductSummary product = products.get(entry.productId());
+            if (product == null || !"active".equalsIgnoreCase(product.getStatus())) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("product", productMapper.toDto(product));
+            item.put("minUnitsSold", entry.minUnits());
+            item.put("maxUnitsSold", entry.maxUnits());
+            result.add(item);
+            if (result.size() == size) {
+                break;
+            }
+        }
+        return result;
+    }
+
     @Transactional(readOnly = true)
     public List<ProductDto> getProductsBySellerId(Long sellerId) {
         return productRepository.findBySellerId(sellerId)
@@ -235,8 +434,13 @@ public class ProductService {
         if (!existing.getSeller().getId().equals(sellerId)) {
             throw new IllegalStateException("You are not authorized to update this product");
         }
+        ProductCarbon before = ProductCarbon.of(existing);
         applyProductUpdates(existing, productDto);
-        return productMapper.toDto(productRepository.save(existing));
+        Product saved = productRepository.save(existing);
+        syncSearchIndex(saved);
+        carbonRollups.productChanged(before, ProductCarbon.of(saved));
+        productCache.invalidate(productId);
+        return productMapper.toDto(saved);
     }
 
     public void deleteProductBySeller(Long productId, Long sellerId) {
@@ -245,8 +449,76 @@ public class ProductService {
         if (!product.getSeller().getId().equals(sellerId)) {
             throw new IllegalStateException("You are not authorized to delete this product");
         }
+        ProductCarbon before = ProductCarbon.of(product);
         product.setStatus("inactive");
         productRepository.save(product);
+        syncSearchIndex(product);
+        carbonRollups.productChanged(before, null);
+        productCache.invalidate(productId);
+    }
+
+    /**
+     * Loads the given products and returns them in the same order as {@code ids}.
+     * Products that disappeared or went inactive since they were indexed are skipped.
+     */
+    private List<ProductDto> loadInRankOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductSummary> byId = productRepository.findActiveSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(ProductSummary::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(productMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Mirrors a product write into the search index once the surrounding
+     * transaction commits, so a rolled-back update never becomes searchable.
+     */
+    private void syncSearchIndex(Product product) {
+        Long id = product.getId();
+        boolean active = "active".equalsIgnoreCase(product.getStatus());
+        String name = product.getName();
+        String type = product.getType();
+        String description = product.getDescription();
+        AfterCommit.run(() -> {
+            if (active) {
+                searchIndex.index(id, name, type, description);
+            } else {
+                searchIndex.remove(id);
+            }
+        });
+    }
+
+    /**
+     * Stores an incoming image value on the product. Data URIs are decoded
+     * into the blob store and only the key is kept; external URLs are stored
+     * as-is. Responses hand out image URLs in place of the image, so an edit
+     * form built from one sends that URL back — that must not touch the image.
+     */
+    private void applyImage(Product product, String image) {
+        if (image == null || image.isBlank()) {
+            product.setImage(null);
+            product.setImageKey(null);
+            return;
+        }
+        if (product.getId() != null && image.endsWith(ProductMapper.imagePath(product.getId()))) {
+            return;
+        }
+        String ownKey = imageStorage.keyFromUrl(image);
+        if (ownKey != null) {
+            product.setImageKey(ownKey);
+            product.setImage(null);
+        } else if (ImageStorageService.isDataUri(image)) {
+            product.setImageKey(imageStorage.storeDataUri(image));
+            product.setImage(null);
+        } else {
+            product.setImage(image);
+            product.setImageKey(null);
+        }
     }
 
     private void applyProductUpdates(Product existing, ProductDto dto) {
@@ -257,7 +529,7 @@ public class ProductService {
         existing.setFootprint(dto.getFootprint());
         existing.setMaterialCO2(dto.getMaterialCO2());
         existing.setShippingCO2(dto.getShippingCO2());
-        existing.setImage(dto.getImage());
+        applyImage(existing, dto.getImage());
         existing.setStockQuantity(dto.getStockQuantity());
         existing.setDescription(dto.getDescription());
         if (dto.getStatus() != null) {
@@ -0,0 +1,85 @@
+package com.ecobazaarx.service;
+
+import com.ecobazaarx.entity.Cart;
+import com.ecobazaarx.entity.CartItem;
+import com.ecobazaarx.entity.Product;
+import com.ecobazaarx.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Keeps Hibernate's second-level cache (Product, User, Cart and its items)
+ * in line with writes Hibernate does not see or that happen on other nodes,
+ * and reports its per-region statistics.
+ *
+ * Hibernate maintains the regions for its own writes on this node. Stock
+ * updates at checkout and cart flushes go through JDBC, and other nodes
+ * have regions of their own, so those writers publish the changed ids on
+ * {@link CacheInvalidationBus} and the entries are evicted here.
+ */
+@Component
+public class SecondLevelCache {
+
+    /** Bus channel for changed users (ids). Products use {@link ProductCache#NAME}. */
+    public static final String USERS = "users";
+
+    /** Bus channel for carts (ids) whose rows or items changed. */
+    public static final String CARTS = "carts";
+
+    private static final String CART_ITEMS_ROLE = Cart.class.getName() + ".cartItems";
+
+    private final Cache cache;
+    private final Statistics statistics;
+
+    @Autowired
+    public SecondLevelCache(EntityManagerFactory entityManagerFactory, CacheInvalidationBus invalidationBus) {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.cache = sessionFactory.getCache();
+        this.statistics = sessionFactory.getStatistics();
+
+        invalidationBus.subscribe(ProductCache.NAME, ids -> ids.forEach(id -> cache.evictEntityData(Product.class, id)));
+        invalidationBus.subscribe(USERS, ids -> ids.forEach(id -> cache.evictEntityData(User.class, id)));
+        invalidationBus.subscribe(CARTS, ids -> {
+            ids.forEach(id -> {
+                cache.evictEntityData(Cart.class, id);
+                cache.evictCollectionData(CART_ITEMS_ROLE, id);
+            });
+            // Item ids are not known here; nothing reads CartItem by id on a hot path
+            cache.evictEntityData(CartItem.class);
+        });
+    }
+
+    /**
+     * Hit/miss/put counters and size of every region, by region name. Empty
+     * unless hibernate.generate_statistics is on (HIBERNATE_STATISTICS=true).
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        if (!statistics.isStatisticsEnabled()) {
+            return result;
+        }
+        for (String region : new TreeSet<>(Arrays.asList(statistics.getSecondLevelCacheRegionNames()))) {
+            CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(region);
+            if (regionStats == null) {
+                continue;
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("entries", regionStats.getElementCountInMemory());
+            stats.put("hits", regionStats.getHitCount());
+            stats.put("misses", regionStats.getMissCount());
+            stats.put("puts", regionStats.getPutCount());
+            result.put(region, stats);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+package com.ecobazaarx.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * One cached value with stale-while-revalidate semantics. Within
+ * {@code ttl} of being computed the value is returned as is; for a further
+ * {@code maxStale} it is still returned immediately while a refresh runs in
+ * the background; after that, callers wait for a fresh value. At most one
+ * computation runs at a time and every concurrent caller shares it.
+ */
+public class StaleWhileRevalidateCache<T> {
+
+    private record Entry<T>(T value, long computedAt) {}
+
+    private final Supplier<CompletableFuture<T>> loader;
+    private final long ttlNanos;
+    private final long maxAgeNanos;
+    private final LongSupplier nanoTime;
+
+    private volatile Entry<T> entry;
+    // Guarded by this
+    private CompletableFuture<T> inFlight;
+
+    /**
+     * @param loader starts a computation; it should not block, since it is
+     *               called with the cache's lock held
+     */
+    public StaleWhileRevalidateCache(Supplier<CompletableFuture<T>> loader, Duration ttl, Duration maxStale) {
+        this(loader, ttl, maxStale, System::nanoTime);
+    }
+
+    StaleWhileRevalidateCache(Supplier<CompletableFuture<T>> loader, Duration ttl, Duration maxStale,
+                              LongSupplier nanoTime) {
+        this.loader = loader;
+        this.nanoTime = nanoTime;
+        this.ttlNanos = ttl.toNanos();
+        this.maxAgeNanos = ttl.plus(maxStale).toNanos();
+    }
+
+    public T get() {
+        Entry<T> current = entry;
+        if (current != null) {
+            long age = nanoTime.getAsLong() - current.computedAt();
+            if (age < ttlNanos) {
+                return current.value();
+            }
+            if (age < maxAgeNanos) {
+                refresh();
+                return current.value();
+            }
+        }
+        try {
+            return refresh().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized CompletableFuture<T> refresh() {
+        if (inFlight != null) {
+            return inFlight;
+        }
+        long startedAt = nanoTime.getAsLong();
+        CompletableFuture<T> computation = loader.get();
+        inFlight = computation;
+        computation.whenComplete((value, error) -> {
+            synchronized (this) {
+                if (error == null) {
+                    entry = new Entry<>(value, startedAt);
+                }
+                inFlight = null;
+            }
+        });
+        return computation;
+    }
+}
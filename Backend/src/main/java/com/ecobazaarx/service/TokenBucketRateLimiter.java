@@ -0,0 +1,68 @@
+package com.ecobazaarx.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * One token bucket per key (an IP, an email): up to {@code capacity}
+ * requests at once, refilled at {@code capacity} per {@code period}.
+ * Idle buckets are dropped once they would be full again, and at most
+ * {@code maxKeys} are kept, so a flood of distinct keys cannot grow it.
+ */
+public class TokenBucketRateLimiter {
+
+    private static final class Bucket {
+        double tokens;
+        long refilledAt;
+
+        Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+
+    private final int capacity;
+    private final double tokensPerNano;
+    private final Cache<String, Bucket> buckets;
+    private final LongSupplier nanoTime;
+
+    public TokenBucketRateLimiter(int capacity, Duration period, long maxKeys) {
+        this(capacity, period, maxKeys, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(int capacity, Duration period, long maxKeys, LongSupplier nanoTime) {
+        this.capacity = capacity;
+        this.tokensPerNano = (double) capacity / period.toNanos();
+        this.nanoTime = nanoTime;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(period)
+                .ticker(nanoTime::getAsLong)
+                .build();
+    }
+
+    /**
+     * Takes a token from the key's bucket.
+     *
+     * @return 0 if the request may proceed, otherwise the number of seconds
+     *         until the bucket has a token again
+     */
+    public long tryAcquire(String key) {
+        long now = nanoTime.getAsLong();
+        Bucket bucket = buckets.get(key, k -> new Bucket(capacity, now));
+        synchronized (bucket) {
+            bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.refilledAt) * tokensPerNano);
+            bucket.refilledAt = now;
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            // Whole nanoseconds first, so rounding noise cannot add a second to the wait
+            long waitNanos = Math.round((1 - bucket.tokens) / tokensPerNano);
+            return Math.max(1, (long) Math.ceil(waitNanos / 1_000_000_000d));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.ecobazaarx.service;
+
+import com.ecobazaarx.entity.RevokedToken;
+import com.ecobazaarx.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked JWTs. Revocations are persisted in revoked_tokens and every node
+ * keeps the unexpired ones in memory, so AuthTokenFilter checks a token
+ * without SQL: a counting Bloom filter rules out almost every jti at once,
+ * and the exact map settles the rest. Whole-user revocations (deactivation)
+ * are a cutoff per user: tokens issued up to then are revoked.
+ *
+ * Other nodes pick up new rows incrementally, by revocation time: at once
+ * when the {@link CacheInvalidationBus} has a transport, otherwise within
+ * {@code app.auth.revocation.refresh-ms}.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    /** Bus channel; the ids are those of new revoked_tokens rows, and receivers refresh. */
+    public static final String CHANNEL = "token-revocations";
+
+    // revokedAt is truncated to whole seconds, the precision of a token's iat: tokens
+    // issued in an earlier second are revoked, ones from the same second (possibly
+    // just after the revocation, e.g. signing in again) are not
+    private record UserCutoff(LocalDateTime revokedAt, LocalDateTime expiresAt) {}
+
+    private final RevokedTokenRepository repository;
+    private final CacheInvalidationBus invalidationBus;
+    private final Duration tokenLifetime;
+    private final Duration refreshOverlap;
+
+    private final CountingBloomFilter jtiFilter;
+    // jti -> expiry of the token
+    private final Map<String, LocalDateTime> revokedJtis = new ConcurrentHashMap<>();
+    private final Map<Long, UserCutoff> userCutoffs = new ConcurrentHashMap<>();
+
+    // Revocation time from which the next refresh reads
+    private LocalDateTime refreshedUpTo = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    public TokenRevocationService(RevokedTokenRepository repository,
+                                  CacheInvalidationBus invalidationBus,
+                                  @Value("${spring.security.jwt.expiration}") long jwtExpirationMs,
+                                  @Value("${app.auth.revocation.expected-entries:100000}") int expectedEntries,
+                                  @Value("${app.auth.revocation.refresh-overlap:PT1M}") Duration refreshOverlap) {
+        this.repository = repository;
+        this.invalidationBus = invalidationBus;
+        this.tokenLifetime = Duration.ofMillis(jwtExpirationMs);
+        this.refreshOverlap = refreshOverlap;
+        this.jtiFilter = new CountingBloomFilter(expectedEntries, 0.01);
+        invalidationBus.subscribe(CHANNEL, ids -> refresh());
+    }
+
+    @PostConstruct
+    void load() {
+        refresh();
+    }
+
+    /** Whether a verified token with these claims has been revoked. */
+    public boolean isRevoked(String jti, Long userId, Date issuedAt) {
+        if (userId != null && issuedAt != null) {
+            UserCutoff cutoff = userCutoffs.get(userId);
+            if (cutoff != null && toLocal(issuedAt.toInstant()).isBefore(cutoff.revokedAt())) {
+                return true;
+            }
+        }
+        return jti != null && jtiFilter.mightContain(jti) && revokedJtis.containsKey(jti);
+    }
+
+    /** Revokes one token, e.g. at sign-out. */
+    public void revokeToken(String jti, Long userId, Instant expiresAt) {
+        LocalDateTime expires = toLocal(expiresAt);
+        if (revokedJtis.containsKey(jti) || !expires.isAfter(LocalDateTime.now())) {
+            return;
+        }
+        RevokedToken row;
+        try {
+            row = repository.save(new RevokedToken(jti, userId, LocalDateTime.now(), expires));
+        } catch (DataIntegrityViolationException e) {
+            // Revoked concurrently by another request; refresh picks it up
+            return;
+        }
+        apply(row);
+        invalidationBus.publishAfterCommit(CHANNEL, List.of(row.getId()));
+    }
+
+    /** Revokes every token the user holds now, e.g. on deactivation. */
+    public void revokeAllForUser(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        RevokedToken row = repository.save(new RevokedToken(null, userId, now, now.plus(tokenLifetime)));
+        apply(row);
+        invalidationBus.publishAfterCommit(CHANNEL, List.of(row.getId()));
+    }
+
+    /** Reads the revocations made since the last refresh, here or on other nodes. */
+    @Scheduled(fixedDelayString = "${app.auth.revocation.refresh-ms:5000}")
+    public synchronized void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        // Overlap: rows committed late, or stamped by a node whose clock is behind
+        for (RevokedToken row : repository.findRevokedSince(refreshedUpTo.minus(refreshOverlap), now)) {
+            apply(row);
+        }
+        refreshedUpTo = now;
+    }
+
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT5M")
+    @Transactional
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        revokedJtis.entrySet().removeIf(e -> {
+            if (e.getValue().isAfter(now)) {
+                return false;
+            }
+            jtiFilter.remove(e.getKey());
+            return true;
+        });
+        userCutoffs.values().removeIf(cutoff -> !cutoff.expiresAt().isAfter(now));
+        int removed = repository.deleteExpired(now);
+        if (removed > 0) {
+            log.info("Purged {} expired token revocations", removed);
+        }
+    }
+
+    private void apply(RevokedToken row) {
+        if (row.getJti() == null) {
+            userCutoffs.merge(row.getUserId(), new UserCutoff(row.getRevokedAt().truncatedTo(ChronoUnit.SECONDS), row.getExpiresAt()),
+                    (a, b) -> a.revokedAt().isAfter(b.revokedAt()) ? a : b);
+        } else if (revokedJtis.putIfAbsent(row.getJti(), row.getExpiresAt()) == null) {
+            jtiFilter.add(row.getJti());
+        }
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,129 @@
+package com.ecobazaarx.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates order tracking numbers that are unique across backend nodes
+ * without a database round trip.
+ *
+ * Snowflake-style 63-bit id: 41 bits of milliseconds since 2024-01-01
+ * (good for ~69 years), 10 bits of node id, 12 bits of per-millisecond
+ * sequence — 4096 ids per millisecond per node. The (timestamp, sequence)
+ * pair lives in one AtomicLong advanced with CAS, so callers never block.
+ * When a millisecond's sequence runs out, or the clock steps backwards, the
+ * generator borrows the next millisecond instead of waiting, which keeps ids
+ * strictly increasing per node.
+ *
+ * Rendered as "TRK" + 13 Crockford base32 characters (no I, L, O, U), so
+ * numbers read aloud or typed back by customers are unambiguous.
+ *
+ * The node id comes from {@code app.node-id} (0–1023). Every node in a
+ * multi-node deployment must get a distinct value, so it is required when
+ * {@code app.instances} is above 1. A single instance may leave it unset and
+ * gets one derived from the host name; the chosen id is logged at startup.
+ */
+@Component
+public class TrackingNumberGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackingNumberGenerator.class);
+
+    private static final String PREFIX = "TRK";
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;   // ceil(63 / 5)
+
+    private final long node;
+    private final LongSupplier clock;
+
+    /** (timestamp << SEQUENCE_BITS) | sequence of the last id handed out. */
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public TrackingNumberGenerator(@Value("${app.node-id:-1}") long nodeId,
+                                   @Value("${app.instances:1}") int instances) {
+        this(nodeId, instances, System::currentTimeMillis);
+    }
+
+    TrackingNumberGenerator(long nodeId, int instances, LongSupplier clock) {
+        if (nodeId > MAX_NODE) {
+            throw new IllegalArgumentException("app.node-id must be between 0 and " + MAX_NODE);
+        }
+        if (nodeId < 0 && instances > 1) {
+            // Host name hashes can collide, and two nodes sharing an id hand out duplicate numbers
+            throw new IllegalStateException(
+                    "app.node-id must be set to a distinct value per instance when app.instances > 1");
+        }
+        this.clock = clock;
+        if (nodeId >= 0) {
+            this.node = nodeId;
+            log.info("Tracking number generator using node id {}", node);
+        } else {
+            this.node = deriveNodeId();
+            log.warn("Tracking number generator using node id {} derived from the host name; "
+                    + "set app.node-id before running more than one instance", node);
+        }
+    }
+
+    public String next() {
+        return encode(nextId());
+    }
+
+    long nextId() {
+        long now = clock.getAsLong() - EPOCH;
+        while (true) {
+            long prev = state.get();
+            long prevTs = prev >>> SEQUENCE_BITS;
+            long ts;
+            long seq;
+            if (now > prevTs) {
+                ts = now;
+                seq = 0;
+            } else {
+                ts = prevTs;
+                seq = (prev & MAX_SEQUENCE) + 1;
+                if (seq > MAX_SEQUENCE) {
+                    ts++;            // borrow the next millisecond rather than spin
+                    seq = 0;
+                }
+            }
+            if (state.compareAndSet(prev, (ts << SEQUENCE_BITS) | seq)) {
+                return (ts << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | seq;
+            }
+        }
+    }
+
+    private static String encode(long id) {
+        char[] out = new char[PREFIX.length() + ENCODED_LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), out, 0);
+        for (int i = out.length - 1; i >= PREFIX.length(); i--) {
+            out[i] = CROCKFORD[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(out);
+    }
+
+    private static long deriveNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName().hashCode() & MAX_NODE;
+        } catch (UnknownHostException e) {
+            return ThreadLocalRandom.current().nextLong(MAX_NODE + 1);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.ecobazaarx.service;
+
+import com.ecobazaarx.entity.Order;
+import com.ecobazaarx.entity.OrderItem;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Products selling fastest right now, by units sold over a recent window
+ * ("trending now"), kept in memory from this node's checkouts.
+ *
+ * Time is cut into slices of app.products.trending.slice. Each slice holds a
+ * Space-Saving summary of at most app.products.trending.capacity counters,
+ * so memory stays fixed however many products sell: when a new product
+ * arrives at a full summary it takes over the smallest counter, inheriting
+ * its count as the possible overestimate. Any product selling more than
+ * 1/capacity of a slice's units is guaranteed to be counted. A window adds
+ * up the slices that started within it; slices older than the longest
+ * configured window are dropped. A product missing from one of those slices
+ * may still have sold up to that slice's smallest count there, which widens
+ * its upper bound.
+ *
+ * Counts are approximate and per node, and start empty on restart; the
+ * exact all-time ranking is AnalyticsService.getPopularProducts.
+ */
+@Component
+public class TrendingProducts {
+
+    /** A product's units sold in a window: the true count is within [minUnits, maxUnits]. */
+    public record Entry(Long productId, long minUnits, long maxUnits) {}
+
+    private static final Comparator<Entry> BY_UNITS = Comparator.comparingLong(Entry::maxUnits).reversed()
+            .thenComparing(Comparator.comparingLong(Entry::minUnits).reversed())
+            .thenComparing(Entry::productId);
+
+    private final Clock clock;
+    private final int capacity;
+    private final long sliceMillis;
+    private final List<Duration> windows;
+    private final Duration longestWindow;
+    private final NavigableMap<Long, SpaceSaving> slices = new ConcurrentSkipListMap<>();
+    // Merging every slice of a long window on each request would be wasteful; rankings are approximate anyway
+    private final Cache<Duration, List<Entry>> rankings;
+
+    @Autowired
+    public TrendingProducts(@Value("${app.products.trending.capacity:200}") int capacity,
+                            @Value("${app.products.trending.slice:PT5M}") Duration slice,
+                            @Value("${app.products.trending.windows:PT1H,PT24H}") List<Duration> windows) {
+        this(Clock.systemUTC(), capacity, slice, windows);
+    }
+
+    TrendingProducts(Clock clock, int capacity, Duration slice, List<Duration> windows) {
+        if (windows.isEmpty()) {
+            throw new IllegalArgumentException("app.products.trending.windows must list at least one window");
+        }
+        this.clock = clock;
+        this.capacity = Math.max(1, capacity);
+        this.sliceMillis = Math.max(1, slice.toMillis());
+        this.windows = List.copyOf(windows);
+        this.longestWindow = windows.stream().max(Comparator.naturalOrder()).orElseThrow();
+        this.rankings = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(Math.min(sliceMillis, 10_000)))
+                .build();
+    }
+
+    /** The configured windows; the first is the default. */
+    public List<Duration> windows() {
+        return windows;
+    }
+
+    /**
+     * Counts the order's lines once its transaction commits, so a checkout
+     * that rolls back never shows up as trending.
+     */
+    public void orderPlaced(Order order) {
+        Map<Long, Long> units = new HashMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            if (item.getProduct() != null && item.getQuantity() != null && item.getQuantity() > 0) {
+                units.merge(item.getProduct().getId(), item.getQuantity().longValue(), Long::sum);
+            }
+        }
+        if (!units.isEmpty()) {
+            AfterCommit.run(() -> record(units));
+        }
+    }
+
+    void record(Map<Long, Long> units) {
+        long now = clock.millis();
+        long slice = now / sliceMillis;
+        SpaceSaving summary = slices.computeIfAbsent(slice, s -> new SpaceSaving(capacity));
+        units.forEach(summary::add);
+        // Whole slices past the longest window can go
+        slices.headMap((now - longestWindow.toMillis()) / sliceMillis, false).clear();
+    }
+
+    /**
+     * The products with the most units sold in {@code window} (one of
+     * {@link #windows()}, as an ISO-8601 duration such as PT1H), most first.
+     */
+    public List<Entry> top(String window) {
+        Duration duration = parseWindow(window);
+        return rankings.get(duration, this::rank);
+    }
+
+    private Duration parseWindow(String window) {
+        if (window == null || window.isBlank()) {
+            return windows.get(0);
+        }
+        try {
+            Duration duration = Duration.parse(window.trim());
+            if (windows.contains(duration)) {
+                return duration;
+            }
+        } catch (DateTimeParseException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Unsupported window '" + window + "'; use one of " + windows);
+    }
+
+    private List<Entry> rank(Duration window) {
+        long firstSlice = (clock.millis() - window.toMillis()) / sliceMillis + 1;
+        List<SpaceSaving.Snapshot> snapshots = new ArrayList<>();
+        for (SpaceSaving summary : slices.tailMap(firstSlice, true).values()) {
+            snapshots.add(summary.snapshot());
+        }
+        // Bounds add up over the slices; where a product has no counter it sold between 0 and the floor
+        Map<Long, long[]> merged = new HashMap<>();
+        long allFloors = 0;
+        for (SpaceSaving.Snapshot s : snapshots) {
+            allFloors += s.floor();
+            for (Entry e : s.entries()) {
+                long[] totals = merged.computeIfAbsent(e.productId(), id -> new long[3]);
+                totals[0] += e.minUnits();
+                totals[1] += e.maxUnits();
+                totals[2] += s.floor();     // floors of the slices the product is counted in
+            }
+        }
+        List<Entry> ranked = new ArrayList<>(merged.size());
+        for (Map.Entry<Long, long[]> e : merged.entrySet()) {
+            long[] t = e.getValue();
+            ranked.add(new Entry(e.getKey(), t[0], t[1] + allFloors - t[2]));
+        }
+        ranked.sort(BY_UNITS);
+        return List.copyOf(ranked.subList(0, Math.min(ranked.size(), capacity)));
+    }
+
+    // ── Space-Saving summary ──────────────────────────────────────────────────
+
+    /** One slice's heavy hitters: at most {@code capacity} counters. */
+    static final class SpaceSaving {
+
+        record Snapshot(List<Entry> entries, long floor) {}
+
+        private static final class Counter {
+            final long productId;
+            long units;
+            long error;
+
+            Counter(long productId, long units, long error) {
+                this.productId = productId;
+                this.units = units;
+                this.error = error;
+            }
+        }
+
+        private static final Comparator<Counter> SMALLEST_FIRST =
+                Comparator.<Counter>comparingLong(c -> c.units).thenComparingLong(c -> c.productId);
+
+        private final int capacity;
+        private final Map<Long, Counter> counters = new HashMap<>();
+        private final TreeSet<Counter> byUnits = new TreeSet<>(SMALLEST_FIRST);
+
+        SpaceSaving(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void add(Long productId, long units) {
+            Counter counter = counters.get(productId);
+            if (counter == null) {
+                if (counters.size() < capacity) {
+                    counter = new Counter(productId, 0, 0);
+                } else {
+                    // Evict the smallest; the newcomer may have been it all along
+                    Counter smallest = byUnits.pollFirst();
+                    counters.remove(smallest.productId);
+                    counter = new Counter(productId, smallest.units, smallest.units);
+                }
+                counters.put(productId, counter);
+            } else {
+                byUnits.remove(counter);
+            }
+            counter.units += units;
+            byUnits.add(counter);
+        }
+
+        /**
+         * The counters, and the most a product without one can have sold
+         * here (the smallest count once the summary is full, else 0).
+         */
+        synchronized Snapshot snapshot() {
+            List<Entry> entries = new ArrayList<>(counters.size());
+            for (Counter c : counters.values()) {
+                entries.add(new Entry(c.productId, c.units - c.error, c.units));
+            }
+            long floor = counters.size() < capacity || byUnits.isEmpty() ? 0 : byUnits.first().units;
+            return new Snapshot(entries, floor);
+        }
+    }
+}
@@ -22,6 +22,10 @@ import com.ecobazaarx.repository.UserRepository;
 public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     UserRepository userRepository;
+    @Autowired
+    CacheInvalidationBus invalidationBus;
+    @Autowired
+    TokenRevocationService tokenRevocationService;
 
     @Override
     @Transactional
@@ -49,6 +53,11 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
 		    // Save updated user
 		    user = userRepository.save(user);
+		    invalidationBus.publishAfterCommit(SecondLevelCache.USERS, List.of(id));
+		    if (status == Status.INACTIVE) {
+		        // Their tokens stop working on every node, not just once the status cache expires
+		        tokenRevocationService.revokeAllForUser(id);
+		    }
 
 		    // Return updated user as DTO
 		    return UserMapper.toDto(user);
@@ -66,6 +75,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 	    }
 
 	    User savedUser = userRepository.save(user);
+	    invalidationBus.publishAfterCommit(SecondLevelCache.USERS, List.of(id));
 	    return new UserDto(
 	            savedUser.getId(),
 	            savedUser.getName(),
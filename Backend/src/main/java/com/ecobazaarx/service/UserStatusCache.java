@@ -0,0 +1,62 @@
+package com.ecobazaarx.service;
+
+import com.ecobazaarx.entity.Role;
+import com.ecobazaarx.entity.Status;
+import com.ecobazaarx.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Current status and role of each user, for the JWT filter: a token stays
+ * valid until it expires, but a deactivated user or a changed role must
+ * take effect sooner. Entries expire after {@code app.auth.status-ttl} and
+ * are dropped as soon as an admin change commits (the
+ * {@link SecondLevelCache#USERS} channel), so the TTL only bounds how long
+ * other nodes without a transport lag behind.
+ */
+@Component
+public class UserStatusCache {
+
+    public record UserState(Status status, Role role) {
+
+        public boolean isActive() {
+            return status != Status.INACTIVE;
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final Cache<Long, UserState> cache;
+
+    @Autowired
+    public UserStatusCache(UserRepository userRepository,
+                           CacheInvalidationBus invalidationBus,
+                           @Value("${app.auth.status-ttl:PT30S}") Duration ttl,
+                           @Value("${app.auth.status-cache-size:100000}") long maxEntries) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+        invalidationBus.subscribe(SecondLevelCache.USERS, cache::invalidateAll);
+    }
+
+    /** The user's state; null if the user does not exist (not cached). */
+    public UserState get(Long userId) {
+        return cache.get(userId, this::load);
+    }
+
+    private UserState load(Long userId) {
+        List<Object[]> rows = userRepository.findStatusAndRoleById(userId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        return new UserState((Status) row[0], (Role) row[1]);
+    }
+}
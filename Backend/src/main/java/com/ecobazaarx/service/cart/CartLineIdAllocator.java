@@ -0,0 +1,44 @@
+package com.ecobazaarx.service.cart;
+
+import com.ecobazaarx.repository.CartJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Hands out cart_items ids for lines that exist only in the {@link CartStore}
+ * so far. Clients address lines by id (PUT/DELETE /api/cart/items/{id}), so a
+ * line needs its final id before it is flushed. Ids are reserved in blocks
+ * of {@link #BLOCK_SIZE}, which keeps this off the database for all but one
+ * in fifty new lines.
+ */
+@Component
+public class CartLineIdAllocator {
+
+    /** Same as the allocationSize of CartItem's @SequenceGenerator. */
+    static final int BLOCK_SIZE = 50;
+
+    private final CartJdbcRepository cartJdbcRepository;
+    private final TransactionTemplate requiresNew;
+
+    private long next;
+    private long limit;
+
+    @Autowired
+    public CartLineIdAllocator(CartJdbcRepository cartJdbcRepository, PlatformTransactionManager transactionManager) {
+        this.cartJdbcRepository = cartJdbcRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        // The reservation must commit even if the caller's transaction rolls back
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public synchronized long next() {
+        if (next == limit) {
+            next = requiresNew.execute(status -> cartJdbcRepository.reserveItemIds(BLOCK_SIZE));
+            limit = next + BLOCK_SIZE;
+        }
+        return next++;
+    }
+}
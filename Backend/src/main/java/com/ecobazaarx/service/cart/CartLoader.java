@@ -0,0 +1,49 @@
+package com.ecobazaarx.service.cart;
+
+import com.ecobazaarx.repository.CartItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a user's cart from the carts/cart_items tables into a
+ * {@link StoredCart}: on a {@link CartStore} miss, and when a flush finds
+ * the row moved on and has to re-apply the local changes to it.
+ */
+@Component
+public class CartLoader {
+
+    private final CartItemRepository cartItemRepository;
+
+    @Autowired
+    public CartLoader(CartItemRepository cartItemRepository) {
+        this.cartItemRepository = cartItemRepository;
+    }
+
+    /** The user's cart as stored (one query); empty with no cartId if the user has no carts row. */
+    public StoredCart load(Long userId) {
+        return toStoredCart(cartItemRepository.findCartLinesByUserId(userId));
+    }
+
+    // Rows of CartItemRepository.findCartLinesByUserId
+    static StoredCart toStoredCart(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return StoredCart.empty(null);
+        }
+        Map<Long, StoredCart.Line> lines = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            if (row[2] != null) {
+                Long productId = (Long) row[3];
+                lines.put(productId, new StoredCart.Line((Long) row[2], productId, (Integer) row[4],
+                        (LocalDateTime) row[5], (LocalDateTime) row[6]));
+            }
+        }
+        Object[] first = rows.get(0);
+        LocalDateTime updatedDate = first[1] != null ? (LocalDateTime) first[1] : LocalDateTime.now();
+        return new StoredCart((Long) first[0], lines, 0, updatedDate, (Long) first[7]);
+    }
+}
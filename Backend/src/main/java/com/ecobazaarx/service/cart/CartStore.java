@@ -0,0 +1,84 @@
+package com.ecobazaarx.service.cart;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Holds active carts, keyed by user id, in front of the carts/cart_items
+ * tables. Mutations only touch the store and mark the cart dirty;
+ * {@link CartWriteBehind} writes dirty carts to MySQL on an interval and at
+ * checkout, so a burst of cart changes costs one flush.
+ *
+ * {@link InMemoryCartStore} keeps carts per node. With more than one backend
+ * instance a user's cart can be resident on several nodes. Each store
+ * remembers the snapshot a cart was loaded or last flushed from; flushes
+ * are fenced by the carts row's cart_version (see StoredCart.storedVersion),
+ * so a node holding a stale copy loses its flush, reloads the cart and
+ * re-applies its own changes on top ({@link #rebase}) instead of either
+ * overwriting the other node's lines or dropping its own. After a flush or
+ * checkout the other nodes are told on {@link #CHANNEL} to drop their clean
+ * copies (when an InvalidationTransport connects the nodes).
+ */
+public interface CartStore {
+
+    /** Invalidation bus channel for user ids whose cart was written; stores drop clean copies. */
+    String CHANNEL = "cart-store";
+
+    /** The user's cart, or null when it is not resident. */
+    StoredCart get(Long userId);
+
+    /**
+     * Caches a cart just read from the database. Does nothing if the user
+     * already has a resident cart, which is always at least as new.
+     *
+     * @return the resident cart after the call
+     */
+    StoredCart putIfAbsent(Long userId, StoredCart loaded);
+
+    /**
+     * Atomically applies {@code mutation} to the user's resident cart, bumps
+     * its version and marks it dirty. Exceptions thrown by the mutation leave
+     * the cart unchanged.
+     *
+     * @return the updated cart, or null if the cart is not resident
+     */
+    StoredCart update(Long userId, UnaryOperator<StoredCart> mutation);
+
+    /**
+     * Like {@link #update}, but a cart that is not resident is first read
+     * with {@code loader} and cached, so the mutation always applies.
+     */
+    StoredCart update(Long userId, Supplier<StoredCart> loader, UnaryOperator<StoredCart> mutation);
+
+    /** Whether the user's resident cart has changes not yet flushed. */
+    boolean isDirty(Long userId);
+
+    /** Users whose carts have changes not yet flushed. */
+    List<Long> dirtyUserIds();
+
+    /**
+     * Records that {@code written} (a snapshot returned by this store, with
+     * the cartId and storedVersion it was written as) is now in the
+     * database. The cart stays dirty if it changed in the meantime.
+     */
+    void markFlushed(Long userId, StoredCart written);
+
+    /**
+     * Re-applies the changes made to the user's cart since it was loaded or
+     * last flushed on top of {@code fresh}, the cart as now stored, after a
+     * flush found the row moved on. The cart stays dirty.
+     */
+    void rebase(Long userId, StoredCart fresh);
+
+    /** Drops the user's cart unless it has unflushed changes (another node wrote the cart). */
+    void evictIfClean(Long userId);
+
+    /**
+     * Drops the cart if it is still at {@code version} (used after checkout
+     * empties it).
+     *
+     * @return false if the cart changed since, and was kept
+     */
+    boolean evictIfUnchanged(Long userId, long version);
+}
@@ -0,0 +1,136 @@
+package com.ecobazaarx.service.cart;
+
+import com.ecobazaarx.exception.CartConflictException;
+import com.ecobazaarx.repository.CartJdbcRepository;
+import com.ecobazaarx.service.CacheInvalidationBus;
+import com.ecobazaarx.service.SecondLevelCache;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes dirty carts from the {@link CartStore} to MySQL: every
+ * {@code app.cart.flush-interval-ms}, for one user at checkout, and for
+ * everyone on shutdown. Each flush writes the cart's latest snapshot, so
+ * any number of changes between two flushes costs one write.
+ *
+ * A flush only writes if the carts row is still at the version the
+ * snapshot is based on. If another node (or a checkout) wrote the cart in
+ * the meantime, the local copy is stale: the cart is read again and this
+ * node's unflushed changes are re-applied on top (CartStore.rebase) before
+ * writing, so a change the client was told succeeded is never lost. Once
+ * written, other nodes are told to drop their clean copies of the cart.
+ */
+@Component
+public class CartWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(CartWriteBehind.class);
+
+    // Writes lost to other nodes before giving up; each one re-reads the cart
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final CartStore cartStore;
+    private final CartLoader cartLoader;
+    private final CartJdbcRepository cartJdbcRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final TransactionTemplate requiresNew;
+
+    // Serializes flushes of the same user (scheduled vs checkout)
+    private final Object[] locks = new Object[64];
+
+    @Autowired
+    public CartWriteBehind(CartStore cartStore, CartLoader cartLoader, CartJdbcRepository cartJdbcRepository,
+                           CacheInvalidationBus invalidationBus, PlatformTransactionManager transactionManager) {
+        this.cartStore = cartStore;
+        this.cartLoader = cartLoader;
+        this.cartJdbcRepository = cartJdbcRepository;
+        this.invalidationBus = invalidationBus;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        // Another node wrote these users' carts; a dirty copy here is rebased when it is flushed
+        invalidationBus.subscribe(CartStore.CHANNEL, userIds -> userIds.forEach(cartStore::evictIfClean));
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.flush-interval-ms:2000}")
+    public void flushDirty() {
+        for (Long userId : cartStore.dirtyUserIds()) {
+            try {
+                flush(userId);
+            } catch (RuntimeException e) {
+                // Stays dirty and is retried on the next run
+                log.warn("Failed to flush cart of user {}", userId, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the user's cart now, in its own transaction, so it is in the
+     * database before the caller reads it (checkout).
+     *
+     * @return the snapshot now in the database (with its cartId set), or
+     *         null if the user has no resident cart (the database is current)
+     * @throws CartConflictException if other nodes kept writing the cart;
+     *         the changes stay in the store and the next run retries them
+     */
+    public StoredCart flush(Long userId) {
+        synchronized (locks[Math.floorMod(userId.hashCode(), locks.length)]) {
+            for (int attempt = 1; ; attempt++) {
+                StoredCart cart = cartStore.get(userId);
+                if (cart == null) {
+                    return null;
+                }
+                if (!cartStore.isDirty(userId)) {
+                    return cart;
+                }
+                Long cartId = requiresNew.execute(status -> write(userId, cart));
+                if (cartId != null) {
+                    StoredCart written = cart.flushedAs(cartId, cart.storedVersion() + 1);
+                    cartStore.markFlushed(userId, written);
+                    // Written through JDBC, so Hibernate's cached copy of the cart is stale
+                    invalidationBus.publish(SecondLevelCache.CARTS, List.of(cartId));
+                    invalidationBus.broadcast(CartStore.CHANNEL, List.of(userId));
+                    return written;
+                }
+                if (attempt == MAX_ATTEMPTS) {
+                    throw new CartConflictException("The cart was changed elsewhere; please try again");
+                }
+                log.info("Cart of user {} was written elsewhere since version {}; re-applying local changes",
+                        userId, cart.storedVersion());
+                cartStore.rebase(userId, cartLoader.load(userId));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushDirty();
+    }
+
+    // Null if the carts row moved past the snapshot's version; nothing is written then
+    private Long write(Long userId, StoredCart cart) {
+        Long cartId = cart.cartId() != null ? cart.cartId() : cartJdbcRepository.ensureCart(userId);
+        // Locks the row too, so concurrent flushes of the same cart run one after the other
+        if (!cartJdbcRepository.advanceVersion(cartId, cart.storedVersion())) {
+            return null;
+        }
+        List<CartJdbcRepository.ItemRow> rows = new ArrayList<>(cart.lines().size());
+        for (StoredCart.Line line : cart.lines().values()) {
+            rows.add(new CartJdbcRepository.ItemRow(line.id(), line.productId(), line.quantity(),
+                    line.addedDate(), line.updatedDate()));
+        }
+        cartJdbcRepository.replaceItems(cartId, rows, cart.updatedDate());
+        return cartId;
+    }
+}
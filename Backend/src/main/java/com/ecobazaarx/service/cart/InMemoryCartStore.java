@@ -0,0 +1,160 @@
+package com.ecobazaarx.service.cart;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Single-node {@link CartStore}: an access-ordered map bounded to
+ * {@code app.cart.store.max-entries} carts. Only clean carts are evicted —
+ * a dirty cart stays until it has been flushed, so the bound can be
+ * exceeded briefly under a burst of writes. Every operation is a map lookup
+ * plus a small copy under one lock.
+ */
+@Component
+public class InMemoryCartStore implements CartStore {
+
+    private static final class Entry {
+        StoredCart cart;
+        // As last loaded or flushed: what the cart's unflushed changes are relative to
+        StoredCart base;
+        boolean dirty;
+
+        Entry(StoredCart loaded) {
+            this.cart = loaded;
+            this.base = loaded;
+        }
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<Long, Entry> carts = new LinkedHashMap<>(256, 0.75f, true);
+
+    public InMemoryCartStore(@Value("${app.cart.store.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public synchronized StoredCart get(Long userId) {
+        Entry entry = carts.get(userId);
+        return entry != null ? entry.cart : null;
+    }
+
+    @Override
+    public synchronized StoredCart putIfAbsent(Long userId, StoredCart loaded) {
+        Entry entry = carts.get(userId);
+        if (entry == null) {
+            entry = new Entry(loaded);
+            carts.put(userId, entry);
+            trim(userId);
+        }
+        return entry.cart;
+    }
+
+    @Override
+    public synchronized StoredCart update(Long userId, UnaryOperator<StoredCart> mutation) {
+        Entry entry = carts.get(userId);
+        return entry != null ? apply(entry, mutation) : null;
+    }
+
+    @Override
+    public StoredCart update(Long userId, Supplier<StoredCart> loader, UnaryOperator<StoredCart> mutation) {
+        StoredCart cart = update(userId, mutation);
+        if (cart != null) {
+            return cart;
+        }
+        // Read outside the lock, so a database round trip never holds up other users' carts
+        StoredCart loaded = loader.get();
+        synchronized (this) {
+            Entry entry = carts.computeIfAbsent(userId, id -> new Entry(loaded));
+            // Dirty once applied, so trim() leaves it alone
+            cart = apply(entry, mutation);
+            trim(userId);
+            return cart;
+        }
+    }
+
+    @Override
+    public synchronized boolean isDirty(Long userId) {
+        Entry entry = carts.get(userId);
+        return entry != null && entry.dirty;
+    }
+
+    @Override
+    public synchronized List<Long> dirtyUserIds() {
+        List<Long> dirty = new ArrayList<>();
+        carts.forEach((userId, entry) -> {
+            if (entry.dirty) {
+                dirty.add(userId);
+            }
+        });
+        return dirty;
+    }
+
+    @Override
+    public synchronized void markFlushed(Long userId, StoredCart written) {
+        Entry entry = carts.get(userId);
+        if (entry == null) {
+            return;
+        }
+        entry.cart = entry.cart.flushedAs(written.cartId(), written.storedVersion());
+        entry.base = written;
+        if (entry.cart.version() == written.version()) {
+            entry.dirty = false;
+            trim(userId);
+        }
+    }
+
+    @Override
+    public synchronized void rebase(Long userId, StoredCart fresh) {
+        Entry entry = carts.get(userId);
+        if (entry == null) {
+            return;
+        }
+        entry.cart = entry.cart.rebase(entry.base, fresh).withVersion(entry.cart.version() + 1);
+        entry.base = fresh;
+        entry.dirty = true;
+    }
+
+    @Override
+    public synchronized void evictIfClean(Long userId) {
+        Entry entry = carts.get(userId);
+        if (entry != null && !entry.dirty) {
+            carts.remove(userId);
+        }
+    }
+
+    @Override
+    public synchronized boolean evictIfUnchanged(Long userId, long version) {
+        Entry entry = carts.get(userId);
+        if (entry != null && entry.cart.version() != version) {
+            return false;
+        }
+        carts.remove(userId);
+        return true;
+    }
+
+    private StoredCart apply(Entry entry, UnaryOperator<StoredCart> mutation) {
+        entry.cart = mutation.apply(entry.cart).withVersion(entry.cart.version() + 1);
+        entry.dirty = true;
+        return entry.cart;
+    }
+
+    // Evicts least recently used clean carts until back under the bound, sparing the one
+    // just used: if every other cart is dirty, it would otherwise be evicted as soon as cached
+    private void trim(Long keep) {
+        Iterator<Map.Entry<Long, Entry>> it = carts.entrySet().iterator();
+        while (carts.size() > maxEntries && it.hasNext()) {
+            Map.Entry<Long, Entry> e = it.next();
+            if (!e.getValue().dirty && !e.getKey().equals(keep)) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.ecobazaarx.service.cart;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a user's cart as kept by a {@link CartStore}. Every
+ * mutation returns a new snapshot, so readers never see a half-applied change
+ * and a remote store can serialize it as-is.
+ *
+ * @param cartId      id of the carts row, or null until the cart is first flushed
+ * @param lines       productId -> line, in the order the products were added
+ * @param version     bumped by the store on every mutation; the flusher uses it
+ *                    to tell whether a cart changed while it was being written
+ * @param updatedDate time of the last mutation
+ * @param storedVersion carts.cart_version this snapshot was loaded from or
+ *                    last flushed as (0 before the row exists); a flush only
+ *                    writes if the row is still at it, so a stale copy never
+ *                    overwrites lines written by another node
+ */
+public record StoredCart(Long cartId, Map<Long, Line> lines, long version, LocalDateTime updatedDate,
+                         long storedVersion) {
+
+    /**
+     * One cart line. {@code id} is the cart_items id, reserved up front (see
+     * CartLineIdAllocator) so clients can address a line before it is flushed.
+     */
+    public record Line(long id, long productId, int quantity, LocalDateTime addedDate, LocalDateTime updatedDate) {
+
+        Line withQuantity(int quantity) {
+            return new Line(id, productId, quantity, addedDate, LocalDateTime.now());
+        }
+    }
+
+    public StoredCart {
+        lines = Collections.unmodifiableMap(new LinkedHashMap<>(lines));
+    }
+
+    public static StoredCart empty(Long cartId) {
+        return new StoredCart(cartId, Map.of(), 0, LocalDateTime.now(), 0);
+    }
+
+    public Collection<Long> productIds() {
+        return lines.keySet();
+    }
+
+    public Line line(Long productId) {
+        return lines.get(productId);
+    }
+
+    public Line lineById(long lineId) {
+        for (Line line : lines.values()) {
+            if (line.id() == lineId) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    public int totalItems() {
+        int total = 0;
+        for (Line line : lines.values()) {
+            total += line.quantity();
+        }
+        return total;
+    }
+
+    /** Sets the quantity of the product's line, creating it with {@code newLineId} if absent. */
+    public StoredCart withQuantity(long productId, int quantity, long newLineId) {
+        Map<Long, Line> next = new LinkedHashMap<>(lines);
+        Line line = next.get(productId);
+        LocalDateTime now = LocalDateTime.now();
+        next.put(productId, line != null
+                ? line.withQuantity(quantity)
+                : new Line(newLineId, productId, quantity, now, now));
+        return new StoredCart(cartId, next, version, now, storedVersion);
+    }
+
+    public StoredCart without(long productId) {
+        Map<Long, Line> next = new LinkedHashMap<>(lines);
+        next.remove(productId);
+        return new StoredCart(cartId, next, version, LocalDateTime.now(), storedVersion);
+    }
+
+    /**
+     * Drops the lines of {@code checkedOut} (matched by line id), keeping
+     * anything added since. Checkout bumps the row's cart_version once
+     * (CartRepository.resetTotals), so the result is based on that version.
+     */
+    public StoredCart without(StoredCart checkedOut) {
+        Map<Long, Line> next = new LinkedHashMap<>(lines);
+        next.values().removeIf(line -> {
+            Line old = checkedOut.line(line.productId());
+            return old != null && old.id() == line.id();
+        });
+        return new StoredCart(cartId, next, version, LocalDateTime.now(), checkedOut.storedVersion() + 1);
+    }
+
+    public StoredCart cleared() {
+        return new StoredCart(cartId, Map.of(), version, LocalDateTime.now(), storedVersion);
+    }
+
+    /**
+     * This cart's changes since {@code base} re-applied on top of
+     * {@code fresh}, a newer copy of the same cart read from the database
+     * after another node (or a checkout) wrote it. Lines changed or added
+     * here win; lines removed here are removed unless they were re-added
+     * elsewhere under a new line id; every other line is taken from
+     * {@code fresh}.
+     */
+    StoredCart rebase(StoredCart base, StoredCart fresh) {
+        Map<Long, Line> next = new LinkedHashMap<>(fresh.lines);
+        for (Line old : base.lines.values()) {
+            Line current = next.get(old.productId());
+            if (!lines.containsKey(old.productId()) && current != null && current.id() == old.id()) {
+                next.remove(old.productId());
+            }
+        }
+        for (Line line : lines.values()) {
+            if (line.equals(base.line(line.productId()))) {
+                continue;   // unchanged here: fresh has the latest
+            }
+            // Keep the stored line's id, so the other node's view of it stays valid
+            Line current = next.get(line.productId());
+            next.put(line.productId(), current == null ? line
+                    : new Line(current.id(), line.productId(), line.quantity(), current.addedDate(), line.updatedDate()));
+        }
+        return new StoredCart(fresh.cartId, next, version, LocalDateTime.now(), fresh.storedVersion);
+    }
+
+    StoredCart withVersion(long version) {
+        return new StoredCart(cartId, lines, version, updatedDate, storedVersion);
+    }
+
+    /** This snapshot as written to the carts row {@code cartId} at {@code storedVersion}. */
+    StoredCart flushedAs(Long cartId, long storedVersion) {
+        return new StoredCart(cartId, lines, version, updatedDate, storedVersion);
+    }
+}
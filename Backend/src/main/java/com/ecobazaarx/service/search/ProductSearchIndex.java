@@ -0,0 +1,256 @@
+package com.ecobazaarx.service.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over active products, ranked with BM25.
+ *
+ * Replaces the old {@code LOWER(name) LIKE '%x%' OR ...} query, which scanned
+ * the whole products table (TEXT description included) on every keystroke of
+ * the home-page search bar. Lookups here only touch the posting lists of the
+ * query terms, so latency depends on how many products match — not on how
+ * many exist.
+ *
+ * Fields are weighted (name > type > description) and folded into a single
+ * weighted term frequency per document before BM25 scoring. All query terms
+ * must match; the last term is also matched as a prefix so partially typed
+ * words ("hood" -> hoodie) keep working while the user types, unless it is a
+ * stop word or a single letter.
+ *
+ * The index is kept in sync by ProductService (full build on startup,
+ * incremental updates after each committed product write).
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT        = 3.0f;
+    private static final float TYPE_WEIGHT        = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    // Standard BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B  = 0.75;
+
+    /** Caps how many dictionary terms a single prefix can expand to. */
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    /** Shorter last tokens match whole words only; one letter would expand to half the dictionary. */
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** term -> (productId -> weighted term frequency). Sorted for prefix lookups. */
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+
+    /** productId -> weighted terms, kept so a document can be removed or replaced. */
+    private final Map<Long, Map<String, Float>> documents = new HashMap<>();
+
+    /** productId -> weighted document length. */
+    private final Map<Long, Float> lengths = new HashMap<>();
+
+    private double totalLength;
+
+    /** Result of a search: one page of product ids in rank order plus the total hit count. */
+    public record SearchResult(List<Long> productIds, long totalHits) {}
+
+    // ── Writes ────────────────────────────────────────────────────────────────
+
+    /** Adds or replaces the document for a product. */
+    public void index(Long productId, String name, String type, String description) {
+        Map<String, Float> terms = new HashMap<>();
+        addField(terms, name, NAME_WEIGHT);
+        addField(terms, type, TYPE_WEIGHT);
+        addField(terms, description, DESCRIPTION_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+            float length = 0f;
+            for (Map.Entry<String, Float> e : terms.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(productId, e.getValue());
+                length += e.getValue();
+            }
+            documents.put(productId, terms);
+            lengths.put(productId, length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Drops everything. Used before a full rebuild. */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            lengths.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ── Reads ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Ranks matching products for {@code query} and returns the requested slice.
+     * Ties are broken by product id (newest first) so paging is stable.
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        List<String> tokens = SearchAnalyzer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return new SearchResult(List.of(), 0);
+        }
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        lock.readLock().lock();
+        try {
+            int docCount = documents.size();
+            if (docCount == 0) {
+                return new SearchResult(List.of(), 0);
+            }
+            double avgLength = totalLength / docCount;
+
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                Collection<String> terms = termsFor(token);
+                if (terms == null) {
+                    // Stop word — ignore rather than fail the whole query. Also when it is the
+                    // last token: "shirt for" should not turn into "shirt forest/form/..."
+                    continue;
+                }
+                if (lastIsPrefix && i == tokens.size() - 1 && token.length() >= MIN_PREFIX_LENGTH) {
+                    terms = expandPrefix(token);
+                }
+
+                Map<Long, Double> termScores = new HashMap<>();
+                for (String term : terms) {
+                    Map<Long, Float> list = postings.get(term);
+                    if (list == null) continue;
+                    double idf = Math.log(1 + (docCount - list.size() + 0.5) / (list.size() + 0.5));
+                    for (Map.Entry<Long, Float> p : list.entrySet()) {
+                        double tf = p.getValue();
+                        double norm = K1 * (1 - B + B * lengths.get(p.getKey()) / avgLength);
+                        double s = idf * (tf * (K1 + 1)) / (tf + norm);
+                        termScores.merge(p.getKey(), s, Math::max);
+                    }
+                }
+
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<Long, Double> next = new HashMap<>();
+                    for (Map.Entry<Long, Double> e : scores.entrySet()) {
+                        Double s = termScores.get(e.getKey());
+                        if (s != null) next.put(e.getKey(), e.getValue() + s);
+                    }
+                    scores = next;
+                }
+                if (scores.isEmpty()) {
+                    return new SearchResult(List.of(), 0);
+                }
+            }
+            if (scores == null) {
+                return new SearchResult(List.of(), 0);
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int c = Double.compare(b.getValue(), a.getValue());
+                return c != 0 ? c : Long.compare(b.getKey(), a.getKey());
+            });
+
+            List<Long> page = new ArrayList<>();
+            int end = (int) Math.min((long) offset + limit, ranked.size());
+            for (int i = Math.max(offset, 0); i < end; i++) {
+                page.add(ranked.get(i).getKey());
+            }
+            return new SearchResult(page, ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ── Internals ─────────────────────────────────────────────────────────────
+
+    private static void addField(Map<String, Float> terms, String text, float weight) {
+        for (String term : SearchAnalyzer.analyze(text)) {
+            terms.merge(term, weight, Float::sum);
+        }
+    }
+
+    private void removeInternal(Long productId) {
+        Map<String, Float> terms = documents.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Long, Float> list = postings.get(term);
+            if (list != null) {
+                list.remove(productId);
+                if (list.isEmpty()) postings.remove(term);
+            }
+        }
+        Float length = lengths.remove(productId);
+        if (length != null) totalLength -= length;
+    }
+
+    /** Exact-match terms for a query token, or null if the token is a stop word. */
+    private Collection<String> termsFor(String token) {
+        List<String> analyzed = SearchAnalyzer.analyze(token);
+        return analyzed.isEmpty() ? null : analyzed;
+    }
+
+    /**
+     * Dictionary terms starting with either the raw token or its stem. Both are
+     * needed because a half-typed word is not always a prefix of the stemmed
+     * form ("hoodie" stems to "hoodi", but "hoodi" is what we stored).
+     */
+    private Collection<String> expandPrefix(String token) {
+        Set<String> out = new HashSet<>();
+        collectPrefix(token, out);
+        collectPrefix(SearchAnalyzer.stem(token), out);
+        return out;
+    }
+
+    private void collectPrefix(String prefix, Set<String> out) {
+        NavigableMap<String, Map<Long, Float>> range =
+                postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        for (String term : range.keySet()) {
+            if (out.size() >= MAX_PREFIX_EXPANSIONS) return;
+            out.add(term);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.ecobazaarx.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns product text and search queries into index terms.
+ *
+ * Both sides of the index go through the same pipeline so that "Hoodies",
+ * "hoodie" and "HOODIE" all land on the same posting list:
+ *  1. lower-case and split on anything that is not a letter or digit
+ *  2. drop a small set of English stop words
+ *  3. apply a light suffix-stripping stemmer (plural / -ing / -ed / -ly / trailing e, y)
+ *
+ * The stemmer is deliberately conservative — catalog text is short, so an
+ * aggressive Porter implementation would merge too many unrelated words.
+ */
+final class SearchAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from",
+            "in", "is", "it", "of", "on", "or", "the", "to", "with");
+
+    private SearchAnalyzer() {}
+
+    /** Tokenizes and stems the given text. Never returns null. */
+    static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : tokenize(text)) {
+            if (!STOP_WORDS.contains(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+
+    /** Lower-cased raw tokens without stop-word removal or stemming. */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i < lower.length(); i++) {
+            if (Character.isLetterOrDigit(lower.charAt(i))) {
+                if (start < 0) start = i;
+            } else if (start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(lower.substring(start));
+        }
+        return tokens;
+    }
+
+    static String stem(String word) {
+        if (word.length() <= 3 || !Character.isLetter(word.charAt(word.length() - 1))) {
+            return word;
+        }
+        String w = word;
+
+        // Plurals
+        if (w.endsWith("sses")) {
+            w = w.substring(0, w.length() - 2);
+        } else if (w.endsWith("ies")) {
+            w = w.substring(0, w.length() - 2);          // batteries -> batteri
+        } else if (w.endsWith("s") && !w.endsWith("ss") && !w.endsWith("us")) {
+            w = w.substring(0, w.length() - 1);
+        }
+
+        // Verb / adverb suffixes — only when a vowel remains in the stem
+        if (w.endsWith("ing") && hasVowel(w, w.length() - 3) && w.length() > 5) {
+            w = undouble(w.substring(0, w.length() - 3));
+        } else if (w.endsWith("ed") && hasVowel(w, w.length() - 2) && w.length() > 4) {
+            w = undouble(w.substring(0, w.length() - 2));
+        } else if (w.endsWith("ly") && w.length() > 5) {
+            w = w.substring(0, w.length() - 2);
+        }
+
+        // Normalise endings so singular/plural forms converge
+        if (w.length() > 4 && w.endsWith("e")) {
+            w = w.substring(0, w.length() - 1);          // hoodie -> hoodi
+        } else if (w.length() > 3 && w.endsWith("y") && !isVowel(w.charAt(w.length() - 2))) {
+            w = w.substring(0, w.length() - 1) + "i";    // battery -> batteri
+        }
+        return w;
+    }
+
+    private static String undouble(String w) {
+        int n = w.length();
+        if (n >= 2 && w.charAt(n - 1) == w.charAt(n - 2)) {
+            char c = w.charAt(n - 1);
+            if (!isVowel(c) && c != 'l' && c != 's' && c != 'z') {
+                return w.substring(0, n - 1);            // running -> run
+            }
+        }
+        return w;
+    }
+
+    private static boolean hasVowel(String w, int end) {
+        for (int i = 0; i < end; i++) {
+            if (isVowel(w.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+}
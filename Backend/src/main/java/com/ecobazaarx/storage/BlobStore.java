@@ -0,0 +1,43 @@
+package com.ecobazaarx.storage;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Content-addressed binary storage for product images.
+ *
+ * Keys are {@code <sha256-hex>.<ext>}, so storing the same bytes twice is a
+ * no-op and a key never changes meaning — which is what lets the image
+ * endpoint mark responses immutable. {@link LocalDiskBlobStore} is the only
+ * implementation today; an S3-compatible store only has to implement these
+ * three methods (a ranged GET for {@link Blob#transferTo}).
+ */
+public interface BlobStore {
+
+    /** Stores {@code data} and returns its key. {@code extension} has no leading dot. */
+    String put(byte[] data, String extension);
+
+    /** The blob for {@code key}, or empty if it does not exist or the key is malformed. */
+    Optional<Blob> get(String key);
+
+    boolean exists(String key);
+
+    interface Blob {
+        String key();
+
+        long size();
+
+        String contentType();
+
+        /**
+         * Backing file, when the blob lives on the local file system. Lets the
+         * web layer hand the file to the servlet container's sendfile support.
+         */
+        Optional<Path> localPath();
+
+        /** Copies {@code count} bytes starting at {@code position} to {@code target}. */
+        void transferTo(long position, long count, WritableByteChannel target) throws IOException;
+    }
+}
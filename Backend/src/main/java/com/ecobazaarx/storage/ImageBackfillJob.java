@@ -0,0 +1,131 @@
+package com.ecobazaarx.storage;
+
+import com.ecobazaarx.entity.OrderItem;
+import com.ecobazaarx.entity.Product;
+import com.ecobazaarx.repository.OrderItemRepository;
+import com.ecobazaarx.repository.ProductRepository;
+import com.ecobazaarx.service.ProductCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * One-off migration that moves inline data-URI images out of
+ * {@code products.image} and {@code order_items.product_image} into the
+ * {@link BlobStore}, leaving only the content key in the row.
+ *
+ * Runs at startup and walks each table by id in batches, one short
+ * transaction per batch, so it never holds a large result set or long locks.
+ * Safe to re-run: migrated rows no longer match, and rows whose image cannot
+ * be decoded are logged and skipped. Disable with
+ * {@code app.images.backfill.enabled=false}.
+ */
+@Component
+public class ImageBackfillJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageBackfillJob.class);
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ImageStorageService imageStorage;
+    private final ProductCache productCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    @Autowired
+    public ImageBackfillJob(ProductRepository productRepository,
+                            OrderItemRepository orderItemRepository,
+                            ImageStorageService imageStorage,
+                            ProductCache productCache,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.images.backfill.enabled:true}") boolean enabled,
+                            @Value("${app.images.backfill.batch-size:50}") int batchSize) {
+        this.productRepository = productRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.imageStorage = imageStorage;
+        this.productCache = productCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        int products = backfillProducts();
+        int orderItems = backfillOrderItems();
+        if (products > 0 || orderItems > 0) {
+            log.info("Moved inline images to blob store: {} products, {} order items", products, orderItems);
+        }
+    }
+
+    private int backfillProducts() {
+        int migrated = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = productRepository.findIdsWithInlineImage(afterId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                return migrated;
+            }
+            migrated += transactionTemplate.execute(status -> {
+                int count = 0;
+                for (Product product : productRepository.findAllById(ids)) {
+                    String key = store(product.getImage(), "product", product.getId());
+                    if (key != null) {
+                        product.setImageKey(key);
+                        product.setImage(null);
+                        count++;
+                    }
+                }
+                productCache.invalidate(ids);
+                return count;
+            });
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    private int backfillOrderItems() {
+        int migrated = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = orderItemRepository.findIdsWithInlineImage(afterId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                return migrated;
+            }
+            migrated += transactionTemplate.execute(status -> {
+                int count = 0;
+                for (OrderItem item : orderItemRepository.findAllById(ids)) {
+                    String key = store(item.getProductImage(), "order item", item.getId());
+                    if (key != null) {
+                        item.setProductImageKey(key);
+                        item.setProductImage(null);
+                        count++;
+                    }
+                }
+                return count;
+            });
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    private String store(String dataUri, String kind, Long id) {
+        try {
+            return imageStorage.storeDataUri(dataUri);
+        } catch (IllegalArgumentException e) {
+            log.warn("Skipping {} {}: {}", kind, id, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.ecobazaarx.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Moves inline images out of the database and into the {@link BlobStore}.
+ *
+ * The frontends upload product images as base64 data URIs inside the product
+ * JSON. Those are decoded here and replaced by a content-hash key; external
+ * image URLs are left alone.
+ */
+@Service
+public class ImageStorageService {
+
+    /** Public path prefix of {@code ImageController}. */
+    public static final String IMAGE_PATH_PREFIX = "/api/images/";
+
+    // Raster formats only: SVG can carry script that would run on the API origin
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/png", "png",
+            "image/jpeg", "jpg",
+            "image/jpg", "jpg",
+            "image/gif", "gif",
+            "image/webp", "webp",
+            "image/avif", "avif",
+            "image/bmp", "bmp");
+
+    private final BlobStore blobStore;
+
+    @Autowired
+    public ImageStorageService(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    /** Whether {@code mime} is one of the image types accepted for upload. */
+    public static boolean isSupportedType(String mime) {
+        return mime != null && EXTENSIONS.containsKey(mime.toLowerCase());
+    }
+
+    public static boolean isDataUri(String value) {
+        return value != null && value.startsWith("data:");
+    }
+
+    /**
+     * Decodes a {@code data:image/...;base64,} URI into the blob store and
+     * returns its key. Anything else is rejected with a 400.
+     */
+    public String storeDataUri(String dataUri) {
+        int comma = dataUri.indexOf(',');
+        String meta = comma > 0 ? dataUri.substring(5, comma) : "";
+        if (!meta.endsWith(";base64")) {
+            throw new IllegalArgumentException("Image must be a base64 data URI or a URL");
+        }
+        String mime = meta.substring(0, meta.length() - ";base64".length()).toLowerCase();
+        String extension = EXTENSIONS.get(mime);
+        if (extension == null) {
+            throw new IllegalArgumentException("Unsupported image type: " + mime);
+        }
+        byte[] bytes = Base64.getMimeDecoder().decode(dataUri.substring(comma + 1));
+        return blobStore.put(bytes, extension);
+    }
+
+    /**
+     * The key inside one of our own image URLs (as handed out in product
+     * responses), or null if {@code url} points elsewhere. Lets an edit form
+     * send back the URL it was given without re-uploading the image.
+     */
+    public String keyFromUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        int at = url.indexOf(IMAGE_PATH_PREFIX);
+        if (at < 0) {
+            return null;
+        }
+        String key = url.substring(at + IMAGE_PATH_PREFIX.length());
+        return blobStore.exists(key) ? key : null;
+    }
+
+    /**
+     * Where a stored image reference may be redirected to: our own image
+     * path for a key in the blob store, or an absolute http(s) URL with a
+     * host. Anything else (other schemes, relative paths, user info) is
+     * null, so a stored value can never turn into an open redirect.
+     */
+    public String redirectTarget(String url) {
+        String key = keyFromUrl(url);
+        if (key != null) {
+            return IMAGE_PATH_PREFIX + key;
+        }
+        try {
+            URI uri = new URI(url.trim());
+            String scheme = uri.getScheme();
+            if (scheme != null && (scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))
+                    && uri.getHost() != null && uri.getRawUserInfo() == null) {
+                return uri.toASCIIString();
+            }
+        } catch (URISyntaxException e) {
+            // not a URL
+        }
+        return null;
+    }
+}
@@ -0,0 +1,146 @@
+package com.ecobazaarx.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * {@link BlobStore} on the local file system.
+ *
+ * Files are laid out as {@code <dir>/<first two hex chars>/<key>} to keep
+ * directories small. Writes go to a temp file first and are moved into place
+ * atomically, so a reader never sees a half-written blob.
+ */
+@Component
+public class LocalDiskBlobStore implements BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalDiskBlobStore.class);
+
+    /** Guards against path traversal: only keys this store could have produced are accepted. */
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]{1,5}");
+
+    // Raster formats only: an SVG can carry script, and blobs are served from the API origin.
+    // Blobs stored under other extensions go out as application/octet-stream.
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "png", "image/png",
+            "jpg", "image/jpeg",
+            "gif", "image/gif",
+            "webp", "image/webp",
+            "avif", "image/avif",
+            "bmp", "image/bmp");
+
+    private final Path root;
+
+    public LocalDiskBlobStore(@Value("${app.images.dir:uploads/images}") String dir) {
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create image store directory " + root, e);
+        }
+        log.info("Image blob store at {}", root);
+    }
+
+    @Override
+    public String put(byte[] data, String extension) {
+        String key = sha256(data) + "." + extension;
+        Path target = pathFor(key);
+        if (Files.exists(target)) {
+            return key;
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), "upload-", ".tmp");
+            try {
+                Files.write(tmp, data);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // another request stored the same bytes first — same key, same content
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store image " + key, e);
+        }
+        return key;
+    }
+
+    @Override
+    public Optional<Blob> get(String key) {
+        if (!isValidKey(key)) {
+            return Optional.empty();
+        }
+        Path path = pathFor(key);
+        try {
+            long size = Files.size(path);
+            return Optional.of(new FileBlob(key, path, size, contentTypeFor(key)));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return isValidKey(key) && Files.exists(pathFor(key));
+    }
+
+    static boolean isValidKey(String key) {
+        return key != null && KEY_PATTERN.matcher(key).matches();
+    }
+
+    private Path pathFor(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static String contentTypeFor(String key) {
+        String ext = key.substring(key.lastIndexOf('.') + 1);
+        return CONTENT_TYPES.getOrDefault(ext, "application/octet-stream");
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record FileBlob(String key, Path path, long size, String contentType) implements Blob {
+
+        @Override
+        public Optional<Path> localPath() {
+            return Optional.of(path);
+        }
+
+        /** FileChannel.transferTo lets the kernel copy straight from the page cache where it can. */
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long end = position + count;
+                while (position < end) {
+                    long sent = channel.transferTo(position, end - position, target);
+                    if (sent <= 0) break;
+                    position += sent;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.ecobazaarx.repository;
+
+import com.ecobazaarx.entity.OrderCarbonRollup;
+import com.ecobazaarx.entity.ProductCarbonRollup;
+import com.ecobazaarx.entity.Role;
+import com.ecobazaarx.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Leaderboards read the carbon rollups a page at a time: users' slot rows
+ * are added up, groups without orders or active products are left out, the
+ * count matches, and sorting by the column aliases works. Runs against
+ * in-memory H2.
+ */
+class CarbonLeaderboardQueryTest extends RepositoryTestBase {
+
+    private static final int USERS = 7;
+
+    @Autowired private OrderCarbonRollupRepository orderRollups;
+    @Autowired private ProductCarbonRollupRepository productRollups;
+
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // User i emitted 10 * i over i orders (eco score 3.0 each), split over two slots
+        for (int i = 1; i <= USERS; i++) {
+            User user = user("user" + i, Role.CONSUMER);
+            userIds.add(user.getId());
+            persist(orderRollup(user.getId(), 0, 4 * i, i - 1));
+            persist(orderRollup(user.getId(), 1, 6 * i, 1));
+        }
+        // An order that was placed and cancelled in different slots nets to nothing
+        User cancelled = user("cancelled", Role.CONSUMER);
+        persist(orderRollup(cancelled.getId(), 2, 50, 1));
+        persist(orderRollup(cancelled.getId(), 5, -50, -1));
+
+        persist(sellerRollup(user("seller", Role.SELLER).getId(), "12.50", "2.50", 3));
+        persist(sellerRollup(user("retired", Role.SELLER).getId(), "0", "0", 0));
+        flushAndClear();
+    }
+
+    @Test
+    void userPagesAddUpSlotsAndSkipUsersWithoutOrders() {
+        Page<Object[]> first = orderRollups.findUserLeaderboard(
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "totalCO2").and(Sort.by("id"))));
+
+        assertThat(first.getTotalElements()).isEqualTo(USERS);
+        assertThat(first.getContent()).hasSize(3);
+        Object[] top = first.getContent().get(0);
+        assertThat(top[0]).isEqualTo(userIds.get(USERS - 1));
+        assertThat(((Number) top[2]).doubleValue()).isEqualTo(10.0 * USERS);
+        assertThat(((Number) top[3]).longValue()).isEqualTo(USERS);
+        assertThat(((Number) top[4]).doubleValue()).isEqualTo(3.0);
+
+        Page<Object[]> last = orderRollups.findUserLeaderboard(
+                PageRequest.of(2, 3, Sort.by(Sort.Direction.DESC, "totalCO2").and(Sort.by("id"))));
+        assertThat(last.getContent()).hasSize(1);
+        assertThat(last.getContent().get(0)[0]).isEqualTo(userIds.get(0));
+    }
+
+    @Test
+    void usersSortByNameAndOrderCount() {
+        List<Object[]> byName = orderRollups.findUserLeaderboardTop(
+                PageRequest.of(0, 2, Sort.by(Sort.Direction.ASC, "name").and(Sort.by("id"))));
+        assertThat(byName).extracting(row -> row[1]).containsExactly("user1", "user2");
+
+        List<Object[]> byOrders = orderRollups.findUserLeaderboardTop(
+                PageRequest.of(0, 1, Sort.by(Sort.Direction.ASC, "orderCount").and(Sort.by("id"))));
+        assertThat(byOrders.get(0)[0]).isEqualTo(userIds.get(0));
+    }
+
+    @Test
+    void sellerPagesSkipSellersWithoutActiveProducts() {
+        Page<Object[]> page = productRollups.findSellerLeaderboard(
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "avgEcoScore").and(Sort.by("id"))));
+
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        Object[] row = page.getContent().get(0);
+        assertThat(row[1]).isEqualTo("seller");
+        assertThat(((Number) row[4]).doubleValue()).isEqualTo(15.0);
+        assertThat(((Number) row[5]).longValue()).isEqualTo(3);
+    }
+
+    private static OrderCarbonRollup orderRollup(Long userId, int slot, int co2, int orders) {
+        OrderCarbonRollup r = new OrderCarbonRollup();
+        r.setDimension("user");
+        r.setGroupKey(String.valueOf(userId));
+        r.setSlot(slot);
+        r.setCo2(BigDecimal.valueOf(co2));
+        r.setOrderCount(orders);
+        r.setEcoScoreSum(BigDecimal.valueOf(3L * orders));
+        r.setEcoScoreCount(orders);
+        return r;
+    }
+
+    private static ProductCarbonRollup sellerRollup(Long sellerId, String material, String shipping, int products) {
+        ProductCarbonRollup r = new ProductCarbonRollup();
+        r.setDimension("seller");
+        r.setGroupKey(String.valueOf(sellerId));
+        r.setMaterialCO2(new BigDecimal(material));
+        r.setShippingCO2(new BigDecimal(shipping));
+        r.setProductCount(products);
+        r.setEcoScoreSum(BigDecimal.valueOf(4L * products));
+        r.setEcoScoreCount(products);
+        return r;
+    }
+}
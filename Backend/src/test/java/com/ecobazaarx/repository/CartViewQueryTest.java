@@ -0,0 +1,122 @@
+package com.ecobazaarx.repository;
+
+import com.ecobazaarx.entity.Cart;
+import com.ecobazaarx.entity.CartItem;
+import com.ecobazaarx.entity.Product;
+import com.ecobazaarx.entity.Role;
+import com.ecobazaarx.entity.User;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cart reads must not pull the product rows' LONGTEXT image: CartItem loads
+ * leave the product unloaded, and the cart page reads products through the
+ * ProductSummary projection (ProductCache's loader). Also compares the bytes
+ * the cart's products take as ProductSummary rows (description included)
+ * with full entity rows. Runs against in-memory H2.
+ */
+class CartViewQueryTest extends RepositoryTestBase {
+
+    private static final int LINES = 5;
+    // Legacy inline image, as still stored on products created before the blob store
+    private static final String DATA_URI = "data:image/png;base64," + "A".repeat(200_000);
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private CartRepository cartRepository;
+
+    private User consumer;
+    private Cart cart;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User seller = user("seller", Role.SELLER);
+        consumer = user("consumer", Role.CONSUMER);
+        cart = persist(new Cart(consumer));
+        for (int i = 0; i < LINES; i++) {
+            Product p = product(seller, "Product " + i);
+            p.setDescription("Organic cotton, fair trade. ".repeat(20));
+            p.setImage(DATA_URI);
+            productIds.add(p.getId());
+            persist(new CartItem(cart, p, 1 + i));
+        }
+        flushAndClear();
+    }
+
+    @Test
+    void cartItemDoesNotLoadItsProduct() {
+        CartItem item = cartItemRepository.findAll().get(0);
+
+        assertThat(Hibernate.isInitialized(item.getProduct())).isFalse();
+    }
+
+    @Test
+    void cartLinesComeWithoutProducts() {
+        List<Object[]> rows = cartItemRepository.findCartLinesByUserId(consumer.getId());
+
+        assertThat(rows).hasSize(LINES);
+        assertThat(rows).allSatisfy(row -> {
+            assertThat(row[0]).isEqualTo(cart.getId());
+            assertThat(productIds).contains((Long) row[3]);
+            assertThat(row[7]).isEqualTo(0L);
+        });
+    }
+
+    @Test
+    void checkoutResetMovesTheCartVersionOn() {
+        cartRepository.resetTotals(cart.getId());
+
+        List<Object[]> rows = cartItemRepository.findCartLinesByUserId(consumer.getId());
+        assertThat(rows).allSatisfy(row -> assertThat(row[7]).isEqualTo(1L));
+    }
+
+    @Test
+    void cartViewCarriesTheCartFieldsButNotTheImage() {
+        List<ProductSummary> views = productRepository.findSummariesByIdIn(productIds);
+
+        assertThat(views).hasSize(LINES);
+        assertThat(views).allSatisfy(v -> {
+            assertThat(v.getPrice()).isEqualByComparingTo(BigDecimal.TEN);
+            assertThat(v.getStockQuantity()).isEqualTo(100);
+            assertThat(v.getHasImage()).isTrue();
+        });
+    }
+
+    @Test
+    void productSummariesReadAFractionOfTheEntityBytes() {
+        long entityBytes = 0;
+        for (Object row : entityManager.createNativeQuery("SELECT * FROM products").getResultList()) {
+            entityBytes += bytes((Object[]) row);
+        }
+        long summaryBytes = 0;
+        for (ProductSummary v : productRepository.findSummariesByIdIn(productIds)) {
+            summaryBytes += bytes(new Object[] { v.getId(), v.getName(), v.getType(), v.getPrice(), v.getEcoScore(),
+                    v.getFootprint(), v.getMaterialCO2(), v.getShippingCO2(), v.getCreatedDate(),
+                    v.getStockQuantity(), v.getDescription(), v.getStatus(), v.getRating(), v.getSales(),
+                    v.getSellerId(), v.getSellerName(), v.getImageKey(), v.getHasImage() });
+        }
+
+        assertThat(summaryBytes * 100).isLessThan(entityBytes);
+    }
+
+    // Rough wire size of a row: the text form of each column value
+    private static long bytes(Object[] row) {
+        long total = 0;
+        for (Object value : row) {
+            if (value != null) {
+                total += String.valueOf(value).getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return total;
+    }
+}
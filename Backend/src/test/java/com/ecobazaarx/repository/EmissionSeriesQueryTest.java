@@ -0,0 +1,145 @@
+package com.ecobazaarx.repository;
+
+import com.ecobazaarx.dto.EmissionTrendDto;
+import com.ecobazaarx.entity.EmissionBucket;
+import com.ecobazaarx.entity.Order;
+import com.ecobazaarx.entity.OrderStatus;
+import com.ecobazaarx.entity.Role;
+import com.ecobazaarx.entity.User;
+import com.ecobazaarx.service.EmissionSeries;
+import com.ecobazaarx.service.EmissionSeries.Granularity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The emission series rebuilds its daily and hourly buckets from the orders
+ * with the portable year/month/day/hour queries, leaves out cancelled
+ * orders, and downsamples days into Monday weeks and calendar months with
+ * zero-filled gaps. Runs against in-memory H2.
+ */
+@Import(EmissionSeries.class)
+class EmissionSeriesQueryTest extends RepositoryTestBase {
+
+    @Autowired private EmissionSeries emissionSeries;
+    @Autowired private EmissionBucketRepository bucketRepository;
+
+    private User consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = user("consumer", Role.CONSUMER);
+        order(LocalDateTime.of(2025, 3, 3, 10, 15), "5", "100", OrderStatus.DELIVERED);
+        order(LocalDateTime.of(2025, 3, 5, 14, 0), "3", "50", OrderStatus.PROCESSING);
+        order(LocalDateTime.of(2025, 3, 12, 9, 30), "2", "20", OrderStatus.SHIPPED);
+        order(LocalDateTime.of(2025, 4, 1, 8, 0), "7", "70", OrderStatus.CANCELLED);
+        order(LocalDateTime.of(2025, 4, 2, 23, 59), "1", "10", OrderStatus.DELIVERED);
+        entityManager.flush();
+    }
+
+    @Test
+    void weeksAddUpDaysFromMonday() {
+        emissionSeries.rebuild();
+
+        EmissionTrendDto trend = emissionSeries.getTrend(
+                LocalDate.of(2025, 3, 4), LocalDate.of(2025, 3, 16), Granularity.WEEK);
+
+        assertThat(trend.getFrom()).isEqualTo(LocalDateTime.of(2025, 3, 3, 0, 0));
+        assertThat(trend.getTo()).isEqualTo(LocalDateTime.of(2025, 3, 17, 0, 0));
+        assertThat(trend.getPoints()).extracting(EmissionTrendDto.Point::getCo2).containsExactly(8.0, 2.0);
+        assertThat(trend.getPoints()).extracting(EmissionTrendDto.Point::getOrderCount).containsExactly(2L, 1L);
+        assertThat(trend.getTotalRevenue()).isEqualTo(170.0);
+    }
+
+    @Test
+    void monthsSkipCancelledOrdersAndZeroFill() {
+        emissionSeries.rebuild();
+
+        EmissionTrendDto trend = emissionSeries.getTrend(
+                LocalDate.of(2025, 3, 15), LocalDate.of(2025, 5, 1), Granularity.MONTH);
+
+        assertThat(trend.getPoints()).extracting(EmissionTrendDto.Point::getStart).containsExactly(
+                LocalDateTime.of(2025, 3, 1, 0, 0), LocalDateTime.of(2025, 4, 1, 0, 0),
+                LocalDateTime.of(2025, 5, 1, 0, 0));
+        assertThat(trend.getPoints()).extracting(EmissionTrendDto.Point::getCo2).containsExactly(10.0, 1.0, 0.0);
+        assertThat(trend.getTotalOrders()).isEqualTo(4);
+    }
+
+    @Test
+    void rebuildReportsAndFixesDrift() {
+        assertThat(emissionSeries.rebuild()).isEqualTo(4);
+        assertThat(emissionSeries.rebuild()).isZero();
+
+        EmissionBucket bucket = bucketRepository.findAll().stream()
+                .filter(b -> b.getBucketStart().equals(LocalDateTime.of(2025, 3, 3, 0, 0)))
+                .findFirst().orElseThrow();
+        bucket.setOrderCount(bucket.getOrderCount() + 5);
+        EmissionBucket extraSlot = new EmissionBucket(bucket.getResolution(), bucket.getBucketStart(), 3);
+        extraSlot.setCo2(BigDecimal.ONE);
+        bucketRepository.save(extraSlot);
+        entityManager.flush();
+
+        assertThat(emissionSeries.rebuild()).isEqualTo(1);
+        entityManager.flush();
+        assertThat(emissionSeries.rebuild()).isZero();
+    }
+
+    @Test
+    void addingCreatesMissingBucketsInTheCallersTransaction() {
+        Order order = order(LocalDateTime.of(2024, 6, 1, 12, 0), "2", "20", OrderStatus.PROCESSING);
+        entityManager.flush();
+
+        // Both calls insert-if-absent the same slot; the second finds the row and only updates
+        emissionSeries.add(order, 1);
+        emissionSeries.add(order, 1);
+        entityManager.clear();
+
+        EmissionTrendDto trend = emissionSeries.getTrend(
+                LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 1), Granularity.DAY);
+        assertThat(trend.getPoints()).extracting(EmissionTrendDto.Point::getCo2).containsExactly(4.0);
+        assertThat(trend.getTotalOrders()).isEqualTo(2);
+    }
+
+    @Test
+    void recentOrdersGetHourlyBuckets() {
+        LocalDateTime placed = LocalDateTime.now().minusHours(2);
+        order(placed, "4", "40", OrderStatus.PROCESSING);
+        entityManager.flush();
+        emissionSeries.rebuild();
+
+        EmissionTrendDto trend = emissionSeries.getTrend(placed.toLocalDate(), placed.toLocalDate(), Granularity.HOUR);
+
+        assertThat(trend.getPoints()).hasSize(24);
+        EmissionTrendDto.Point point = trend.getPoints().get(placed.getHour());
+        assertThat(point.getStart()).isEqualTo(placed.truncatedTo(ChronoUnit.HOURS));
+        assertThat(point.getCo2()).isEqualTo(4.0);
+        assertThat(trend.getTotalOrders()).isEqualTo(1);
+    }
+
+    @Test
+    void rangesWithTooManyPointsAreRejected() {
+        assertThatThrownBy(() -> emissionSeries.getTrend(
+                LocalDate.of(1900, 1, 1), LocalDate.of(2025, 1, 1), Granularity.DAY))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(emissionSeries.getTrend(
+                LocalDate.of(1900, 1, 1), LocalDate.of(2025, 1, 1), Granularity.MONTH).getPoints())
+                .hasSize(1501);
+    }
+
+    private Order order(LocalDateTime placed, String co2, String amount, OrderStatus status) {
+        Order order = new Order(consumer, new BigDecimal(amount));
+        order.setOrderDate(placed);
+        order.setTotalCO2Footprint(new BigDecimal(co2));
+        order.setStatus(status);
+        return persist(order);
+    }
+}
@@ -0,0 +1,110 @@
+package com.ecobazaarx.repository;
+
+import com.ecobazaarx.dto.OrderDto;
+import com.ecobazaarx.entity.Order;
+import com.ecobazaarx.entity.OrderItem;
+import com.ecobazaarx.entity.OrderStatus;
+import com.ecobazaarx.entity.Product;
+import com.ecobazaarx.entity.Role;
+import com.ecobazaarx.entity.User;
+import com.ecobazaarx.mapper.OrderMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pins the number of SQL statements each order list read issues, including
+ * the OrderMapper pass over every item, so an N+1 regression fails the build.
+ * Runs against in-memory H2.
+ */
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(OrderMapper.class)
+class OrderFetchPlanTest extends RepositoryTestBase {
+
+    private static final int ORDERS = 5;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private OrderMapper orderMapper;
+
+    private User consumer;
+    private User seller;
+
+    @BeforeEach
+    void setUp() {
+        seller = user("seller", Role.SELLER);
+        consumer = user("consumer", Role.CONSUMER);
+
+        Product[] products = new Product[ITEMS_PER_ORDER];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = product(seller, "Product " + i);
+        }
+        for (int o = 0; o < ORDERS; o++) {
+            Order order = new Order(consumer, BigDecimal.TEN);
+            order.setTrackingNumber("TRK-TEST-" + o);
+            order.setOrderDate(LocalDateTime.now().minusHours(o));
+            for (Product product : products) {
+                order.addOrderItem(new OrderItem(order, product, 1, product.getPrice()));
+            }
+            order.calculateTotals();
+            persist(order);
+        }
+        flushAndClear();
+    }
+
+    @Test
+    void userOrderHistoryIsOneQuery() {
+        assertStatements(1, () -> orderRepository.findByUserOrderByOrderDateDesc(consumer));
+    }
+
+    @Test
+    void recentUserOrdersIsOneQuery() {
+        assertStatements(1, () -> orderRepository.findRecentOrdersByUser(consumer, LocalDateTime.now().minusDays(1)));
+    }
+
+    @Test
+    void ordersByStatusIsOneQuery() {
+        assertStatements(1, () -> orderRepository.findByStatusOrderByOrderDateDesc(OrderStatus.PROCESSING));
+    }
+
+    @Test
+    void sellerOrdersIsOneQuery() {
+        assertStatements(1, () -> orderRepository.findOrdersBySellerId(seller.getId()));
+    }
+
+    @Test
+    void pagedOrdersBatchLoadItems() {
+        // page query + one batched SELECT for the items of the whole page (no COUNT: page not full)
+        assertStatements(2, () -> orderRepository.findAll(PageRequest.of(0, 20)).getContent());
+    }
+
+    @Test
+    void pagedUserOrdersBatchLoadItems() {
+        assertStatements(2, () -> orderRepository.findByUserOrderByOrderDateDesc(consumer, PageRequest.of(0, 20)).getContent());
+    }
+
+    private void assertStatements(long expected, Supplier<List<Order>> read) {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        List<OrderDto> dtos = read.get().stream().map(orderMapper::toDto).toList();
+
+        assertThat(dtos).hasSize(ORDERS);
+        assertThat(dtos).allSatisfy(dto -> assertThat(dto.getOrderItems()).hasSize(ITEMS_PER_ORDER));
+        assertThat(stats.getPrepareStatementCount()).as("SQL statements").isEqualTo(expected);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ecobazaarx.repository;
+
+import com.ecobazaarx.entity.Product;
+import com.ecobazaarx.entity.Role;
+import com.ecobazaarx.entity.User;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+
+/**
+ * Common setup for the repository query tests: a JPA slice on in-memory H2
+ * and factories for the users and products most tests hang their data on.
+ * Tests that need more Hibernate properties add them with
+ * {@code @TestPropertySource}, which adds to these.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+abstract class RepositoryTestBase {
+
+    @Autowired protected EntityManager entityManager;
+
+    protected <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+
+    /** A persisted user; the name doubles as the local part of the email. */
+    protected User user(String name, Role role) {
+        return persist(new User(name, name + "@test.com", "x", role));
+    }
+
+    /** A persisted active product priced 10 with 100 in stock. */
+    protected Product product(User seller, String name) {
+        Product p = new Product();
+        p.setName(name);
+        p.setType("Clothing");
+        p.setPrice(BigDecimal.TEN);
+        p.setStockQuantity(100);
+        p.setSeller(seller);
+        return persist(p);
+    }
+
+    /** Writes the fixture and detaches it, so the query under test reads from the database. */
+    protected void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
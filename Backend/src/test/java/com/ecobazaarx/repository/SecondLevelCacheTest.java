@@ -0,0 +1,119 @@
+package com.ecobazaarx.repository;
+
+import com.ecobazaarx.entity.Role;
+import com.ecobazaarx.entity.User;
+import com.ecobazaarx.service.CacheInvalidationBus;
+import com.ecobazaarx.service.ProductCache;
+import com.ecobazaarx.service.SecondLevelCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Repeat reads of products and users by id, the login lookup by email and
+ * the product type list are served from the second-level cache without SQL,
+ * across transactions, and a bus invalidation evicts them. Runs against
+ * in-memory H2 with the application's Caffeine regions.
+ */
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ SecondLevelCache.class, CacheInvalidationBus.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest extends RepositoryTestBase {
+
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CacheInvalidationBus invalidationBus;
+
+    private TransactionTemplate tx;
+    private Statistics statistics;
+    private Long productId;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        tx.executeWithoutResult(status -> {
+            User seller = user("seller", Role.SELLER);
+            productId = product(seller, "Product").getId();
+            userId = seller.getId();
+        });
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tx.executeWithoutResult(status -> {
+            productRepository.deleteAll();
+            userRepository.deleteAll();
+        });
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void productByIdIsReadOnceAcrossTransactions() {
+        inTx(() -> productRepository.findById(productId).orElseThrow());
+
+        long statements = statements(() -> productRepository.findById(productId).orElseThrow());
+
+        assertThat(statements).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void userByIdAndByEmailAreReadOnceAcrossTransactions() {
+        inTx(() -> userRepository.findById(userId).orElseThrow());
+        inTx(() -> userRepository.findByEmail("seller@test.com").orElseThrow());
+
+        assertThat(statements(() -> userRepository.findById(userId).orElseThrow())).isZero();
+        assertThat(statements(() -> userRepository.findByEmail("seller@test.com").orElseThrow())).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void productTypesAreReadOnceAcrossTransactions() {
+        assertThat(inTx(() -> productRepository.findDistinctActiveTypes())).containsExactly("Clothing");
+
+        assertThat(statements(() -> productRepository.findDistinctActiveTypes())).isZero();
+    }
+
+    @Test
+    void busInvalidationEvictsTheEntity() {
+        inTx(() -> productRepository.findById(productId).orElseThrow());
+        inTx(() -> userRepository.findById(userId).orElseThrow());
+
+        invalidationBus.publish(ProductCache.NAME, List.of(productId));
+        invalidationBus.publish(SecondLevelCache.USERS, List.of(userId));
+
+        assertThat(statements(() -> productRepository.findById(productId).orElseThrow())).isEqualTo(1);
+        assertThat(statements(() -> userRepository.findById(userId).orElseThrow())).isEqualTo(1);
+    }
+
+    private <T> T inTx(Supplier<T> read) {
+        return tx.execute(status -> read.get());
+    }
+
+    private long statements(Supplier<?> read) {
+        long before = statistics.getPrepareStatementCount();
+        inTx(read);
+        return statistics.getPrepareStatementCount() - before;
+    }
+}
@@ -0,0 +1,75 @@
+package com.ecobazaarx.repository;
+
+import com.ecobazaarx.entity.Order;
+import com.ecobazaarx.entity.OrderItem;
+import com.ecobazaarx.entity.Product;
+import com.ecobazaarx.entity.Role;
+import com.ecobazaarx.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The popular products query ranks product ids by units sold and returns
+ * only the requested top rows, ties broken by id, without loading products.
+ * Runs against in-memory H2.
+ */
+class TopSellingQueryTest extends RepositoryTestBase {
+
+    private static final int PRODUCTS = 6;
+
+    @Autowired private OrderItemRepository orderItemRepository;
+
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User seller = user("seller", Role.SELLER);
+        User consumer = user("consumer", Role.CONSUMER);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product p = product(seller, "Product " + i);
+            products.add(p);
+            productIds.add(p.getId());
+        }
+        // Units per product, split over two orders; products 4 and 5 tie, product 0 never sells
+        int[] sold = { 0, 1, 2, 3, 5, 5 };
+        for (int o = 0; o < 2; o++) {
+            Order order = new Order(consumer, BigDecimal.TEN);
+            order.setTrackingNumber("TRK-TOP-" + o);
+            for (int i = 0; i < PRODUCTS; i++) {
+                int units = o == 0 ? (sold[i] + 1) / 2 : sold[i] / 2;
+                if (units > 0) {
+                    order.addOrderItem(new OrderItem(order, products.get(i), units, BigDecimal.TEN));
+                }
+            }
+            order.calculateTotals();
+            persist(order);
+        }
+        flushAndClear();
+    }
+
+    @Test
+    void returnsOnlyTheTopIdsWithUnitsSold() {
+        List<Object[]> top = orderItemRepository.findTopSellingProductIds(PageRequest.of(0, 3));
+
+        assertThat(top).extracting(row -> row[0])
+                .containsExactly(productIds.get(4), productIds.get(5), productIds.get(3));
+        assertThat(top).extracting(row -> ((Number) row[1]).longValue()).containsExactly(5L, 5L, 3L);
+    }
+
+    @Test
+    void productsWithoutSalesAreLeftOut() {
+        List<Object[]> all = orderItemRepository.findTopSellingProductIds(PageRequest.of(0, 100));
+
+        assertThat(all).hasSize(PRODUCTS - 1);
+        assertThat(all).extracting(row -> row[0]).doesNotContain(productIds.get(0));
+    }
+}
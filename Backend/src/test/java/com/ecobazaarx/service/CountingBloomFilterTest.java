@@ -0,0 +1,71 @@
+package com.ecobazaarx.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The counting Bloom filter never forgets an entry that is still present,
+ * whatever else was added and removed around it, and keeps false positives
+ * near the configured rate.
+ */
+class CountingBloomFilterTest {
+
+    private static final int ENTRIES = 2000;
+
+    @Test
+    void addedEntriesAreAlwaysFound() {
+        CountingBloomFilter filter = new CountingBloomFilter(ENTRIES, 0.01);
+        for (int i = 0; i < ENTRIES; i++) {
+            filter.add("user" + i + "@test.com");
+        }
+
+        for (int i = 0; i < ENTRIES; i++) {
+            assertThat(filter.mightContain("user" + i + "@test.com")).isTrue();
+        }
+    }
+
+    @Test
+    void removingSomeEntriesKeepsTheRest() {
+        CountingBloomFilter filter = new CountingBloomFilter(ENTRIES, 0.01);
+        for (int i = 0; i < ENTRIES; i++) {
+            filter.add("user" + i + "@test.com");
+        }
+        for (int i = 0; i < ENTRIES; i += 2) {
+            filter.remove("user" + i + "@test.com");
+        }
+
+        for (int i = 1; i < ENTRIES; i += 2) {
+            assertThat(filter.mightContain("user" + i + "@test.com")).isTrue();
+        }
+    }
+
+    @Test
+    void anEntryAddedTwiceSurvivesOneRemove() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        filter.add("dup@test.com");
+        filter.add("dup@test.com");
+
+        filter.remove("dup@test.com");
+        assertThat(filter.mightContain("dup@test.com")).isTrue();
+
+        filter.remove("dup@test.com");
+        assertThat(filter.mightContain("dup@test.com")).isFalse();
+    }
+
+    @Test
+    void falsePositivesStayNearTheConfiguredRate() {
+        CountingBloomFilter filter = new CountingBloomFilter(ENTRIES, 0.01);
+        for (int i = 0; i < ENTRIES; i++) {
+            filter.add("user" + i + "@test.com");
+        }
+
+        int falsePositives = 0;
+        int probes = 20_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("other" + i + "@test.com")) falsePositives++;
+        }
+        // 1% expected; allow generous slack so the test is not flaky
+        assertThat(falsePositives).isLessThan(probes * 3 / 100);
+    }
+}
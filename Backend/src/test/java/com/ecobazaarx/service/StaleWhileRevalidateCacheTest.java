@@ -0,0 +1,125 @@
+package com.ecobazaarx.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The cache serves fresh values as is, serves stale ones while a single
+ * shared refresh runs, waits once the value is too old, and keeps the last
+ * good value when a refresh fails. Loads are completed by hand so each step
+ * is deterministic.
+ */
+class StaleWhileRevalidateCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    private final List<CompletableFuture<String>> loads = new ArrayList<>();
+    // What the next load returns; a pending future when null
+    private CompletableFuture<String> next;
+    // Fresh for 10s, then served stale for up to 50s more
+    private final StaleWhileRevalidateCache<String> cache = new StaleWhileRevalidateCache<>(
+            this::startLoad, Duration.ofSeconds(10), Duration.ofSeconds(50), nanos::get);
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(cache::get);
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(cache::get);
+        awaitLoads(1);
+        Thread.sleep(50);   // give the second caller time to join the load
+
+        loads.get(0).complete("v1");
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("v1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("v1");
+        assertThat(loads).hasSize(1);
+    }
+
+    @Test
+    void freshValuesAreServedWithoutLoading() {
+        prime("v1");
+
+        advance(9);
+        assertThat(cache.get()).isEqualTo("v1");
+        assertThat(loads).hasSize(1);
+    }
+
+    @Test
+    void staleValueIsServedWhileOneRefreshRuns() {
+        prime("v1");
+
+        advance(15);
+        assertThat(cache.get()).isEqualTo("v1");
+        assertThat(cache.get()).isEqualTo("v1");
+        assertThat(loads).hasSize(2);
+
+        loads.get(1).complete("v2");
+        assertThat(cache.get()).isEqualTo("v2");
+        assertThat(loads).hasSize(2);
+    }
+
+    @Test
+    void failedRefreshKeepsTheCachedValue() {
+        prime("v1");
+
+        advance(15);
+        assertThat(cache.get()).isEqualTo("v1");
+        loads.get(1).completeExceptionally(new IllegalStateException("db down"));
+
+        // Still stale, so the old value is served and a new refresh is tried
+        assertThat(cache.get()).isEqualTo("v1");
+        assertThat(loads).hasSize(3);
+    }
+
+    @Test
+    void tooOldValuesWaitForTheLoadAndSeeItsFailure() {
+        prime("v1");
+
+        advance(61);
+        CompletableFuture<String> failing = new CompletableFuture<>();
+        failing.completeExceptionally(new IllegalStateException("db down"));
+        loadsReturn(failing);
+
+        assertThatThrownBy(cache::get).isInstanceOf(IllegalStateException.class).hasMessage("db down");
+    }
+
+    private CompletableFuture<String> startLoad() {
+        synchronized (loads) {
+            CompletableFuture<String> load = next != null ? next : new CompletableFuture<>();
+            next = null;
+            loads.add(load);
+            loads.notifyAll();
+            return load;
+        }
+    }
+
+    private void loadsReturn(CompletableFuture<String> load) {
+        next = load;
+    }
+
+    private void prime(String value) {
+        loadsReturn(CompletableFuture.completedFuture(value));
+        assertThat(cache.get()).isEqualTo(value);
+    }
+
+    private void awaitLoads(int count) throws InterruptedException {
+        synchronized (loads) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (loads.size() < count && System.currentTimeMillis() < deadline) {
+                loads.wait(100);
+            }
+        }
+        assertThat(loads).hasSize(count);
+    }
+
+    private void advance(long seconds) {
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
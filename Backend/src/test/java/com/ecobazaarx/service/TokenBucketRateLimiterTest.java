@@ -0,0 +1,86 @@
+package com.ecobazaarx.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Token buckets allow a burst of {@code capacity}, refill continuously, and
+ * report how long a rejected caller should wait before retrying.
+ */
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    // 5 requests per minute: one token every 12 seconds
+    private final TokenBucketRateLimiter limiter =
+            new TokenBucketRateLimiter(5, Duration.ofMinutes(1), 1000, nanos::get);
+
+    @Test
+    void allowsABurstUpToCapacity() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1")).isZero();
+        }
+        assertThat(limiter.tryAcquire("10.0.0.1")).isPositive();
+    }
+
+    @Test
+    void retryAfterIsTheTimeUntilTheNextToken() {
+        drain("10.0.0.1");
+
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(12);
+
+        advance(5);
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(7);
+
+        advance(6.5);
+        // Half a second short: rounded up, never 0
+        assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(1);
+    }
+
+    @Test
+    void tokensRefillOverTime() {
+        drain("10.0.0.1");
+
+        advance(12);
+        assertThat(limiter.tryAcquire("10.0.0.1")).isZero();
+        assertThat(limiter.tryAcquire("10.0.0.1")).isPositive();
+
+        advance(36);
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1")).isZero();
+        }
+        assertThat(limiter.tryAcquire("10.0.0.1")).isPositive();
+    }
+
+    @Test
+    void refillStopsAtCapacity() {
+        drain("10.0.0.1");
+
+        advance(3600);
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1")).isZero();
+        }
+        assertThat(limiter.tryAcquire("10.0.0.1")).isPositive();
+    }
+
+    @Test
+    void keysHaveSeparateBuckets() {
+        drain("10.0.0.1");
+
+        assertThat(limiter.tryAcquire("10.0.0.2")).isZero();
+    }
+
+    private void drain(String key) {
+        while (limiter.tryAcquire(key) == 0) {
+            // take every token
+        }
+    }
+
+    private void advance(double seconds) {
+        nanos.addAndGet((long) (seconds * TimeUnit.SECONDS.toNanos(1)));
+    }
+}
@@ -0,0 +1,92 @@
+package com.ecobazaarx.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tracking numbers stay unique across nodes sharing a clock and strictly
+ * increasing per node, including when a millisecond's sequence runs out or
+ * the clock steps backwards.
+ */
+class TrackingNumberGeneratorTest {
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final long NOW = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+    private static final int PER_MILLISECOND = 4096;
+
+    @Test
+    void nodesSharingAMillisecondNeverCollide() {
+        TrackingNumberGenerator a = new TrackingNumberGenerator(1, 2, () -> NOW);
+        TrackingNumberGenerator b = new TrackingNumberGenerator(2, 2, () -> NOW);
+
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(seen.add(a.next())).isTrue();
+            assertThat(seen.add(b.next())).isTrue();
+        }
+    }
+
+    @Test
+    void nodeIdIsCarriedInEveryId() {
+        TrackingNumberGenerator generator = new TrackingNumberGenerator(1023, 1, () -> NOW);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat((generator.nextId() >>> 12) & 1023).isEqualTo(1023);
+        }
+    }
+
+    @Test
+    void sequenceOverflowBorrowsTheNextMillisecond() {
+        TrackingNumberGenerator generator = new TrackingNumberGenerator(7, 1, () -> NOW);
+
+        long previous = generator.nextId();
+        for (int i = 1; i < 3 * PER_MILLISECOND; i++) {
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+        // Three full sequences from a frozen clock spill into two borrowed milliseconds
+        assertThat(generator.nextId() >>> 22).isEqualTo(NOW - EPOCH + 3);
+    }
+
+    @Test
+    void idsKeepIncreasingWhenTheClockStepsBack() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TrackingNumberGenerator generator = new TrackingNumberGenerator(3, 1, clock::get);
+
+        long before = generator.nextId();
+        clock.addAndGet(-5_000);
+        long after = generator.nextId();
+
+        assertThat(after).isGreaterThan(before);
+    }
+
+    @Test
+    void renderedNumbersSortLikeTheIds() {
+        TrackingNumberGenerator generator = new TrackingNumberGenerator(5, 1, () -> NOW);
+
+        String previous = generator.next();
+        for (int i = 0; i < PER_MILLISECOND + 10; i++) {
+            String next = generator.next();
+            assertThat(next).matches("TRK[0-9A-HJKMNP-TV-Z]{13}");
+            assertThat(next).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void nodeIdIsRequiredWithSeveralInstances() {
+        assertThatThrownBy(() -> new TrackingNumberGenerator(-1, 3, () -> NOW))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new TrackingNumberGenerator(1024, 1, () -> NOW))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(new TrackingNumberGenerator(-1, 1, () -> NOW).next()).startsWith("TRK");
+    }
+}
@@ -0,0 +1,174 @@
+package com.ecobazaarx.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Space-Saving eviction within a slice, and the bounds of products merged
+ * over a window's slices: every reported [minUnits, maxUnits] holds the true
+ * count, also for products that lost their counter in some slices.
+ */
+class TrendingProductsTest {
+
+    private static final Duration SLICE = Duration.ofMinutes(1);
+
+    private final MutableClock clock = new MutableClock();
+
+    // ── Space-Saving ──────────────────────────────────────────────────────────
+
+    @Test
+    void newcomerTakesOverTheSmallestCounter() {
+        TrendingProducts.SpaceSaving summary = new TrendingProducts.SpaceSaving(2);
+        summary.add(1L, 5);
+        summary.add(2L, 3);
+        summary.add(3L, 1);
+
+        TrendingProducts.SpaceSaving.Snapshot snapshot = summary.snapshot();
+
+        assertThat(snapshot.entries()).containsExactlyInAnyOrder(
+                new TrendingProducts.Entry(1L, 5, 5),
+                new TrendingProducts.Entry(3L, 1, 4));
+        assertThat(snapshot.floor()).isEqualTo(4);
+    }
+
+    @Test
+    void summaryWithFreeCountersHasNoFloor() {
+        TrendingProducts.SpaceSaving summary = new TrendingProducts.SpaceSaving(3);
+        summary.add(1L, 5);
+        summary.add(2L, 3);
+        summary.add(1L, 2);
+
+        TrendingProducts.SpaceSaving.Snapshot snapshot = summary.snapshot();
+
+        assertThat(snapshot.entries()).containsExactlyInAnyOrder(
+                new TrendingProducts.Entry(1L, 7, 7),
+                new TrendingProducts.Entry(2L, 3, 3));
+        assertThat(snapshot.floor()).isZero();
+    }
+
+    @Test
+    void heavyHittersKeepTheirCounter() {
+        TrendingProducts.SpaceSaving summary = new TrendingProducts.SpaceSaving(4);
+        for (long id = 10; id < 100; id++) {
+            summary.add(1L, 3);        // 270 of 360 units, far above 1/4
+            summary.add(id, 1);
+        }
+
+        assertThat(summary.snapshot().entries())
+                .filteredOn(e -> e.productId() == 1L)
+                .singleElement()
+                .satisfies(e -> assertThat(e.minUnits()).isEqualTo(270));
+    }
+
+    // ── Windows ───────────────────────────────────────────────────────────────
+
+    @Test
+    void productMissingFromASliceGetsThatSlicesFloorAsUpperBound() {
+        TrendingProducts trending = new TrendingProducts(clock, 2, SLICE, List.of(Duration.ofMinutes(10)));
+        trending.record(Map.of(1L, 10L, 2L, 2L));
+        clock.advance(SLICE);
+        // Second slice: product 1 sells one unit but loses its counter to product 4
+        trending.record(Map.of(3L, 5L));
+        trending.record(Map.of(1L, 1L));
+        trending.record(Map.of(4L, 1L));
+
+        List<TrendingProducts.Entry> top = trending.top("PT10M");
+
+        // Product 1 truly sold 11: counted 10 in the first slice, up to the floor of 2 in the second.
+        // Product 3 sold 5, but the full first slice (floor 2) could have hidden some of its sales
+        assertThat(top).containsExactly(
+                new TrendingProducts.Entry(1L, 10, 12),
+                new TrendingProducts.Entry(3L, 5, 7));
+    }
+
+    @Test
+    void boundsHoldTheTrueCountsAcrossSlices() {
+        TrendingProducts trending = new TrendingProducts(clock, 8, SLICE, List.of(Duration.ofMinutes(10)));
+        Map<Long, Long> truth = new HashMap<>();
+        Random random = new Random(42);
+        for (int slice = 0; slice < 6; slice++) {
+            for (int sale = 0; sale < 300; sale++) {
+                // Skewed: low ids sell far more often
+                long product = (long) Math.floor(Math.pow(random.nextDouble(), 3) * 40);
+                long units = 1 + random.nextInt(3);
+                trending.record(Map.of(product, units));
+                truth.merge(product, units, Long::sum);
+            }
+            clock.advance(SLICE);
+        }
+
+        List<TrendingProducts.Entry> top = trending.top("PT10M");
+
+        assertThat(top).hasSize(8);
+        assertThat(top).allSatisfy(e -> assertThat(truth.getOrDefault(e.productId(), 0L))
+                .isBetween(e.minUnits(), e.maxUnits()));
+        assertThat(top).isSortedAccordingTo((a, b) -> Long.compare(b.maxUnits(), a.maxUnits()));
+        assertThat(top.get(0).productId()).isZero();
+    }
+
+    @Test
+    void windowsOnlyAddUpTheirOwnSlices() {
+        TrendingProducts trending = new TrendingProducts(clock, 10, SLICE,
+                List.of(Duration.ofMinutes(5), Duration.ofHours(1)));
+        trending.record(Map.of(1L, 4L));
+        clock.advance(Duration.ofMinutes(10));
+        trending.record(Map.of(2L, 1L));
+
+        assertThat(trending.top("PT5M")).extracting(TrendingProducts.Entry::productId).containsExactly(2L);
+        assertThat(trending.top("PT1H")).extracting(TrendingProducts.Entry::productId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void slicesPastTheLongestWindowAreDropped() {
+        TrendingProducts trending = new TrendingProducts(clock, 10, SLICE, List.of(Duration.ofMinutes(5)));
+        trending.record(Map.of(1L, 4L));
+        clock.advance(Duration.ofMinutes(6));
+        trending.record(Map.of(2L, 1L));
+
+        assertThat(trending.top(null)).extracting(TrendingProducts.Entry::productId).containsExactly(2L);
+    }
+
+    @Test
+    void unknownWindowsAreRejected() {
+        TrendingProducts trending = new TrendingProducts(clock, 10, SLICE, List.of(Duration.ofMinutes(5)));
+
+        assertThatThrownBy(() -> trending.top("PT2H")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> trending.top("soon")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(trending.top(" ")).isEmpty();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:30Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
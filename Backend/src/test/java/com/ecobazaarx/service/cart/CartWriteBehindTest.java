@@ -0,0 +1,218 @@
+package com.ecobazaarx.service.cart;
+
+import com.ecobazaarx.exception.CartConflictException;
+import com.ecobazaarx.repository.CartJdbcRepository;
+import com.ecobazaarx.service.CacheInvalidationBus;
+import com.ecobazaarx.service.InvalidationTransport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Flushes against an in-memory carts row: the version check, changes made
+ * while a flush runs, a flush losing to another node, and a checkout.
+ */
+class CartWriteBehindTest {
+
+    private static final Long USER_ID = 1L;
+    private static final Long CART_ID = 5L;
+
+    private final FakeCartTable table = new FakeCartTable();
+    private final InMemoryCartStore store = new InMemoryCartStore(100);
+    private final List<String> broadcasts = new ArrayList<>();
+    private final CartWriteBehind writeBehind;
+
+    CartWriteBehindTest() {
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("transport", new InvalidationTransport() {
+            @Override
+            public void broadcast(String cacheName, Collection<Long> ids) {
+                broadcasts.add(cacheName + ids);
+            }
+
+            @Override
+            public void onReceive(BiConsumer<String, Collection<Long>> handler) {
+            }
+        });
+        CacheInvalidationBus bus = new CacheInvalidationBus(beans.getBeanProvider(InvalidationTransport.class));
+        writeBehind = new CartWriteBehind(store, new CartLoader(null) {
+            @Override
+            public StoredCart load(Long userId) {
+                return table.read();
+            }
+        }, table, bus, new NoOpTransactionManager());
+    }
+
+    @Test
+    void flushWritesTheCartAndAdvancesItsVersion() {
+        store.update(USER_ID, table::read, c -> c.withQuantity(10, 2, 101));
+
+        StoredCart written = writeBehind.flush(USER_ID);
+
+        assertThat(written.cartId()).isEqualTo(CART_ID);
+        assertThat(table.version).isEqualTo(1);
+        assertThat(table.quantities()).containsExactly(Map.entry(10L, 2));
+        assertThat(store.isDirty(USER_ID)).isFalse();
+        assertThat(broadcasts).contains(CartStore.CHANNEL + List.of(USER_ID));
+    }
+
+    @Test
+    void changeMadeDuringAFlushIsWrittenByTheNextOne() {
+        store.update(USER_ID, table::read, c -> c.withQuantity(10, 2, 101));
+        table.duringWrite = () -> store.update(USER_ID, c -> c.withQuantity(11, 1, 102));
+
+        writeBehind.flush(USER_ID);
+
+        assertThat(table.quantities()).containsOnlyKeys(10L);
+        assertThat(store.isDirty(USER_ID)).isTrue();
+
+        table.duringWrite = null;
+        writeBehind.flush(USER_ID);
+
+        assertThat(table.version).isEqualTo(2);
+        assertThat(table.quantities()).containsOnlyKeys(10L, 11L);
+        assertThat(store.isDirty(USER_ID)).isFalse();
+    }
+
+    @Test
+    void flushLosingTheVersionCheckReappliesLocalChanges() {
+        store.update(USER_ID, table::read, c -> c.withQuantity(10, 2, 101));
+        // Another node writes the cart first
+        table.version = 1;
+        table.lines.put(20L, new CartJdbcRepository.ItemRow(201, 20, 3, LocalDateTime.now(), LocalDateTime.now()));
+
+        writeBehind.flush(USER_ID);
+
+        assertThat(table.version).isEqualTo(2);
+        assertThat(table.quantities()).containsExactly(Map.entry(20L, 3), Map.entry(10L, 2));
+        assertThat(store.get(USER_ID).productIds()).containsExactly(20L, 10L);
+        assertThat(store.isDirty(USER_ID)).isFalse();
+    }
+
+    @Test
+    void flushThatKeepsLosingFailsButKeepsTheChanges() {
+        store.update(USER_ID, table::read, c -> c.withQuantity(10, 2, 101));
+        table.duringVersionCheck = () -> table.version++;
+
+        assertThatThrownBy(() -> writeBehind.flush(USER_ID)).isInstanceOf(CartConflictException.class);
+
+        assertThat(store.isDirty(USER_ID)).isTrue();
+        assertThat(store.get(USER_ID).productIds()).containsExactly(10L);
+    }
+
+    @Test
+    void checkoutKeepsLinesAddedWhileItRan() {
+        store.update(USER_ID, table::read, c -> c.withQuantity(10, 2, 101));
+        StoredCart checkedOut = writeBehind.flush(USER_ID);
+        store.update(USER_ID, c -> c.withQuantity(11, 1, 102));
+
+        // The checkout empties the stored cart and moves its version on, then the store follows it
+        table.lines.clear();
+        table.version++;
+        store.update(USER_ID, c -> c.without(checkedOut));
+        writeBehind.flush(USER_ID);
+
+        assertThat(table.version).isEqualTo(3);
+        assertThat(table.quantities()).containsExactly(Map.entry(11L, 1));
+        assertThat(store.get(USER_ID).productIds()).containsExactly(11L);
+    }
+
+    @Test
+    void evictionFromAnotherNodeSparesUnflushedCarts() {
+        store.update(USER_ID, table::read, c -> c.withQuantity(10, 2, 101));
+        store.putIfAbsent(2L, StoredCart.empty(null));
+
+        store.evictIfClean(USER_ID);
+        store.evictIfClean(2L);
+
+        assertThat(store.get(USER_ID)).isNotNull();
+        assertThat(store.get(2L)).isNull();
+    }
+
+    // ── Fakes ────────────────────────────────────────────────────────────────
+
+    /** One user's carts row and its cart_items. */
+    private static class FakeCartTable extends CartJdbcRepository {
+
+        long version;
+        final Map<Long, ItemRow> lines = new LinkedHashMap<>();
+        Runnable duringVersionCheck;
+        Runnable duringWrite;
+
+        FakeCartTable() {
+            super(null);
+        }
+
+        StoredCart read() {
+            Map<Long, StoredCart.Line> read = new LinkedHashMap<>();
+            lines.values().forEach(row -> read.put(row.productId(), new StoredCart.Line(row.id(), row.productId(),
+                    row.quantity(), row.addedDate(), row.updatedDate())));
+            return new StoredCart(CART_ID, read, 0, LocalDateTime.now(), version);
+        }
+
+        Map<Long, Integer> quantities() {
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            lines.values().forEach(row -> quantities.put(row.productId(), row.quantity()));
+            return quantities;
+        }
+
+        @Override
+        public Long ensureCart(Long userId) {
+            return CART_ID;
+        }
+
+        @Override
+        public boolean advanceVersion(Long cartId, long expected) {
+            if (duringVersionCheck != null) {
+                duringVersionCheck.run();
+            }
+            if (version != expected) {
+                return false;
+            }
+            version = expected + 1;
+            return true;
+        }
+
+        @Override
+        public void replaceItems(Long cartId, Collection<ItemRow> items, LocalDateTime updatedDate) {
+            if (duringWrite != null) {
+                duringWrite.run();
+            }
+            lines.clear();
+            items.forEach(row -> lines.put(row.productId(), row));
+        }
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ecobazaarx.service.cart;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dirty tracking against the version a flush wrote, and the size bound:
+ * only clean carts are evicted, never one with unflushed changes and never
+ * the one just cached.
+ */
+class InMemoryCartStoreTest {
+
+    private final InMemoryCartStore store = new InMemoryCartStore(2);
+
+    @Test
+    void cartChangedDuringAFlushStaysDirty() {
+        store.putIfAbsent(1L, StoredCart.empty(null));
+        StoredCart written = store.update(1L, c -> c.withQuantity(10, 1, 101));
+        store.update(1L, c -> c.withQuantity(11, 1, 102));      // lands while the flush runs
+
+        store.markFlushed(1L, written.flushedAs(5L, 1));
+
+        assertThat(store.isDirty(1L)).isTrue();
+        assertThat(store.get(1L).productIds()).containsExactly(10L, 11L);
+        assertThat(store.get(1L).cartId()).isEqualTo(5L);
+        assertThat(store.get(1L).storedVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void flushOfTheLatestVersionCleansTheCart() {
+        store.putIfAbsent(1L, StoredCart.empty(null));
+        StoredCart written = store.update(1L, c -> c.withQuantity(10, 1, 101));
+
+        store.markFlushed(1L, written.flushedAs(5L, 1));
+
+        assertThat(store.isDirty(1L)).isFalse();
+        assertThat(store.dirtyUserIds()).isEmpty();
+    }
+
+    @Test
+    void dirtyCartsAreNeverEvicted() {
+        store.update(1L, () -> StoredCart.empty(null), c -> c.withQuantity(10, 1, 101));
+        store.update(2L, () -> StoredCart.empty(null), c -> c.withQuantity(10, 1, 102));
+
+        // Over the bound, but everything else is dirty: the new cart is kept too
+        StoredCart third = store.putIfAbsent(3L, StoredCart.empty(null));
+        store.evictIfClean(1L);
+
+        assertThat(third).isNotNull();
+        assertThat(store.get(1L)).isNotNull();
+        assertThat(store.get(2L)).isNotNull();
+        assertThat(store.get(3L)).isNotNull();
+        assertThat(store.dirtyUserIds()).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void flushedCartsBecomeEvictableAgain() {
+        StoredCart written = store.update(1L, () -> StoredCart.empty(null), c -> c.withQuantity(10, 1, 101));
+        store.update(2L, () -> StoredCart.empty(null), c -> c.withQuantity(10, 1, 102));
+        store.putIfAbsent(3L, StoredCart.empty(null));
+
+        store.markFlushed(1L, written.flushedAs(5L, 1));
+
+        // Back under the bound by dropping the least recently used clean cart
+        assertThat(store.get(2L)).isNotNull();
+        assertThat(store.get(1L) == null || store.get(3L) == null).isTrue();
+    }
+
+    @Test
+    void updateLoadsAMissingCartOnce() {
+        AtomicInteger loads = new AtomicInteger();
+
+        store.update(1L, () -> {
+            loads.incrementAndGet();
+            return StoredCart.empty(5L).withQuantity(10, 1, 101);
+        }, c -> c.withQuantity(11, 1, 102));
+        store.update(1L, () -> {
+            loads.incrementAndGet();
+            return StoredCart.empty(5L);
+        }, c -> c.withQuantity(12, 1, 103));
+
+        assertThat(loads).hasValue(1);
+        assertThat(store.get(1L).productIds()).containsExactly(10L, 11L, 12L);
+    }
+
+    @Test
+    void rebaseReappliesOnlyTheUnflushedChanges() {
+        StoredCart loaded = StoredCart.empty(5L).withQuantity(10, 1, 101).flushedAs(5L, 2);
+        store.putIfAbsent(1L, loaded);
+        store.update(1L, c -> c.withQuantity(11, 1, 102));
+
+        StoredCart fresh = StoredCart.empty(5L).withQuantity(20, 1, 201).flushedAs(5L, 3);
+        store.rebase(1L, fresh);
+
+        // Product 10 was unchanged here and is gone from the stored cart; 11 is ours
+        assertThat(store.get(1L).productIds()).containsExactly(20L, 11L);
+        assertThat(store.get(1L).storedVersion()).isEqualTo(3);
+        assertThat(store.isDirty(1L)).isTrue();
+    }
+
+    @Test
+    void evictIfCleanKeepsUnflushedChanges() {
+        store.putIfAbsent(1L, StoredCart.empty(null));
+        store.putIfAbsent(2L, StoredCart.empty(null));
+        store.update(2L, c -> c.withQuantity(10, 1, 101));
+
+        store.evictIfClean(1L);
+        store.evictIfClean(2L);
+
+        assertThat(store.get(1L)).isNull();
+        assertThat(store.get(2L)).isNotNull();
+    }
+}
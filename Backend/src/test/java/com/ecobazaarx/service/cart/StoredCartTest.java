@@ -0,0 +1,78 @@
+package com.ecobazaarx.service.cart;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checkout removes exactly the checked-out lines, and a rebase re-applies
+ * this node's changes on top of a cart another node wrote.
+ */
+class StoredCartTest {
+
+    private static final Long CART_ID = 7L;
+
+    @Test
+    void checkoutKeepsLinesAddedMeanwhile() {
+        StoredCart checkedOut = StoredCart.empty(CART_ID).withQuantity(1, 2, 101).withQuantity(2, 1, 102)
+                .flushedAs(CART_ID, 3);
+        // While the order was placed: a new product, and product 2 removed and added back on a new line
+        StoredCart current = checkedOut.withQuantity(3, 1, 103).without(2).withQuantity(2, 4, 104);
+
+        StoredCart after = current.without(checkedOut);
+
+        assertThat(after.productIds()).containsExactly(3L, 2L);
+        assertThat(after.line(2L).id()).isEqualTo(104);
+        // The checkout itself moved the row's version on once
+        assertThat(after.storedVersion()).isEqualTo(4);
+    }
+
+    @Test
+    void checkoutOfAnUnchangedCartLeavesItEmpty() {
+        StoredCart checkedOut = StoredCart.empty(CART_ID).withQuantity(1, 2, 101).flushedAs(CART_ID, 1);
+
+        assertThat(checkedOut.without(checkedOut).lines()).isEmpty();
+    }
+
+    @Test
+    void rebaseKeepsTheOtherNodesLinesAndReappliesOurs() {
+        StoredCart base = StoredCart.empty(CART_ID).withQuantity(1, 1, 101).withQuantity(2, 1, 102)
+                .flushedAs(CART_ID, 3);
+        // Here: product 1 raised to 5, product 2 removed, product 3 added
+        StoredCart local = base.withQuantity(1, 5, 0).without(2).withQuantity(3, 2, 103);
+        // Elsewhere: product 4 added, product 2 raised
+        StoredCart fresh = base.withQuantity(4, 1, 201).withQuantity(2, 9, 0).flushedAs(CART_ID, 4);
+
+        StoredCart merged = local.rebase(base, fresh);
+
+        assertThat(merged.productIds()).containsExactlyInAnyOrder(1L, 3L, 4L);
+        assertThat(merged.line(1L).quantity()).isEqualTo(5);
+        assertThat(merged.line(3L).quantity()).isEqualTo(2);
+        assertThat(merged.line(4L).quantity()).isEqualTo(1);
+        assertThat(merged.storedVersion()).isEqualTo(4);
+    }
+
+    @Test
+    void rebaseFollowsACheckoutElsewhere() {
+        StoredCart base = StoredCart.empty(CART_ID).withQuantity(1, 1, 101).flushedAs(CART_ID, 2);
+        StoredCart local = base.withQuantity(2, 3, 102);
+        StoredCart fresh = new StoredCart(CART_ID, java.util.Map.of(), 0, base.updatedDate(), 3);
+
+        StoredCart merged = local.rebase(base, fresh);
+
+        // Product 1 was checked out on the other node; only the line added here remains
+        assertThat(merged.productIds()).containsExactly(2L);
+    }
+
+    @Test
+    void rebaseKeepsTheStoredLineIdForAProductAddedOnBothNodes() {
+        StoredCart base = StoredCart.empty(CART_ID);
+        StoredCart local = base.withQuantity(1, 2, 101);
+        StoredCart fresh = base.withQuantity(1, 1, 201).flushedAs(CART_ID, 1);
+
+        StoredCart.Line line = local.rebase(base, fresh).line(1L);
+
+        assertThat(line.id()).isEqualTo(201);
+        assertThat(line.quantity()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,128 @@
+package com.ecobazaarx.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BM25 ranking, last-term prefix matching and incremental updates of the
+ * in-process product search index, plus the analyzer it shares with queries.
+ */
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.index(1L, "Bamboo Toothbrush", "Home", "Plastic-free handle");
+        index.index(2L, "Toothbrush Holder", "Home", "Made of bamboo");
+        index.index(3L, "Organic Cotton Hoodie", "Clothing", "Warm and soft");
+        index.index(4L, "Cotton Tote", "Accessories", "Reusable shopping bag");
+    }
+
+    // ── Ranking ───────────────────────────────────────────────────────────────
+
+    @Test
+    void nameMatchesOutrankDescriptionMatches() {
+        ProductSearchIndex.SearchResult result = index.search("bamboo", 0, 10);
+
+        assertThat(result.productIds()).containsExactly(1L, 2L);
+        assertThat(result.totalHits()).isEqualTo(2);
+    }
+
+    @Test
+    void shorterDocumentsRankFirstOnEqualTermFrequency() {
+        // Both have "cotton" once in the name; the tote has the shorter document
+        assertThat(index.search("cotton ", 0, 10).productIds()).containsExactly(4L, 3L);
+    }
+
+    @Test
+    void allQueryTermsMustMatch() {
+        assertThat(index.search("cotton bag", 0, 10).productIds()).containsExactly(4L);
+        assertThat(index.search("bamboo hoodie", 0, 10).productIds()).isEmpty();
+    }
+
+    @Test
+    void pagesAreSlicesOfTheSameRanking() {
+        ProductSearchIndex.SearchResult first = index.search("toothbrush", 0, 1);
+        ProductSearchIndex.SearchResult second = index.search("toothbrush", 1, 1);
+
+        assertThat(first.totalHits()).isEqualTo(2);
+        assertThat(second.totalHits()).isEqualTo(2);
+        assertThat(first.productIds()).hasSize(1);
+        assertThat(second.productIds()).hasSize(1).doesNotContainAnyElementsOf(first.productIds());
+    }
+
+    // ── Prefix matching ───────────────────────────────────────────────────────
+
+    @Test
+    void lastTermMatchesAsPrefixWhileTyping() {
+        assertThat(index.search("hood", 0, 10).productIds()).containsExactly(3L);
+        assertThat(index.search("organic hoo", 0, 10).productIds()).containsExactly(3L);
+    }
+
+    @Test
+    void completedAndEarlierTermsMatchWholeWordsOnly() {
+        // A trailing space means the word is finished
+        assertThat(index.search("hood ", 0, 10).productIds()).isEmpty();
+        assertThat(index.search("hood cotton", 0, 10).productIds()).isEmpty();
+    }
+
+    @Test
+    void trailingStopWordsAndSingleLettersAreNotExpanded() {
+        index.index(5L, "Forest Candle", "Home", "Smells of pine");
+        index.index(6L, "Cotton Apron", "Home", "Adjustable straps");
+
+        // "for" is a stop word, not the start of "forest"
+        assertThat(index.search("cotton for", 0, 10).productIds()).containsExactly(6L, 4L, 3L);
+        assertThat(index.search("for", 0, 10).totalHits()).isZero();
+        // A single letter matches whole words only
+        assertThat(index.search("cotton b", 0, 10).productIds()).isEmpty();
+        assertThat(index.search("cotton ba", 0, 10).productIds()).containsExactly(4L);
+    }
+
+    @Test
+    void pluralsAndCaseFindTheSameProducts() {
+        assertThat(index.search("HOODIES ", 0, 10).productIds()).containsExactly(3L);
+        assertThat(index.search("toothbrushes ", 0, 10).totalHits()).isEqualTo(2);
+    }
+
+    // ── Updates ───────────────────────────────────────────────────────────────
+
+    @Test
+    void reindexingReplacesTheOldTerms() {
+        index.index(3L, "Organic Cotton Sweater", "Clothing", "Warm and soft");
+
+        assertThat(index.search("hoodie", 0, 10).productIds()).isEmpty();
+        assertThat(index.search("sweater", 0, 10).productIds()).containsExactly(3L);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void removedProductsNoLongerMatch() {
+        index.remove(1L);
+
+        assertThat(index.search("bamboo", 0, 10).productIds()).containsExactly(2L);
+        assertThat(index.search("plastic", 0, 10).totalHits()).isZero();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void stopWordsAndBlankQueriesMatchNothingByThemselves() {
+        assertThat(index.search("the", 0, 10).totalHits()).isZero();
+        assertThat(index.search("   ", 0, 10).totalHits()).isZero();
+        assertThat(index.search("the tote", 0, 10).productIds()).containsExactly(4L);
+    }
+
+    // ── Analyzer ──────────────────────────────────────────────────────────────
+
+    @Test
+    void analyzerStemsAndDropsStopWords() {
+        assertThat(SearchAnalyzer.analyze("Batteries for the Battery")).containsExactly("batteri", "batteri");
+        assertThat(SearchAnalyzer.stem("running")).isEqualTo("run");
+        assertThat(SearchAnalyzer.stem("hoodies")).isEqualTo(SearchAnalyzer.stem("hoodie"));
+        assertThat(SearchAnalyzer.tokenize("Eco-Friendly, 100%")).containsExactly("eco", "friendly", "100");
+    }
+}
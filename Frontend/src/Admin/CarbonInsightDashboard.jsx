@@ -216,11 +216,91 @@ const ProductsTab = ({ a }) => (
   </div>
 );
 
-const UserCarbonTab = ({ users }) => {
-  const maxCO2 = Math.max(...(users || []).map(u => u.totalCO2 || 0), 1);
+// ── Leaderboards (paged from /api/analytics/leaderboards) ─────────────────────
+
+const LEADERBOARD_PAGE_SIZE = 20;
+
+const useLeaderboard = (kind) => {
+  const { fetchCarbonLeaderboard } = useGlobal();
+  const [page, setPage]           = useState(0);
+  const [sort, setSort]           = useState('totalCO2');
+  const [direction, setDirection] = useState('desc');
+  const [result, setResult]       = useState({ content: [], totalPages: 0, totalElements: 0 });
+  const [loading, setLoading]     = useState(true);
+  const [error, setError]         = useState(null);
+
+  useEffect(() => {
+    let cancelled = false;
+    setLoading(true);
+    fetchCarbonLeaderboard(kind, { page, size: LEADERBOARD_PAGE_SIZE, sort, direction }).then(res => {
+      if (cancelled) return;
+      if (res.success) { setResult(res.page); setError(null); }
+      else setError(res.message || 'Failed to load leaderboard');
+      setLoading(false);
+    });
+    return () => { cancelled = true; };
+    // Context functions are recreated on every render; refetch only when the query changes
+  }, [kind, page, sort, direction]); // eslint-disable-line react-hooks/exhaustive-deps
+
+  const changeSort = (value) => { setSort(value); setPage(0); };
+  const toggleDirection = () => { setDirection(d => (d === 'desc' ? 'asc' : 'desc')); setPage(0); };
+
+  return { rows: result.content || [], offset: page * LEADERBOARD_PAGE_SIZE, page, setPage,
+           totalPages: result.totalPages || 0, totalElements: result.totalElements || 0,
+           sort, changeSort, direction, toggleDirection, loading, error };
+};
+
+const LeaderboardControls = ({ board, sorts }) => {
+  const buttonStyle = (disabled) => ({
+    padding:'6px 14px', borderRadius:'8px', border:'1px solid #bfdbfe', fontWeight:'600', fontSize:'13px',
+    background: disabled ? '#f1f5f9' : '#eff6ff', color: disabled ? '#94a3b8' : '#1e40af',
+    cursor: disabled ? 'default' : 'pointer',
+  });
+  return (
+    <div style={{ display:'flex', alignItems:'center', justifyContent:'space-between', gap:'12px', flexWrap:'wrap', marginBottom:'16px' }}>
+      <div style={{ display:'flex', alignItems:'center', gap:'8px' }}>
+        <span style={{ color:'#64748b', fontSize:'13px', fontWeight:'600' }}>Sort by</span>
+        <select value={board.sort} onChange={e => board.changeSort(e.target.value)}
+          style={{ padding:'6px 10px', borderRadius:'8px', border:'1px solid #bfdbfe', fontSize:'13px' }}>
+          {sorts.map(s => <option key={s.value} value={s.value}>{s.label}</option>)}
+        </select>
+        <button onClick={board.toggleDirection} style={buttonStyle(false)}>
+          {board.direction === 'desc' ? '↓ Highest first' : '↑ Lowest first'}
+        </button>
+      </div>
+      <div style={{ display:'flex', alignItems:'center', gap:'8px' }}>
+        <span style={{ color:'#64748b', fontSize:'13px' }}>
+          {board.totalElements} total · page {board.totalPages === 0 ? 0 : board.page + 1} of {board.totalPages}
+        </span>
+        <button disabled={board.page === 0} onClick={() => board.setPage(p => p - 1)} style={buttonStyle(board.page === 0)}>Prev</button>
+        <button disabled={board.page + 1 >= board.totalPages} onClick={() => board.setPage(p => p + 1)}
+          style={buttonStyle(board.page + 1 >= board.totalPages)}>Next</button>
+      </div>
+    </div>
+  );
+};
+
+const USER_SORTS = [
+  { value:'totalCO2', label:'Total CO₂' }, { value:'orderCount', label:'Orders' },
+  { value:'avgEcoScore', label:'Avg Eco Score' }, { value:'name', label:'Name' },
+];
+
+const SELLER_SORTS = [
+  { value:'totalCO2', label:'Total CO₂' }, { value:'materialCO2', label:'Material CO₂' },
+  { value:'shippingCO2', label:'Shipping CO₂' }, { value:'productCount', label:'Products' },
+  { value:'avgEcoScore', label:'Avg Eco Score' }, { value:'name', label:'Name' },
+];
+
+const UserCarbonTab = () => {
+  const board  = useLeaderboard('users');
+  const users  = board.rows;
+  const maxCO2 = Math.max(...users.map(u => u.totalCO2 || 0), 1);
   return (
     <SectionCard title="👥 Carbon Footprint per User (from Orders)">
-      {(!users || users.length === 0)
+      <LeaderboardControls board={board} sorts={USER_SORTS} />
+      {board.error && <p style={{ color:'#991b1b', fontWeight:'600', marginBottom:'12px' }}>{board.error}</p>}
+      {users.length === 0
+        ? <p style={{ color:'#94a3b8', textAlign:'center', padding:'40px' }}>{board.loading ? 'Loading…' : 'No user order data available yet'}</p>
         ? <p style={{ color:'#94a3b8', textAlign:'center', padding:'40px' }}>No user order data available yet</p>
         : (
           <div style={{ overflowX:'auto' }}>
@@ -240,7 +320,7 @@ const UserCarbonTab = ({ users }) => {
                     <tr key={u.userId} style={{ borderBottom:'1px solid #f1f5f9', transition:'background 0.2s' }}
                       onMouseEnter={e => e.currentTarget.style.background='#f8faff'}
                       onMouseLeave={e => e.currentTarget.style.background='transparent'}>
-                      <td style={{ padding:'12px 16px', color:'#94a3b8', fontWeight:'600' }}>{i+1}</td>
+                      <td style={{ padding:'12px 16px', color:'#94a3b8', fontWeight:'600' }}>{board.offset+i+1}</td>
                       <td style={{ padding:'12px 16px' }}>
                         <div style={{ display:'flex', alignItems:'center', gap:'10px' }}>
                           <div style={{ width:'34px', height:'34px', borderRadius:'50%', background:'linear-gradient(135deg,#3b82f6,#2563eb)', display:'flex', alignItems:'center', justifyContent:'center', color:'white', fontWeight:'700', fontSize:'13px', flexShrink:0 }}>
@@ -274,19 +354,22 @@ const UserCarbonTab = ({ users }) => {
   );
 };
 
-const SellerCarbonTab = ({ sellers }) => {
-  const maxCO2 = Math.max(...(sellers || []).map(s => s.totalCO2 || 0), 1);
+const SellerCarbonTab = () => {
+  const board   = useLeaderboard('sellers');
+  const sellers = board.rows;
   return (
     <SectionCard title="🏪 Carbon Footprint per Seller (from Active Products)">
-      {(!sellers || sellers.length === 0)
-        ? <p style={{ color:'#94a3b8', textAlign:'center', padding:'40px' }}>No seller product data available yet</p>
+      <LeaderboardControls board={board} sorts={SELLER_SORTS} />
+      {board.error && <p style={{ color:'#991b1b', fontWeight:'600', marginBottom:'12px' }}>{board.error}</p>}
+      {sellers.length === 0
+        ? <p style={{ color:'#94a3b8', textAlign:'center', padding:'40px' }}>{board.loading ? 'Loading…' : 'No seller product data available yet'}</p>
         : (
           <>
             {/* Summary bar chart */}
             <div style={{ marginBottom:'28px' }}>
               <p style={{ color:'#64748b', fontSize:'13px', fontWeight:'600', marginBottom:'12px' }}>Total CO₂ by Seller (Material + Shipping)</p>
               <BarChart
-                data={(sellers || []).map(s => ({ ...s, name: s.sellerName, emissions: s.totalCO2 }))}
+                data={sellers.map(s => ({ ...s, name: s.sellerName, emissions: s.totalCO2 }))}
                 dataKey="emissions"
                 nameKey="name"
                 colors={BAR_COLORS}
@@ -310,7 +393,7 @@ const SellerCarbonTab = ({ sellers }) => {
                       <tr key={s.sellerId} style={{ borderBottom:'1px solid #f1f5f9', transition:'background 0.2s' }}
                         onMouseEnter={e => e.currentTarget.style.background='#f8faff'}
                         onMouseLeave={e => e.currentTarget.style.background='transparent'}>
-                        <td style={{ padding:'12px 16px', color:'#94a3b8', fontWeight:'600' }}>{i+1}</td>
+                        <td style={{ padding:'12px 16px', color:'#94a3b8', fontWeight:'600' }}>{board.offset+i+1}</td>
                         <td style={{ padding:'12px 16px' }}>
                           <div style={{ display:'flex', alignItems:'center', gap:'10px' }}>
                             <div style={{ width:'34px', height:'34px', borderRadius:'50%', background:'linear-gradient(135deg,#10b981,#059669)', display:'flex', alignItems:'center', justifyContent:'center', color:'white', fontWeight:'700', fontSize:'13px', flexShrink:0 }}>
@@ -433,8 +516,8 @@ const CarbonFootprintDashboard = () => {
         {/* Tab content */}
         {activeTab === 'overview'  && <OverviewTab a={a} materialPct={materialPct} shippingPct={shippingPct} />}
         {activeTab === 'products'  && <ProductsTab a={a} />}
-        {activeTab === 'peruser'   && <UserCarbonTab   users={a.userCarbonList   || []} />}
-        {activeTab === 'perseller' && <SellerCarbonTab sellers={a.sellerCarbonList || []} />}
+        {activeTab === 'peruser'   && <UserCarbonTab />}
+        {activeTab === 'perseller' && <SellerCarbonTab />}
 
       </div>
     </div>
@@ -27,11 +27,13 @@ API.interceptors.response.use(
      *
      * In both cases the stored token is invalid, so we clear it and send the
      * user back to the login page. We skip the redirect for the /auth/signin and
-     * /auth/signup endpoints so a wrong-password attempt doesn't bounce the page.
+     * /auth/signup endpoints so a wrong-password attempt doesn't bounce the page,
+     * and for /auth/signout, which is sent with an already-discarded token.
      */
     const isAuthEndpoint =
       error.config?.url?.includes("/auth/signin") ||
-      error.config?.url?.includes("/auth/signup");
+      error.config?.url?.includes("/auth/signup") ||
+      error.config?.url?.includes("/auth/signout");
 
     if ((status === 401 || status === 403) && !isAuthEndpoint) {
       localStorage.removeItem("token");
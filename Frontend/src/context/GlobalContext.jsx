@@ -327,10 +327,18 @@ export const Authenticate = ({ children }) => {
       setCurrentUser(userData);
 
       if (userData.role === "consumer") {
-        await Promise.all([fetchCart(), fetchProducts()]);
         const guestCart = JSON.parse(localStorage.getItem("guestCart") || "[]");
-        for (const item of guestCart) await addToCart(item, item.quantity);
-        if (guestCart.length > 0) localStorage.removeItem("guestCart");
+        if (guestCart.length > 0) {
+          // One request for the whole guest cart; the response is the merged cart
+          const [merged] = await Promise.all([
+            API.post("/cart/merge", { items: guestCart.map((item) => ({ productId: item.id, quantity: item.quantity })) }),
+            fetchProducts(),
+          ]);
+          setCartItems(merged.data.cartItems || []);
+          localStorage.removeItem("guestCart");
+        } else {
+          await Promise.all([fetchCart(), fetchProducts()]);
+        }
       } else if (userData.role === "seller") {
         await Promise.all([fetchProductsBySeller(userData.id), fetchOrdersBySeller()]);
       }
@@ -341,6 +349,11 @@ export const Authenticate = ({ children }) => {
   };
 
   const logoutUser = () => {
+    const token = localStorage.getItem("token");
+    if (token) {
+      // Revoke the token server-side; the local logout does not wait for it
+      API.post("/auth/signout", null, { headers: { Authorization: `Bearer ${token}` } }).catch(() => {});
+    }
     localStorage.removeItem("token");
     localStorage.removeItem("guestCart");
     setCurrentUser(null); setCartItems([]); setOrders([]); setError(null);
@@ -418,6 +431,19 @@ export const Authenticate = ({ children }) => {
     }
   };
 
+  /**
+   * One page of the per-user or per-seller carbon ranking ("users" / "sellers").
+   * The carbon payload above only carries the top few of each.
+   */
+  const fetchCarbonLeaderboard = async (kind, { page = 0, size = 20, sort = "totalCO2", direction = "desc" } = {}) => {
+    try {
+      const response = await API.get(`/analytics/leaderboards/${kind}`, { params: { page, size, sort, direction } });
+      return { success: true, page: response.data };
+    } catch (err) {
+      return { success: false, message: err.response?.data?.message || err.message, page: null };
+    }
+  };
+
   // Kept for backwards compat — callers that still need raw product list
   const fetchProductsForAnalytics = async () => {
     try {
@@ -471,7 +497,7 @@ export const Authenticate = ({ children }) => {
     registerUser, loginUser, logoutUser, getCurrentUser, updateUserProfile,
     makeAuthenticatedRequest,
     fetchAllOrders, fetchAllUsers, updateUserStatus, updateOrderStatus, cancelOrder, updateUserRole,
-    fetchProductsForAnalytics, fetchCarbonAnalyticsData,
+    fetchProductsForAnalytics, fetchCarbonAnalyticsData, fetchCarbonLeaderboard,
   };
 
   return <GlobalContext.Provider value={value}>{children}</GlobalContext.Provider>;